@@ -0,0 +1,317 @@
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Exam Load Benchmark - Drives the exam save/submit flow against a running node
+ * Every simulated participant logs in, starts the quiz, saves an answer to
+ * each question and submits, all at once. Prints throughput and latency
+ * percentiles of saves and submits (a submit includes loading the result
+ * page it redirects to), so a node running with threads.mode=platform can be
+ * compared with threads.mode=virtual on the same data, and saves over HTTP
+ * with saves over the exam WebSocket. Not part of the build; run it with a
+ * JDK 11+ launcher:
+ *
+ *   java bench/ExamLoadBenchmark.java http://localhost:8080/examora 12 200 bench secret platform
+ *   java bench/ExamLoadBenchmark.java http://localhost:8080/examora 12 200 bench secret socket socket
+ *
+ * Arguments: base URL, quiz id, participants, email prefix (accounts are
+ * prefix1@examora.test ... prefixN@examora.test, e.g. created with the CSV
+ * user import), password, label for the report, and the save transport
+ * (http, the default, or socket: one frame per save, timed until its ack).
+ * Every account must not have taken the quiz yet.
+ */
+public class ExamLoadBenchmark {
+    private static final Pattern SUBMISSION_ID = Pattern.compile("const submissionId = (\\d+);");
+    private static final Pattern QUESTION_ID = Pattern.compile("data-question=\"(\\d+)\"");
+    private static final Pattern PAYLOAD_QUESTION_ID = Pattern.compile("\"id\":(\\d+)");
+    private static final String[] OPTIONS = {"A", "B", "C", "D"};
+
+    private final String baseUrl;
+    private final int quizId;
+    private final boolean socket;
+    private final ConcurrentLinkedQueue<Long> saveNanos = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Long> submitNanos = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger errors = new AtomicInteger();
+
+    private ExamLoadBenchmark(String baseUrl, int quizId, boolean socket) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.quizId = quizId;
+        this.socket = socket;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 5) {
+            System.err.println("Usage: java bench/ExamLoadBenchmark.java <baseUrl> <quizId> <participants> <emailPrefix> <password> [label] [http|socket]");
+            System.exit(1);
+        }
+        boolean socket = args.length > 6 && "socket".equalsIgnoreCase(args[6]);
+        ExamLoadBenchmark benchmark = new ExamLoadBenchmark(args[0], Integer.parseInt(args[1]), socket);
+        int participants = Integer.parseInt(args[2]);
+        String label = args.length > 5 ? args[5] : "run";
+        benchmark.run(participants, args[3], args[4], label);
+    }
+
+    private void run(int participants, String emailPrefix, String password, String label) throws Exception {
+        List<Participant> ready = new ArrayList<>();
+        for (int i = 1; i <= participants; i++) {
+            ready.add(new Participant(emailPrefix + i + "@examora.test", password));
+        }
+
+        // Log in and open the exam first; only saves and submits are measured
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(participants, 200));
+        CountDownLatch prepared = new CountDownLatch(participants);
+        for (Participant participant : ready) {
+            pool.execute(() -> {
+                try {
+                    participant.prepare();
+                } catch (Exception e) {
+                    participant.failed = true;
+                    errors.incrementAndGet();
+                    System.err.println(participant.email + ": " + e.getMessage());
+                } finally {
+                    prepared.countDown();
+                }
+            });
+        }
+        prepared.await();
+
+        CountDownLatch finished = new CountDownLatch(participants);
+        long start = System.nanoTime();
+        for (Participant participant : ready) {
+            pool.execute(() -> {
+                try {
+                    if (!participant.failed) {
+                        participant.answerAndSubmit();
+                    }
+                } catch (Exception e) {
+                    errors.incrementAndGet();
+                    System.err.println(participant.email + ": " + e.getMessage());
+                } finally {
+                    finished.countDown();
+                }
+            });
+        }
+        finished.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        System.out.printf("%s: %d participants, %.1f s, %d errors%n", label, participants, seconds, errors.get());
+        report("save", saveNanos, seconds);
+        report("submit", submitNanos, seconds);
+    }
+
+    private static void report(String name, ConcurrentLinkedQueue<Long> samples, double seconds) {
+        List<Long> sorted = new ArrayList<>(samples);
+        Collections.sort(sorted);
+        if (sorted.isEmpty()) {
+            System.out.printf("  %-6s no samples%n", name);
+            return;
+        }
+        System.out.printf("  %-6s %6d req  %8.1f req/s  p50 %7.1f ms  p95 %7.1f ms  p99 %7.1f ms  p99.9 %7.1f ms  max %7.1f ms%n",
+                name, sorted.size(), sorted.size() / seconds,
+                percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                percentile(sorted, 0.999), sorted.get(sorted.size() - 1) / 1e6);
+    }
+
+    private static double percentile(List<Long> sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, index))) / 1e6;
+    }
+
+    private static String form(String... pairs) {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < pairs.length; i += 2) {
+            if (body.length() > 0) {
+                body.append('&');
+            }
+            body.append(pairs[i]).append('=').append(URLEncoder.encode(pairs[i + 1], StandardCharsets.UTF_8));
+        }
+        return body.toString();
+    }
+
+    /**
+     * Socket listener handing each save acknowledgement to the waiting save;
+     * pushed time frames are skipped
+     */
+    private static class Acks implements WebSocket.Listener {
+        private final StringBuilder text = new StringBuilder();
+        private volatile CompletableFuture<String> pending;
+
+        CompletableFuture<String> expect() {
+            pending = new CompletableFuture<>();
+            return pending;
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            text.append(data);
+            if (last) {
+                String frame = text.toString();
+                text.setLength(0);
+                CompletableFuture<String> waiting = pending;
+                if (waiting != null && (frame.contains("\"saved\"") || frame.contains("\"error\""))) {
+                    waiting.complete(frame);
+                }
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            CompletableFuture<String> waiting = pending;
+            if (waiting != null) {
+                waiting.completeExceptionally(new IllegalStateException("socket closed: " + statusCode + " " + reason));
+            }
+            return null;
+        }
+    }
+
+    /**
+     * One participant with its own cookie jar (session)
+     */
+    private class Participant {
+        final String email;
+        final String password;
+        final HttpClient client;
+        int submissionId;
+        final Set<Integer> questionIds = new LinkedHashSet<>();
+        volatile boolean failed;
+
+        Participant(String email, String password) {
+            this.email = email;
+            this.password = password;
+            this.client = HttpClient.newBuilder()
+                    .cookieHandler(new CookieManager())
+                    .followRedirects(HttpClient.Redirect.NORMAL)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+        }
+
+        void prepare() throws Exception {
+            post("/LoginServlet", form("email", email, "password", password));
+            // Retries while the admission queue page is shown
+            String page;
+            int attempts = 0;
+            do {
+                HttpResponse<String> response = get("/ExamServlet?action=start&quizId=" + quizId);
+                page = response.body();
+                if (response.statusCode() == 503) {
+                    Thread.sleep(1000);
+                }
+            } while (!SUBMISSION_ID.matcher(page).find() && ++attempts < 60);
+
+            Matcher submission = SUBMISSION_ID.matcher(page);
+            if (!submission.find()) {
+                throw new IllegalStateException("exam page not reached (login failed or quiz already taken?)");
+            }
+            submissionId = Integer.parseInt(submission.group(1));
+            Matcher question = QUESTION_ID.matcher(page);
+            if (!question.find()) {
+                // exam.payload.enabled: the page loads its questions from the shared payload
+                question = PAYLOAD_QUESTION_ID.matcher(
+                        get("/ExamServlet?action=payload&submissionId=" + submissionId).body());
+            }
+            question.reset();
+            while (question.find()) {
+                questionIds.add(Integer.parseInt(question.group(1)));
+            }
+        }
+
+        void answerAndSubmit() throws Exception {
+            if (socket) {
+                answerOverSocket();
+            } else {
+                answerOverHttp();
+            }
+
+            long start = System.nanoTime();
+            HttpResponse<String> response = post("/ExamServlet?action=submit", form(
+                    "submissionId", String.valueOf(submissionId)));
+            submitNanos.add(System.nanoTime() - start);
+            if (response.statusCode() != 200) {
+                errors.incrementAndGet();
+            }
+        }
+
+        void answerOverHttp() throws Exception {
+            for (Integer questionId : questionIds) {
+                String answer = OPTIONS[ThreadLocalRandom.current().nextInt(OPTIONS.length)];
+                long start = System.nanoTime();
+                HttpResponse<String> response = post("/ExamServlet?action=saveAnswer", form(
+                        "submissionId", String.valueOf(submissionId),
+                        "questionId", String.valueOf(questionId),
+                        "selectedAnswer", answer));
+                saveNanos.add(System.nanoTime() - start);
+                if (response.statusCode() != 200 || !response.body().contains("\"success\": true")) {
+                    errors.incrementAndGet();
+                }
+            }
+        }
+
+        void answerOverSocket() throws Exception {
+            URI base = URI.create(baseUrl);
+            URI uri = URI.create(baseUrl.replaceFirst("^http", "ws") + "/ExamSocket/" + submissionId);
+            Acks acks = new Acks();
+            // The handshake carries the session cookie from the client's cookie jar
+            WebSocket webSocket = client.newWebSocketBuilder()
+                    .header("Origin", base.getScheme() + "://" + base.getRawAuthority())
+                    .buildAsync(uri, acks)
+                    .get(30, TimeUnit.SECONDS);
+
+            long seq = 0;
+            for (Integer questionId : questionIds) {
+                String answer = OPTIONS[ThreadLocalRandom.current().nextInt(OPTIONS.length)];
+                CompletableFuture<String> ack = acks.expect();
+                long start = System.nanoTime();
+                webSocket.sendText("{\"q\": " + questionId + ", \"a\": \"" + answer + "\", \"s\": " + (++seq) + "}", true).join();
+                String reply = ack.get(60, TimeUnit.SECONDS);
+                saveNanos.add(System.nanoTime() - start);
+                if (!reply.contains("\"saved\"")) {
+                    errors.incrementAndGet();
+                }
+            }
+            webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "done").join();
+        }
+
+        HttpResponse<String> get(String path) throws Exception {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(Duration.ofSeconds(60))
+                    .GET()
+                    .build();
+            return client.send(request, HttpResponse.BodyHandlers.ofString());
+        }
+
+        HttpResponse<String> post(String path, String body) throws Exception {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(Duration.ofSeconds(60))
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            return client.send(request, HttpResponse.BodyHandlers.ofString());
+        }
+    }
+}
@@ -0,0 +1,5 @@
+-- Add client sequence numbers to saved answers
+-- Run this SQL to update existing database. Existing answers have no
+-- sequence, so the next save of each question is always accepted.
+
+ALTER TABLE answers ADD COLUMN client_seq BIGINT DEFAULT NULL COMMENT 'Sequence number of the save that wrote this answer' AFTER is_correct;
@@ -0,0 +1,8 @@
+-- Add the answer_slot column to questions
+-- Only needed for packed answer storage (answer.storage=packed), on databases
+-- created before schema.sql had the column; rows mode never uses it. Run it
+-- before sql/add_packed_answers.sql, whose step 1 assigns the slots.
+
+ALTER TABLE questions ADD COLUMN answer_slot INT DEFAULT NULL COMMENT 'Stable 1-based position in packed answers, reused only after it is cleared' AFTER question_order;
+
+ALTER TABLE questions ADD UNIQUE KEY unique_quiz_slot (quiz_id, answer_slot);
@@ -0,0 +1,50 @@
+-- Add packed answer storage (answer.storage=packed)
+-- Run this SQL to update existing database (MySQL 8) while no exam is in
+-- progress, then set answer.storage=packed and restart. Answers saved in rows
+-- mode after step 3 are not copied.
+
+-- 1. Answer slots. Databases without questions.answer_slot run
+--    sql/add_answer_slot.sql first. Questions added while answer.storage=rows
+--    have no slot; they get the next ones of their quiz here.
+UPDATE questions q
+JOIN (SELECT id,
+             COALESCE(MAX(answer_slot) OVER (PARTITION BY quiz_id), 0) +
+             ROW_NUMBER() OVER (PARTITION BY quiz_id, answer_slot IS NULL ORDER BY question_order, id) AS slot
+      FROM questions) n ON n.id = q.id
+SET q.answer_slot = n.slot
+WHERE q.answer_slot IS NULL;
+
+-- 2. One row per submission
+CREATE TABLE submission_answers (
+    submission_id INT PRIMARY KEY,
+    answers VARBINARY(1024) NOT NULL DEFAULT '' COMMENT 'One byte per answer slot: A-D, or - when unanswered',
+    correct_bits VARBINARY(128) DEFAULT NULL COMMENT 'One bit per answer slot, set when correct',
+    client_seqs BLOB DEFAULT NULL COMMENT 'Client sequence per answer slot: format byte, eight-byte base, four-byte offset + 1 per slot (0 when none)',
+    answered_count SMALLINT NOT NULL DEFAULT 0,
+    correct_count SMALLINT NOT NULL DEFAULT 0,
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    FOREIGN KEY (submission_id) REFERENCES submissions(id) ON DELETE CASCADE
+) ENGINE=InnoDB;
+
+-- 3. Pack existing answers. Slots may have gaps (deleted questions), so the
+--    string is built over every slot number up to the quiz's highest one.
+--    correct_bits stays NULL (answers are checked against the key until the
+--    row is next written); counts keep the graded is_correct values.
+SET SESSION group_concat_max_len = 1024;
+SET SESSION cte_max_recursion_depth = 1024;
+
+INSERT INTO submission_answers (submission_id, answers, answered_count, correct_count)
+WITH RECURSIVE slots (n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM slots WHERE n < 1024)
+SELECT s.id,
+       GROUP_CONCAT(COALESCE(a.selected_answer, '-') ORDER BY slots.n SEPARATOR ''),
+       COUNT(a.id),
+       COALESCE(SUM(a.is_correct), 0)
+FROM submissions s
+JOIN (SELECT quiz_id, MAX(answer_slot) AS last_slot FROM questions GROUP BY quiz_id) m ON m.quiz_id = s.quiz_id
+JOIN slots ON slots.n <= m.last_slot
+LEFT JOIN questions q ON q.quiz_id = s.quiz_id AND q.answer_slot = slots.n
+LEFT JOIN answers a ON a.submission_id = s.id AND a.question_id = q.id
+GROUP BY s.id;
+
+-- The answers table is no longer written in packed mode; keep it until the
+-- switch is verified, then it can be dropped.
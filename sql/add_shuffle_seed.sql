@@ -0,0 +1,4 @@
+-- Add shuffle_seed column to submissions table
+-- Run this SQL to update existing database
+
+ALTER TABLE submissions ADD COLUMN shuffle_seed BIGINT DEFAULT NULL COMMENT 'Seed for this attempt''s question/option order' AFTER status;
@@ -0,0 +1,10 @@
+-- Add submission_results table (frozen result documents)
+-- Run this SQL to update existing database. Documents of already finished
+-- submissions are built on their first view.
+
+CREATE TABLE submission_results (
+    submission_id INT PRIMARY KEY,
+    document JSON NOT NULL,
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (submission_id) REFERENCES submissions(id) ON DELETE CASCADE
+) ENGINE=InnoDB;
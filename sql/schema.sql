@@ -48,8 +48,10 @@ CREATE TABLE questions (
     option_d TEXT NOT NULL,
     correct_answer CHAR(1) NOT NULL COMMENT 'A, B, C, or D',
     question_order INT DEFAULT 0,
+    answer_slot INT DEFAULT NULL COMMENT 'Stable 1-based position in packed answers, reused only after it is cleared',
     created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (quiz_id) REFERENCES quiz(id) ON DELETE CASCADE,
+    UNIQUE KEY unique_quiz_slot (quiz_id, answer_slot),
     INDEX idx_quiz_id (quiz_id)
 ) ENGINE=InnoDB;
 
@@ -65,6 +67,7 @@ CREATE TABLE submissions (
     submitted_at DATETIME DEFAULT NULL,
     time_spent INT DEFAULT 0 COMMENT 'Time spent in seconds',
     status ENUM('in_progress', 'completed', 'timeout') DEFAULT 'in_progress',
+    shuffle_seed BIGINT DEFAULT NULL COMMENT 'Seed for this attempt''s question/option order',
     FOREIGN KEY (quiz_id) REFERENCES quiz(id) ON DELETE CASCADE,
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
     UNIQUE KEY unique_user_quiz (user_id, quiz_id),
@@ -80,6 +83,7 @@ CREATE TABLE answers (
     question_id INT NOT NULL,
     selected_answer CHAR(1) COMMENT 'A, B, C, or D',
     is_correct BOOLEAN DEFAULT FALSE,
+    client_seq BIGINT DEFAULT NULL COMMENT 'Sequence number of the save that wrote this answer',
     answered_at DATETIME DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (submission_id) REFERENCES submissions(id) ON DELETE CASCADE,
     FOREIGN KEY (question_id) REFERENCES questions(id) ON DELETE CASCADE,
@@ -88,6 +92,26 @@ CREATE TABLE answers (
     INDEX idx_question_id (question_id)
 ) ENGINE=InnoDB;
 
+-- Packed Answers Table (answer.storage=packed): one row per submission
+CREATE TABLE submission_answers (
+    submission_id INT PRIMARY KEY,
+    answers VARBINARY(1024) NOT NULL DEFAULT '' COMMENT 'One byte per answer slot: A-D, or - when unanswered',
+    correct_bits VARBINARY(128) DEFAULT NULL COMMENT 'One bit per answer slot, set when correct',
+    client_seqs BLOB DEFAULT NULL COMMENT 'Client sequence per answer slot: format byte, eight-byte base, four-byte offset + 1 per slot (0 when none)',
+    answered_count SMALLINT NOT NULL DEFAULT 0,
+    correct_count SMALLINT NOT NULL DEFAULT 0,
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    FOREIGN KEY (submission_id) REFERENCES submissions(id) ON DELETE CASCADE
+) ENGINE=InnoDB;
+
+-- Result Documents Table: frozen result of a finished submission (rebuilt after regrades)
+CREATE TABLE submission_results (
+    submission_id INT PRIMARY KEY,
+    document JSON NOT NULL,
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (submission_id) REFERENCES submissions(id) ON DELETE CASCADE
+) ENGINE=InnoDB;
+
 -- Sessions Table (for tracking active quiz sessions)
 CREATE TABLE quiz_sessions (
     id INT AUTO_INCREMENT PRIMARY KEY,
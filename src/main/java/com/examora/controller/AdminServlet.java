@@ -1,9 +1,15 @@
 package com.examora.controller;
 
+import com.examora.model.RegradeJob;
 import com.examora.model.User;
+import com.examora.service.DashboardCounters;
 import com.examora.service.QuizService;
+import com.examora.service.RegradeService;
 import com.examora.service.SubmissionService;
 import com.examora.service.UserService;
+import com.examora.util.AppConfig;
+import com.examora.util.MetricsRegistry;
+import com.google.gson.Gson;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.MultipartConfig;
@@ -18,6 +24,7 @@ import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -54,6 +61,10 @@ public class AdminServlet extends HttpServlet {
                 showUserDetail(request, response);
             } else if ("downloadTemplate".equals(action)) {
                 downloadCsvTemplate(request, response);
+            } else if ("metrics".equals(action)) {
+                showMetrics(request, response);
+            } else if ("regradeStatus".equals(action)) {
+                showRegradeStatus(request, response);
             } else {
                 showDashboard(request, response);
             }
@@ -81,6 +92,10 @@ public class AdminServlet extends HttpServlet {
                 createTag(request, response);
             } else if ("importUsers".equals(action)) {
                 importUsersFromCsv(request, response);
+            } else if ("finalizeQuiz".equals(action)) {
+                finalizeQuiz(request, response);
+            } else if ("regrade".equals(action)) {
+                startRegrade(request, response);
             } else {
                 response.sendRedirect("../AdminServlet?action=dashboard");
             }
@@ -226,15 +241,18 @@ public class AdminServlet extends HttpServlet {
     private void showDashboard(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
         try {
-            int totalUsers = userService.countByRole("peserta");
-            int totalAdmins = userService.countByRole("admin");
-            List<?> quizzes = quizService.getAllQuizzes();
-            List<?> submissions = submissionService.getAllSubmissions();
-
-            request.setAttribute("totalUsers", totalUsers);
-            request.setAttribute("totalAdmins", totalAdmins);
-            request.setAttribute("totalQuizzes", quizzes.size());
-            request.setAttribute("totalSubmissions", submissions.size());
+            // Tiles come from maintained counters; lists are bounded to the most recent rows
+            DashboardCounters counters = DashboardCounters.getInstance();
+            int recentLimit = AppConfig.getInt("dashboard.recentLimit", 10);
+            List<?> quizzes = quizService.getRecentQuizzes(recentLimit);
+            List<?> submissions = submissionService.getRecentSubmissions(recentLimit);
+
+            request.setAttribute("totalUsers", (int) counters.countUsers("peserta"));
+            request.setAttribute("totalAdmins", (int) counters.countUsers("admin"));
+            request.setAttribute("totalQuizzes", (int) counters.countQuizzes());
+            request.setAttribute("activeQuizzes", (int) counters.countActiveQuizzes());
+            request.setAttribute("totalSubmissions", (int) counters.countSubmissions());
+            request.setAttribute("inProgressSubmissions", (int) counters.countSubmissions("in_progress"));
             request.setAttribute("quizzes", quizzes);
             request.setAttribute("submissions", submissions);
 
@@ -301,6 +319,21 @@ public class AdminServlet extends HttpServlet {
         }
     }
 
+    private void finalizeQuiz(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        try {
+            Integer quizId = Integer.parseInt(request.getParameter("quizId"));
+            Map<String, Object> result = submissionService.finalizeQuiz(quizId);
+            request.setAttribute("success", result.get("closed") + " submission ditutup dan dinilai dalam " +
+                    result.get("durationMillis") + " ms");
+        } catch (NumberFormatException e) {
+            request.setAttribute("error", "Quiz ID tidak valid");
+        } catch (SubmissionService.ServiceException e) {
+            request.setAttribute("error", e.getMessage());
+        }
+        showStatistics(request, response);
+    }
+
     private void showUserDetail(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
         try {
@@ -362,6 +395,90 @@ public class AdminServlet extends HttpServlet {
         }
     }
 
+    /**
+     * Export runtime counters (connection pool etc.) as JSON
+     */
+    private void showMetrics(HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-store");
+        response.getWriter().write(new Gson().toJson(MetricsRegistry.snapshot()));
+    }
+
+    /**
+     * Queue a regrade (scope question, quiz or global; dryRun=true only reports) and return the job as JSON
+     */
+    private void startRegrade(HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        String scope = request.getParameter("scope");
+        boolean dryRun = "true".equals(request.getParameter("dryRun"));
+        RegradeService regrades = RegradeService.getInstance();
+        RegradeJob job;
+
+        try {
+            if ("global".equals(scope)) {
+                job = regrades.regradeAll(dryRun);
+            } else if ("quiz".equals(scope)) {
+                job = regrades.regradeQuiz(Integer.parseInt(request.getParameter("id")), dryRun);
+            } else if ("question".equals(scope)) {
+                job = regrades.regradeQuestion(Integer.parseInt(request.getParameter("id")), dryRun);
+            } else {
+                writeJson(response, HttpServletResponse.SC_BAD_REQUEST, error("Scope harus question, quiz, atau global"));
+                return;
+            }
+        } catch (NumberFormatException e) {
+            writeJson(response, HttpServletResponse.SC_BAD_REQUEST, error("ID tidak valid"));
+            return;
+        }
+        writeJson(response, HttpServletResponse.SC_ACCEPTED, job.toMap());
+    }
+
+    /**
+     * Progress and change report of one regrade job, or the recent jobs without jobId
+     */
+    private void showRegradeStatus(HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        RegradeService regrades = RegradeService.getInstance();
+        String jobIdStr = request.getParameter("jobId");
+
+        if (jobIdStr == null || jobIdStr.isEmpty()) {
+            List<Map<String, Object>> jobs = new ArrayList<>();
+            for (RegradeJob job : regrades.getJobs()) {
+                jobs.add(job.toMap());
+            }
+            writeJson(response, HttpServletResponse.SC_OK, jobs);
+            return;
+        }
+
+        RegradeJob job;
+        try {
+            job = regrades.getJob(Long.parseLong(jobIdStr));
+        } catch (NumberFormatException e) {
+            job = null;
+        }
+        if (job == null) {
+            writeJson(response, HttpServletResponse.SC_NOT_FOUND, error("Job tidak ditemukan"));
+            return;
+        }
+        writeJson(response, HttpServletResponse.SC_OK, job.toMap());
+    }
+
+    private static Map<String, Object> error(String message) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("success", false);
+        body.put("message", message);
+        return body;
+    }
+
+    private void writeJson(HttpServletResponse response, int status, Object body) throws IOException {
+        response.setStatus(status);
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-store");
+        response.getWriter().write(new Gson().toJson(body));
+    }
+
     /**
      * Download CSV template for user import
      */
@@ -1,35 +1,65 @@
 package com.examora.controller;
 
 import com.examora.model.Answer;
-import com.examora.model.Question;
 import com.examora.model.Quiz;
 import com.examora.model.Submission;
+import com.examora.model.SubmissionResult;
 import com.examora.model.User;
+import com.examora.service.ExamAdmissionController;
+import com.examora.service.ExamChannelHub;
+import com.examora.service.ExamExecutor;
+import com.examora.service.ExamPayloadCache;
 import com.examora.service.QuizService;
 import com.examora.service.SubmissionService;
+import com.examora.util.AppConfig;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Exam Servlet - Handles exam taking for participants
  */
-@WebServlet("/ExamServlet")
+@WebServlet(urlPatterns = "/ExamServlet", asyncSupported = true)
 public class ExamServlet extends HttpServlet {
+    private static final Gson GSON = new Gson();
+    private static final int MAX_BODY_CHARS = 64 * 1024;
+
     private QuizService quizService;
     private SubmissionService submissionService;
+    private ExamAdmissionController admission;
+    private ExamExecutor executor;
+    private ExamChannelHub channels;
+    private ExamPayloadCache payloads;
+    private boolean payloadPage;
 
     @Override
     public void init() throws ServletException {
         quizService = new QuizService();
         submissionService = new SubmissionService();
+        admission = ExamAdmissionController.getInstance();
+        executor = ExamExecutor.getInstance();
+        channels = ExamChannelHub.getInstance();
+        payloads = ExamPayloadCache.getInstance();
+        payloadPage = AppConfig.getBoolean("exam.payload.enabled", true);
     }
 
     @Override
@@ -46,10 +76,11 @@ public class ExamServlet extends HttpServlet {
                     listAvailableQuizzes(request, response);
                     break;
                 case "start":
-                    startExam(request, response);
-                    break;
                 case "take":
-                    showExam(request, response);
+                    enterExam(action, request, response);
+                    break;
+                case "payload":
+                    sendPayload(request, response);
                     break;
                 case "result":
                     showResult(request, response);
@@ -80,9 +111,15 @@ public class ExamServlet extends HttpServlet {
                 case "saveAnswer":
                     saveAnswer(request, response);
                     break;
+                case "saveAnswers":
+                    saveAnswers(request, response);
+                    break;
                 case "submit":
                     submitExam(request, response);
                     break;
+                case "heartbeat":
+                    heartbeat(request, response);
+                    break;
                 default:
                     listAvailableQuizzes(request, response);
             }
@@ -98,13 +135,7 @@ public class ExamServlet extends HttpServlet {
         // Get quizzes filtered by user's tag
         List<Quiz> quizzes = quizService.getActiveQuizzesByTag(user.getTag());
 
-        Map<Integer, Submission> userSubmissions = new HashMap<>();
-        for (Quiz quiz : quizzes) {
-            Submission submission = submissionService.getUserSubmission(user.getId(), quiz.getId());
-            if (submission != null) {
-                userSubmissions.put(quiz.getId(), submission);
-            }
-        }
+        Map<Integer, Submission> userSubmissions = submissionService.getUserSubmissions(user.getId(), quizzes);
 
         request.setAttribute("quizzes", quizzes);
         request.setAttribute("userSubmissions", userSubmissions);
@@ -117,13 +148,7 @@ public class ExamServlet extends HttpServlet {
         // Get quizzes filtered by user's tag
         List<Quiz> quizzes = quizService.getActiveQuizzesByTag(user.getTag());
 
-        Map<Integer, Submission> userSubmissions = new HashMap<>();
-        for (Quiz quiz : quizzes) {
-            Submission submission = submissionService.getUserSubmission(user.getId(), quiz.getId());
-            if (submission != null) {
-                userSubmissions.put(quiz.getId(), submission);
-            }
-        }
+        Map<Integer, Submission> userSubmissions = submissionService.getUserSubmissions(user.getId(), quizzes);
 
         // Get recent submissions for the user
         List<Submission> recentSubmissions = submissionService.getUserSubmissions(user.getId());
@@ -134,6 +159,62 @@ public class ExamServlet extends HttpServlet {
         request.getRequestDispatcher("/user/dashboard.jsp").forward(request, response);
     }
 
+    /**
+     * Start or open an exam through the admission controller; when the quiz
+     * or this node is at its limit, show the queue page instead
+     */
+    private void enterExam(String action, HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException, QuizService.ServiceException, SubmissionService.ServiceException {
+        Integer quizId;
+        try {
+            quizId = Integer.parseInt(request.getParameter("quizId"));
+        } catch (NumberFormatException e) {
+            response.sendRedirect(request.getContextPath() + "/ExamServlet?action=list");
+            return;
+        }
+
+        HttpSession session = request.getSession();
+        String ticketKey = "examTicket_" + quizId;
+        String passKey = "examPass_" + quizId;
+        boolean start = "start".equals(action);
+        // Opening an exam right after being admitted to start it skips the queue
+        boolean priority = !start && session.getAttribute(passKey) != null;
+
+        ExamAdmissionController.Admission entry =
+                admission.enter(quizId, (Long) session.getAttribute(ticketKey), priority);
+        if (!entry.isAdmitted()) {
+            session.setAttribute(ticketKey, entry.getTicket());
+            showQueue(request, response, entry, action, quizId);
+            return;
+        }
+
+        session.removeAttribute(ticketKey);
+        session.removeAttribute(passKey);
+        try {
+            if (start) {
+                startExam(request, response);
+                session.setAttribute(passKey, Boolean.TRUE);
+            } else {
+                showExam(request, response);
+            }
+        } finally {
+            admission.leave(quizId);
+        }
+    }
+
+    private void showQueue(HttpServletRequest request, HttpServletResponse response,
+                           ExamAdmissionController.Admission entry, String action, Integer quizId)
+            throws ServletException, IOException {
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader("Retry-After", String.valueOf(entry.getRetryAfterSeconds()));
+        response.setHeader("Cache-Control", "no-store");
+        request.setAttribute("queuePosition", entry.getPosition());
+        request.setAttribute("retryAfter", entry.getRetryAfterSeconds());
+        // Built from the validated action and quiz id only; it is written into the page unescaped
+        request.setAttribute("retryUrl", request.getContextPath() + "/ExamServlet?action=" + action + "&quizId=" + quizId);
+        request.getRequestDispatcher("/user/exam-queue.jsp").forward(request, response);
+    }
+
     private void startExam(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException, QuizService.ServiceException, SubmissionService.ServiceException {
         String quizIdStr = request.getParameter("quizId");
@@ -146,14 +227,12 @@ public class ExamServlet extends HttpServlet {
         Integer quizId = Integer.parseInt(quizIdStr);
 
         Quiz quiz = quizService.getQuizById(quizId);
-        Submission submission = submissionService.startQuiz(quizId, user.getId());
+        Submission submission = submissionService.startQuiz(quiz, user.getId());
 
         request.getSession().setAttribute("currentSubmissionId", submission.getId());
         request.getSession().setAttribute("currentQuizId", quizId);
         request.getSession().setAttribute("examStartTime", System.currentTimeMillis());
 
-        request.setAttribute("quiz", quiz);
-        request.setAttribute("submission", submission);
         response.sendRedirect(request.getContextPath() + "/ExamServlet?action=take&quizId=" + quizId);
     }
 
@@ -177,83 +256,282 @@ public class ExamServlet extends HttpServlet {
             return;
         }
 
-        List<Question> questions = submissionService.getQuestionsForExam(quizId);
-        Submission submission = submissionService.getUserSubmission(user.getId(), quizId);
+        Submission submission = submissionService.openExam(quiz, user.getId());
 
-        if (submission == null || submission.isCompleted()) {
+        if (submission == null) {
             response.sendRedirect(request.getContextPath() + "/ExamServlet?action=list");
             return;
         }
 
-        List<Answer> savedAnswers = submissionService.getResult(submission.getId()).getAnswers();
-        Map<Integer, String> answerMap = new HashMap<>();
-        for (Answer answer : savedAnswers) {
-            answerMap.put(answer.getQuestionId(), answer.getSelectedAnswer());
+        if (payloadPage) {
+            // The page renders the shared payload in this order
+            Map<String, Object> order = submissionService.getExamOrder(submission);
+            request.setAttribute("examOrder", GSON.toJson(order));
+            request.setAttribute("questionCount", ((int[]) order.get("order")).length);
+        } else {
+            request.setAttribute("questions", submissionService.getQuestionsForExam(submission));
         }
 
         request.setAttribute("quiz", quiz);
-        request.setAttribute("questions", questions);
         request.setAttribute("submission", submission);
-        request.setAttribute("savedAnswers", answerMap);
+        request.setAttribute("savedAnswers", submissionService.getSavedAnswers(submission.getId()));
+        request.setAttribute("examSocket", channels.isEnabled());
         request.getRequestDispatcher("/user/take-exam.jsp").forward(request, response);
     }
 
+    /**
+     * Serialized questions of the submission's quiz (see ExamPayloadCache)
+     * The body is the same cached byte array for every participant, gzipped
+     * when the client accepts it; a reload that still has the current version
+     * is answered with 304 from its If-None-Match.
+     */
+    private void sendPayload(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        User user = (User) request.getSession().getAttribute("user");
+        ExamPayloadCache.Payload payload;
+        try {
+            payload = submissionService.getExamPayload(user.getId(),
+                    Integer.parseInt(request.getParameter("submissionId")));
+        } catch (NumberFormatException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            json(false, "Invalid ID format").send(response);
+            return;
+        } catch (SubmissionService.ServiceException e) {
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            json(false, e.getMessage()).send(response);
+            return;
+        }
+
+        boolean gzip = acceptsGzip(request.getHeader("Accept-Encoding"));
+        String etag = payload.getEtag(gzip);
+        // Questions change while a quiz runs only through the admin pages, so
+        // the browser keeps the body but asks every time
+        response.setHeader("Cache-Control", "private, no-cache");
+        response.setHeader("Vary", "Accept-Encoding");
+        response.setHeader("ETag", etag);
+        if (matches(request.getHeader("If-None-Match"), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            payloads.recordServed(0);
+            return;
+        }
+
+        byte[] body = gzip ? payload.getGzip() : payload.getJson();
+        response.setContentType("application/json;charset=UTF-8");
+        if (gzip) {
+            response.setHeader("Content-Encoding", "gzip");
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+        payloads.recordServed(body.length);
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    // If-None-Match may list several tags, and proxies may weaken them (W/)
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String candidate = tag.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(etag) || candidate.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void saveAnswer(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException, SubmissionService.ServiceException {
+        long start = System.nanoTime();
         User user = (User) request.getSession().getAttribute("user");
         String submissionIdStr = request.getParameter("submissionId");
         String questionIdStr = request.getParameter("questionId");
         String selectedAnswer = request.getParameter("selectedAnswer");
+        String clientSeqStr = request.getParameter("clientSeq");
 
         // Validate parameters
         if (submissionIdStr == null || submissionIdStr.isEmpty()) {
-            response.setContentType("application/json");
-            response.getWriter().write("{\"success\": false, \"message\": \"Submission ID required\"}");
+            json(false, "Submission ID required").send(response);
             return;
         }
         if (questionIdStr == null || questionIdStr.isEmpty()) {
-            response.setContentType("application/json");
-            response.getWriter().write("{\"success\": false, \"message\": \"Question ID required\"}");
+            json(false, "Question ID required").send(response);
             return;
         }
         if (selectedAnswer == null || selectedAnswer.isEmpty()) {
-            response.setContentType("application/json");
-            response.getWriter().write("{\"success\": false, \"message\": \"Answer required\"}");
+            json(false, "Answer required").send(response);
             return;
         }
 
         // Validate answer format
         if (!selectedAnswer.matches("[ABCD]")) {
-            response.setContentType("application/json");
-            response.getWriter().write("{\"success\": false, \"message\": \"Invalid answer format\"}");
+            json(false, "Invalid answer format").send(response);
             return;
         }
 
+        Integer submissionId;
+        Integer questionId;
+        Long clientSeq;
         try {
-            Integer submissionId = Integer.parseInt(submissionIdStr);
-            Integer questionId = Integer.parseInt(questionIdStr);
-
-            // Verify submission belongs to current user
-            Submission submission = submissionService.getUserSubmission(user.getId(),
-                submissionService.getResult(submissionId).getQuizId());
-            if (submission == null || !submission.getId().equals(submissionId)) {
-                response.setContentType("application/json");
-                response.getWriter().write("{\"success\": false, \"message\": \"Unauthorized\"}");
-                return;
+            submissionId = Integer.parseInt(submissionIdStr);
+            questionId = Integer.parseInt(questionIdStr);
+            clientSeq = clientSeqStr != null && !clientSeqStr.isEmpty() ? Long.valueOf(clientSeqStr) : null;
+        } catch (NumberFormatException e) {
+            json(false, "Invalid ID format").send(response);
+            return;
+        }
+
+        Integer userId = user.getId();
+        long requestBytes = requestBytes(request, Math.max(0, request.getContentLengthLong()));
+        respondAsync(request, response, () -> {
+            try {
+                // Ownership and status are verified by the service against the active exam
+                submissionService.saveAnswer(userId, submissionId, questionId, selectedAnswer, clientSeq);
+                return json(true, "Answer saved");
+            } catch (SubmissionService.ServiceException e) {
+                return json(false, e.getMessage());
+            } finally {
+                channels.recordHttpSave(requestBytes, System.nanoTime() - start);
             }
+        });
+    }
 
-            submissionService.saveAnswer(submissionId, questionId, selectedAnswer);
+    /**
+     * Save a batch of answers sent as JSON:
+     * {"submissionId": 12, "answers": [{"q": 5, "a": "B", "s": 17}, ...]}
+     * (q = question id, a = answer, s = client sequence). Replies with the
+     * usual success/message plus one status per item under "results".
+     */
+    private void saveAnswers(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException, SubmissionService.ServiceException {
+        long start = System.nanoTime();
+        User user = (User) request.getSession().getAttribute("user");
 
-            response.setContentType("application/json");
-            response.getWriter().write("{\"success\": true, \"message\": \"Answer saved\"}");
+        AnswerBatch batch;
+        long requestBytes;
+        try {
+            String body = readBody(request);
+            requestBytes = requestBytes(request, body.length());
+            batch = GSON.fromJson(body, AnswerBatch.class);
+        } catch (JsonParseException | IllegalStateException e) {
+            json(false, "Invalid request body").send(response);
+            return;
+        }
+        if (batch == null || batch.submissionId == null || batch.answers == null) {
+            json(false, "Submission ID and answers required").send(response);
+            return;
+        }
+
+        List<Answer> items = new ArrayList<>(batch.answers.size());
+        for (AnswerBatch.Item entry : batch.answers) {
+            Answer answer = new Answer(batch.submissionId, entry != null ? entry.q : null, entry != null ? entry.a : null);
+            answer.setClientSeq(entry != null ? entry.s : null);
+            items.add(answer);
+        }
+
+        Integer userId = user.getId();
+        Integer submissionId = batch.submissionId;
+        respondAsync(request, response, () -> {
+            try {
+                List<Map<String, Object>> results = submissionService.saveAnswers(userId, submissionId, items);
+                Map<String, Object> body = new LinkedHashMap<>();
+                body.put("success", true);
+                body.put("message", "Answers processed");
+                body.put("results", results);
+                return reply -> {
+                    reply.setContentType("application/json");
+                    reply.getWriter().write(GSON.toJson(body));
+                };
+            } catch (SubmissionService.ServiceException e) {
+                return json(false, e.getMessage());
+            } finally {
+                channels.recordHttpSave(requestBytes, System.nanoTime() - start);
+            }
+        });
+    }
+
+    /**
+     * Approximate size of a request on the wire (request line, headers, body),
+     * for comparing HTTP saves with WebSocket frames
+     */
+    private static long requestBytes(HttpServletRequest request, long bodyBytes) {
+        long bytes = request.getMethod().length() + request.getRequestURI().length() + 12;
+        if (request.getQueryString() != null) {
+            bytes += request.getQueryString().length() + 1;
+        }
+        Enumeration<String> names = request.getHeaderNames();
+        while (names.hasMoreElements()) {
+            String name = names.nextElement();
+            Enumeration<String> values = request.getHeaders(name);
+            while (values.hasMoreElements()) {
+                bytes += name.length() + values.nextElement().length() + 4;
+            }
+        }
+        return bytes + 2 + bodyBytes;
+    }
+
+    /**
+     * Body of a saveAnswers request
+     */
+    private static class AnswerBatch {
+        Integer submissionId;
+        List<Item> answers;
+
+        static class Item {
+            Integer q;
+            String a;
+            Long s;
+        }
+    }
+
+    // Request bodies are small JSON documents; anything larger is rejected
+    private static String readBody(HttpServletRequest request) throws IOException {
+        StringBuilder body = new StringBuilder();
+        char[] buffer = new char[4096];
+        try (BufferedReader reader = request.getReader()) {
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                body.append(buffer, 0, read);
+                if (body.length() > MAX_BODY_CHARS) {
+                    throw new IllegalStateException("Request body too large");
+                }
+            }
+        }
+        return body.toString();
+    }
 
+    /**
+     * Exam page heartbeat (sent while no exam socket is open); recorded in
+     * memory only, so it is answered inline
+     */
+    private void heartbeat(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        User user = (User) request.getSession().getAttribute("user");
+        Integer submissionId;
+        try {
+            submissionId = Integer.parseInt(request.getParameter("submissionId"));
         } catch (NumberFormatException e) {
-            response.setContentType("application/json");
-            response.getWriter().write("{\"success\": false, \"message\": \"Invalid ID format\"}");
+            json(false, "Invalid ID format").send(response);
+            return;
+        }
+        try {
+            submissionService.heartbeat(user.getId(), submissionId);
+            json(true, "OK").send(response);
         } catch (SubmissionService.ServiceException e) {
-            response.setContentType("application/json");
-            response.getWriter().write("{\"success\": false, \"message\": \"" +
-                e.getMessage().replace("\"", "\\\"") + "\"}");
+            json(false, e.getMessage()).send(response);
         }
     }
 
@@ -261,45 +539,137 @@ public class ExamServlet extends HttpServlet {
             throws ServletException, IOException, SubmissionService.ServiceException {
         User user = (User) request.getSession().getAttribute("user");
         String submissionIdStr = request.getParameter("submissionId");
-        String timeSpentStr = request.getParameter("timeSpent");
+        String listUrl = request.getContextPath() + "/ExamServlet?action=list";
 
         if (submissionIdStr == null || submissionIdStr.isEmpty()) {
-            response.sendRedirect(request.getContextPath() + "/ExamServlet?action=list");
+            response.sendRedirect(listUrl);
             return;
         }
 
+        Integer submissionId;
         try {
-            Integer submissionId = Integer.parseInt(submissionIdStr);
-            Integer timeSpent = 0;
+            submissionId = Integer.parseInt(submissionIdStr);
+        } catch (NumberFormatException e) {
+            response.sendRedirect(listUrl);
+            return;
+        }
 
-            if (timeSpentStr != null && !timeSpentStr.isEmpty()) {
-                timeSpent = Integer.parseInt(timeSpentStr);
-                if (timeSpent < 0) timeSpent = 0;
+        Integer userId = user.getId();
+        HttpSession session = request.getSession();
+        String resultUrl = request.getContextPath() + "/ExamServlet?action=result&submissionId=" + submissionId;
+        respondAsync(request, response, () -> {
+            // Ownership and status are checked by the submit itself; an
+            // already finished submission just goes to its result. Time spent
+            // is measured on the server.
+            try {
+                submissionService.submitQuiz(submissionId, userId);
+            } catch (SubmissionService.AccessException e) {
+                // Missing or someone else's submission; other failures are answered as JSON
+                return redirect(listUrl);
             }
 
-            // Get submission and verify ownership
-            Submission existingSubmission = submissionService.getResult(submissionId);
-            if (existingSubmission == null) {
-                response.sendRedirect(request.getContextPath() + "/ExamServlet?action=list");
-                return;
+            try {
+                session.removeAttribute("currentSubmissionId");
+                session.removeAttribute("currentQuizId");
+                session.removeAttribute("examStartTime");
+            } catch (IllegalStateException e) {
+                // Session invalidated meanwhile (logout)
             }
+            return redirect(resultUrl);
+        });
+    }
 
-            // Verify submission belongs to current user
-            if (!existingSubmission.getUserId().equals(user.getId())) {
-                response.sendRedirect(request.getContextPath() + "/ExamServlet?action=list");
-                return;
+    /**
+     * Response of an exam request, written once its work is done
+     */
+    private interface ExamReply {
+        void send(HttpServletResponse response) throws IOException;
+    }
+
+    /**
+     * Database work of an exam request; must not touch the request, which
+     * may already be recycled when the work runs
+     */
+    private interface ExamWork {
+        ExamReply run() throws Exception;
+    }
+
+    private static ExamReply json(boolean success, String message) {
+        return response -> {
+            response.setContentType("application/json");
+            response.getWriter().write("{\"success\": " + success + ", \"message\": \"" +
+                    String.valueOf(message).replace("\"", "\\\"") + "\"}");
+        };
+    }
+
+    private static ExamReply redirect(String location) {
+        return response -> response.sendRedirect(location);
+    }
+
+    /**
+     * Run exam work on the ExamExecutor and release the container thread.
+     * Timeouts, a full pool and failures are answered with the same JSON
+     * the page gets for any other error. Runs inline when async processing
+     * is disabled.
+     */
+    private void respondAsync(HttpServletRequest request, HttpServletResponse response, ExamWork work)
+            throws IOException {
+        if (!executor.isEnabled() || !request.isAsyncSupported()) {
+            run(work).send(response);
+            return;
+        }
+
+        AsyncContext async = request.startAsync();
+        async.setTimeout(executor.getTimeoutMillis());
+        AtomicBoolean answered = new AtomicBoolean();
+        async.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                executor.recordTimeout();
+                finish(async, answered, json(false, "Waktu pemrosesan habis, silakan coba lagi"));
             }
 
-            Submission submission = submissionService.submitQuiz(submissionId, timeSpent);
+            @Override
+            public void onError(AsyncEvent event) {
+                finish(async, answered, json(false, "Gagal memproses permintaan"));
+            }
 
-            request.getSession().removeAttribute("currentSubmissionId");
-            request.getSession().removeAttribute("currentQuizId");
-            request.getSession().removeAttribute("examStartTime");
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
 
-            response.sendRedirect(request.getContextPath() + "/ExamServlet?action=result&submissionId=" + submissionId);
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
 
-        } catch (NumberFormatException e) {
-            response.sendRedirect(request.getContextPath() + "/ExamServlet?action=list");
+        try {
+            executor.execute(() -> finish(async, answered, run(work)));
+        } catch (RejectedExecutionException e) {
+            finish(async, answered, json(false, "Server sedang sibuk, silakan coba lagi"));
+        }
+    }
+
+    private ExamReply run(ExamWork work) {
+        try {
+            return work.run();
+        } catch (Exception e) {
+            executor.recordFailure();
+            return json(false, e.getMessage());
+        }
+    }
+
+    // Whichever comes first (work, timeout, error) writes the response
+    private static void finish(AsyncContext async, AtomicBoolean answered, ExamReply reply) {
+        if (!answered.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            reply.send((HttpServletResponse) async.getResponse());
+        } catch (IOException | IllegalStateException e) {
+            // Client went away
+        } finally {
+            async.complete();
         }
     }
 
@@ -315,18 +685,33 @@ public class ExamServlet extends HttpServlet {
 
         try {
             Integer submissionId = Integer.parseInt(submissionIdStr);
-            Submission submission = submissionService.getResult(submissionId);
+            // Finished submissions are served from their frozen result document
+            SubmissionResult result = submissionService.getStoredResult(submissionId);
+            Submission owned = null;
+            Integer ownerId;
+
+            if (result != null) {
+                ownerId = result.getUserId();
+            } else {
+                // In progress, or the document is not built yet
+                owned = submissionService.getSubmission(submissionId);
+                if (owned == null) {
+                    response.sendRedirect(request.getContextPath() + "/ExamServlet?action=list");
+                    return;
+                }
+                ownerId = owned.getUserId();
+            }
 
-            if (submission == null) {
+            // Verify submission belongs to current user (unless admin) before any result is built
+            if (!ownerId.equals(user.getId()) && !user.isAdmin()) {
                 response.sendRedirect(request.getContextPath() + "/ExamServlet?action=list");
                 return;
             }
 
-            // Verify submission belongs to current user (unless admin)
-            if (!submission.getUserId().equals(user.getId()) && !user.isAdmin()) {
-                response.sendRedirect(request.getContextPath() + "/ExamServlet?action=list");
-                return;
+            if (result == null && owned.isFinished()) {
+                result = submissionService.getFinishedResult(submissionId);
             }
+            Submission submission = result != null ? result.toSubmission() : submissionService.getResult(submissionId);
 
             request.setAttribute("submission", submission);
             request.getRequestDispatcher("/user/exam-result.jsp").forward(request, response);
@@ -0,0 +1,268 @@
+package com.examora.controller;
+
+import com.examora.filter.AuthFilter;
+import com.examora.model.ActiveExam;
+import com.examora.model.User;
+import com.examora.service.ActiveExamRegistry;
+import com.examora.service.ExamChannelHub;
+import com.examora.service.ExamExecutor;
+import com.examora.service.SubmissionService;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import jakarta.servlet.http.HttpSession;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.EndpointConfig;
+import jakarta.websocket.HandshakeResponse;
+import jakarta.websocket.OnClose;
+import jakarta.websocket.OnError;
+import jakarta.websocket.OnMessage;
+import jakarta.websocket.OnOpen;
+import jakarta.websocket.Session;
+import jakarta.websocket.server.HandshakeRequest;
+import jakarta.websocket.server.PathParam;
+import jakarta.websocket.server.ServerEndpoint;
+import jakarta.websocket.server.ServerEndpointConfig;
+import java.io.IOException;
+import java.net.URI;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exam Socket - WebSocket channel of an in-progress submission
+ * The handshake is authenticated with the HTTP session (the user AuthFilter
+ * checks) and must come from this site. Over the socket the exam page sends
+ * answer saves as small frames, {"q": 5, "a": "B", "s": 17}, each answered
+ * with {"type": "saved", "q": 5, "s": 17} or {"type": "error", ...}; saves go
+ * through the same SubmissionService path as HTTP ones. The server pushes
+ * {"type": "time", "remaining": seconds}, {"type": "forceSubmit"} and
+ * {"type": "closed", "status": ...} (see ExamChannelHub).
+ */
+@ServerEndpoint(value = "/ExamSocket/{submissionId}", configurator = ExamSocket.SessionConfigurator.class)
+public class ExamSocket implements ExamChannelHub.Channel {
+    private static final Gson GSON = new Gson();
+    private static final int MAX_FRAME_CHARS = 1024;
+    // A client that lets this many frames pile up, or does not take one
+    // within the timeout, is disconnected (the page falls back to HTTP)
+    private static final int MAX_QUEUED_FRAMES = 32;
+    private static final long SEND_TIMEOUT_MILLIS = 10000;
+
+    private final ExamChannelHub hub = ExamChannelHub.getInstance();
+    private final ExamExecutor executor = ExamExecutor.getInstance();
+    private final SubmissionService submissionService = new SubmissionService();
+    // Replies and pushes come from different threads and never block on the
+    // client; the async remote allows one send in flight, the rest wait here
+    private final Queue<String> outbox = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean sending = new AtomicBoolean();
+
+    private Session session;
+    private Integer userId;
+    private Integer submissionId;
+
+    /**
+     * Copies the logged-in user from the HTTP session into the socket's properties
+     */
+    public static class SessionConfigurator extends ServerEndpointConfig.Configurator {
+        @Override
+        public void modifyHandshake(ServerEndpointConfig config, HandshakeRequest request, HandshakeResponse response) {
+            User user = AuthFilter.authenticatedUser((HttpSession) request.getHttpSession());
+            if (user != null && isSameOrigin(request)) {
+                config.getUserProperties().put("user", user);
+            }
+        }
+
+        // Browsers send the session cookie with cross-site handshakes too
+        private static boolean isSameOrigin(HandshakeRequest request) {
+            List<String> origins = request.getHeaders().get("Origin");
+            List<String> hosts = request.getHeaders().get("Host");
+            if (origins == null || origins.isEmpty() || hosts == null || hosts.isEmpty()) {
+                return false;
+            }
+            try {
+                URI origin = URI.create(origins.get(0));
+                String authority = origin.getAuthority();
+                return authority != null && authority.equalsIgnoreCase(hosts.get(0));
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+    }
+
+    @OnOpen
+    public void onOpen(Session session, EndpointConfig config, @PathParam("submissionId") String submissionIdStr)
+            throws IOException {
+        this.session = session;
+        session.getAsyncRemote().setSendTimeout(SEND_TIMEOUT_MILLIS);
+        User user = (User) config.getUserProperties().get("user");
+        if (user == null) {
+            session.close(new CloseReason(CloseReason.CloseCodes.VIOLATED_POLICY, "Unauthorized"));
+            return;
+        }
+
+        ActiveExam exam;
+        try {
+            submissionId = Integer.valueOf(submissionIdStr);
+            exam = ActiveExamRegistry.getInstance().get(submissionId);
+        } catch (NumberFormatException e) {
+            session.close(new CloseReason(CloseReason.CloseCodes.CANNOT_ACCEPT, "Invalid ID format"));
+            return;
+        } catch (SQLException e) {
+            session.close(new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "Database error"));
+            return;
+        }
+        if (exam == null || exam.isClosed()) {
+            session.close(new CloseReason(CloseReason.CloseCodes.NORMAL_CLOSURE, "closed"));
+            return;
+        }
+        if (!exam.isOwnedBy(user.getId())) {
+            session.close(new CloseReason(CloseReason.CloseCodes.VIOLATED_POLICY, "Unauthorized"));
+            return;
+        }
+        userId = user.getId();
+
+        try {
+            if (!hub.register(this, exam)) {
+                // The page keeps saving over HTTP
+                session.close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "Too many connections"));
+            }
+        } catch (SQLException e) {
+            session.close(new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "Database error"));
+        }
+    }
+
+    @OnMessage
+    public void onMessage(String text) {
+        long start = System.nanoTime();
+        if (userId == null) {
+            return;
+        }
+
+        Frame frame;
+        try {
+            frame = text.length() <= MAX_FRAME_CHARS ? GSON.fromJson(text, Frame.class) : null;
+        } catch (JsonParseException e) {
+            frame = null;
+        }
+        if (frame == null || frame.q == null || frame.a == null) {
+            hub.send(this, reply("error", null, null, "Invalid frame"));
+            return;
+        }
+
+        Frame save = frame;
+        Runnable work = () -> {
+            String result;
+            try {
+                submissionService.saveAnswer(userId, submissionId, save.q, save.a, save.s);
+                result = reply("saved", save.q, save.s, null);
+            } catch (SubmissionService.ServiceException e) {
+                result = reply("error", save.q, save.s, e.getMessage());
+            }
+            hub.recordFrame(text.length(), System.nanoTime() - start);
+            hub.send(this, result);
+        };
+
+        if (!executor.isEnabled()) {
+            work.run();
+            return;
+        }
+        try {
+            executor.execute(work);
+        } catch (RejectedExecutionException e) {
+            hub.send(this, "{\"type\": \"error\", \"q\": " + save.q + ", \"s\": " + save.s +
+                    ", \"retry\": true, \"message\": \"Server sedang sibuk, silakan coba lagi\"}");
+        }
+    }
+
+    @OnClose
+    public void onClose(Session session) {
+        hub.unregister(this);
+    }
+
+    @OnError
+    public void onError(Session session, Throwable error) {
+        // The connection is closed after this; the page falls back to HTTP
+        hub.unregister(this);
+    }
+
+    @Override
+    public void send(String json) {
+        if (!session.isOpen()) {
+            return;
+        }
+        if (queued.incrementAndGet() > MAX_QUEUED_FRAMES) {
+            queued.decrementAndGet();
+            close("Too slow");
+            return;
+        }
+        outbox.add(json);
+        drain();
+    }
+
+    /**
+     * Start the next queued send unless one is in flight; its completion
+     * handler starts the one after
+     */
+    private void drain() {
+        while (sending.compareAndSet(false, true)) {
+            String next = outbox.poll();
+            if (next == null) {
+                sending.set(false);
+                if (outbox.isEmpty()) {
+                    return;
+                }
+                // A frame was queued while the flag was held
+                continue;
+            }
+            queued.decrementAndGet();
+            try {
+                session.getAsyncRemote().sendText(next, result -> {
+                    sending.set(false);
+                    if (result.isOK()) {
+                        drain();
+                    } else {
+                        close("Send failed");
+                    }
+                });
+            } catch (IllegalStateException e) {
+                sending.set(false);
+                close("Send failed");
+            }
+            return;
+        }
+    }
+
+    @Override
+    public void close(String reason) {
+        try {
+            session.close(new CloseReason(CloseReason.CloseCodes.NORMAL_CLOSURE, reason));
+        } catch (IOException e) {
+            // Already gone
+        }
+    }
+
+    private static String reply(String type, Integer questionId, Long clientSeq, String message) {
+        StringBuilder json = new StringBuilder("{\"type\": \"").append(type).append('"');
+        if (questionId != null) {
+            json.append(", \"q\": ").append(questionId).append(", \"s\": ").append(clientSeq);
+        }
+        if (message != null) {
+            json.append(", \"message\": ").append(GSON.toJson(message));
+        }
+        return json.append('}').toString();
+    }
+
+    /**
+     * One answer save (q = question id, a = answer, s = client sequence)
+     */
+    private static class Frame {
+        Integer q;
+        String a;
+        Long s;
+    }
+}
@@ -0,0 +1,102 @@
+package com.examora.dao;
+
+import com.examora.model.Answer;
+import com.examora.model.QuizSnapshot;
+import com.examora.util.AppConfig;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Answer Store - Where a submission's answers are kept
+ * "rows" (default) stores one answers row per question; "packed" stores one
+ * submission_answers row per submission (see PackedAnswerStore). Selected
+ * with answer.storage; SubmissionDAO goes through this interface for every
+ * read and write of answers.
+ */
+public interface AnswerStore {
+
+    /**
+     * Store for the configured answer.storage mode
+     */
+    static AnswerStore create() {
+        String mode = AppConfig.get("answer.storage", "rows");
+        return "packed".equalsIgnoreCase(mode) ? new PackedAnswerStore() : new RowAnswerStore();
+    }
+
+    /**
+     * Use the given snapshots for answer slots and keys (the packed store
+     * otherwise reads the questions of a quiz on every call)
+     */
+    static void useSnapshots(SnapshotSource source) {
+        PackedAnswerStore.snapshots = source;
+    }
+
+    /**
+     * Whether answers are placed by questions.answer_slot (only then are
+     * slots assigned and read)
+     */
+    boolean usesAnswerSlots();
+
+    /**
+     * Prepare storage for a new submission
+     */
+    void createFor(Integer submissionId) throws SQLException;
+
+    /**
+     * Save (or replace) one answer. Only submissions still in progress accept
+     * answers, checked in the same statement/lock as the write; returns false
+     * when the submission is closed (or gone). An answer with a clientSeq does
+     * not replace a stored one with an equal or higher sequence; such a stale
+     * save is accepted (true) without changing anything.
+     */
+    boolean save(Answer answer) throws SQLException;
+
+    /**
+     * Save many answers (newest clientSeq per question wins, else the last),
+     * skipping closed submissions as save does; returns the number accepted
+     */
+    int saveAll(List<Answer> answers) throws SQLException;
+
+    /**
+     * Answers of a submission, with question text and correct answer filled in
+     */
+    List<Answer> findBySubmission(Integer submissionId) throws SQLException;
+
+    /**
+     * Derived table with columns (submission_id, answered, correct) for the
+     * submissions matching a condition on alias sa (submissions). The
+     * condition's parameters are the only ones in the returned SQL.
+     */
+    String countsSql(String submissionCondition);
+
+    /**
+     * Recompute stored correctness against the current answer key, for all
+     * questions or only questionId; returns the number of answers changed
+     */
+    int regrade(List<Integer> submissionIds, Integer questionId) throws SQLException;
+
+    /**
+     * Recompute stored correctness of a quiz's in-progress submissions
+     */
+    int regradeInProgress(Integer quizId) throws SQLException;
+
+    /**
+     * Correct answers per submission under the current answer key, without writing
+     */
+    Map<Integer, Integer> countCorrectByKey(List<Integer> submissionIds) throws SQLException;
+
+    /**
+     * Clear whatever is still stored for a quiz's answer slot that no question
+     * holds, before the slot is given to a new question
+     */
+    void releaseSlot(Integer quizId, int slot) throws SQLException;
+
+    /**
+     * Current QuizSnapshot of a quiz (QuestionSnapshotCache)
+     */
+    interface SnapshotSource {
+        QuizSnapshot get(Integer quizId) throws SQLException;
+    }
+}
@@ -0,0 +1,544 @@
+package com.examora.dao;
+
+import com.examora.model.Answer;
+import com.examora.model.ExamQuestion;
+import com.examora.model.QuizSnapshot;
+import com.examora.util.DBUtil;
+import com.examora.util.Transaction;
+
+import java.nio.ByteBuffer;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Packed Answer Store - All answers of a submission in one row
+ * submission_answers.answers holds one byte per answer slot (the question's
+ * questions.answer_slot, 1-based): the selected letter A-D, or '-' when
+ * unanswered. correct_bits holds one bit per slot (bit slot-1, little-endian
+ * as java.util.BitSet), set when that answer was graded correct; it is NULL
+ * for rows migrated from the answers table until they are regraded, and
+ * readers then compare against the answer key. client_seqs holds the client
+ * sequence of the save that wrote each answer: a format byte (1), the lowest
+ * sequence as eight bytes, then four bytes per slot with the sequence's
+ * offset from it plus one, 0 when the save had none (all big-endian); a
+ * value in an unknown format is read as no sequences. answered_count and correct_count are kept in
+ * step on every write so set-based grading and statistics never need to
+ * decode the arrays.
+ *
+ * Writes read and rewrite the row under a row lock, so a save with an older
+ * client sequence than the stored answer is dropped by comparing in memory;
+ * slots whose question was deleted are cleared whenever the row is written,
+ * and in every row of the quiz before such a slot is reused (releaseSlot).
+ * Answer slots and the key come from the quiz's QuizSnapshot, so a save
+ * costs one locking read and one update.
+ */
+class PackedAnswerStore implements AnswerStore {
+
+    static final int MAX_SLOTS = QuestionDAO.MAX_ANSWER_SLOTS;
+    private static final byte UNANSWERED = '-';
+    private static final byte SEQS_FORMAT = 1;
+
+    // Replaced by QuestionSnapshotCache; this fallback reads the questions on every call
+    static volatile SnapshotSource snapshots =
+            quizId -> new QuizSnapshot(quizId, 0, new QuestionDAO().findByQuizId(quizId));
+
+    @Override
+    public boolean usesAnswerSlots() {
+        return true;
+    }
+
+    @Override
+    public void createFor(Integer submissionId) throws SQLException {
+        insertMissing(Arrays.asList(submissionId));
+    }
+
+    @Override
+    public boolean save(Answer answer) throws SQLException {
+        return saveAll(Arrays.asList(answer)) > 0;
+    }
+
+    @Override
+    public int saveAll(List<Answer> answers) throws SQLException {
+        if (answers.isEmpty()) {
+            return 0;
+        }
+
+        Set<Integer> submissionIds = new LinkedHashSet<>();
+        for (Answer answer : answers) {
+            submissionIds.add(answer.getSubmissionId());
+        }
+
+        int saved = 0;
+        try (Transaction tx = Transaction.begin()) {
+            Map<Integer, Packed> rows = lockOpenRows(submissionIds);
+            if (rows.size() < submissionIds.size()) {
+                insertMissing(submissionIds);
+                rows = lockOpenRows(submissionIds);
+            }
+            Map<Integer, QuizSnapshot> keys = loadKeys(quizIdsOf(rows.values()));
+
+            for (Answer answer : answers) {
+                Packed row = rows.get(answer.getSubmissionId());
+                QuizSnapshot key = row != null ? keys.get(row.quizId) : null;
+                Integer slot = key != null ? key.slotOf(answer.getQuestionId()) : null;
+                if (slot == null) {
+                    // Submission closed or gone, or question deleted
+                    continue;
+                }
+                saved++;
+                if (!row.isNewer(slot, answer.getClientSeq())) {
+                    // Stale save: a newer answer is already stored
+                    continue;
+                }
+                row.ensureGraded(key);
+                row.set(slot, answer.getSelectedAnswer(), Boolean.TRUE.equals(answer.getIsCorrect()),
+                        answer.getClientSeq());
+            }
+
+            List<Packed> changed = new ArrayList<>();
+            for (Packed row : rows.values()) {
+                if (row.dirty) {
+                    row.normalize(keys.get(row.quizId));
+                    changed.add(row);
+                }
+            }
+            write(changed);
+            tx.commit();
+        }
+        return saved;
+    }
+
+    @Override
+    public List<Answer> findBySubmission(Integer submissionId) throws SQLException {
+        List<Answer> answers = new ArrayList<>();
+        Packed row = readRows(Arrays.asList(submissionId)).get(submissionId);
+        if (row == null) {
+            return answers;
+        }
+
+        QuizSnapshot key = loadKeys(Arrays.asList(row.quizId)).get(row.quizId);
+
+        for (Map.Entry<Integer, ExamQuestion> slot : key.getQuestionsBySlot().entrySet()) {
+            String selected = row.selected(slot.getKey());
+            if (selected == null) {
+                continue;
+            }
+            ExamQuestion question = slot.getValue();
+            Answer answer = new Answer(submissionId, question.getId(), selected);
+            answer.setIsCorrect(row.isCorrect(slot.getKey(), question));
+            answer.setQuestionText(question.getQuestionText());
+            answer.setCorrectAnswer(question.getCorrectAnswer());
+            // Packed rows keep no per-answer timestamps
+            answers.add(answer);
+        }
+        return answers;
+    }
+
+    @Override
+    public String countsSql(String submissionCondition) {
+        // DISTINCT keeps the derived table materialized; it is joined to UPDATEs of submissions
+        return "SELECT DISTINCT pa.submission_id, pa.answered_count AS answered, pa.correct_count AS correct " +
+               "FROM submission_answers pa JOIN submissions sa ON pa.submission_id = sa.id " +
+               "WHERE " + submissionCondition;
+    }
+
+    @Override
+    public int regrade(List<Integer> submissionIds, Integer questionId) throws SQLException {
+        if (submissionIds.isEmpty()) {
+            return 0;
+        }
+
+        int changedAnswers = 0;
+        try (Transaction tx = Transaction.begin()) {
+            Map<Integer, Packed> rows = lockRows(submissionIds);
+            Map<Integer, QuizSnapshot> keys = loadKeys(quizIdsOf(rows.values()));
+
+            List<Packed> changed = new ArrayList<>();
+            for (Packed row : rows.values()) {
+                QuizSnapshot key = keys.get(row.quizId);
+                if (questionId != null && key.slotOf(questionId) == null) {
+                    continue;
+                }
+
+                row.ensureGraded(key);
+                for (Map.Entry<Integer, ExamQuestion> slot : key.getQuestionsBySlot().entrySet()) {
+                    ExamQuestion question = slot.getValue();
+                    if (questionId != null && !questionId.equals(question.getId())) {
+                        continue;
+                    }
+                    String selected = row.selected(slot.getKey());
+                    boolean correct = selected != null && selected.equals(question.getCorrectAnswer());
+                    if (row.isCorrect(slot.getKey(), question) != correct) {
+                        changedAnswers++;
+                    }
+                    row.grade(slot.getKey(), correct);
+                }
+                if (row.normalize(key)) {
+                    changed.add(row);
+                }
+            }
+            write(changed);
+            tx.commit();
+        }
+        return changedAnswers;
+    }
+
+    @Override
+    public int regradeInProgress(Integer quizId) throws SQLException {
+        String sql = "SELECT id FROM submissions WHERE quiz_id = ? AND status = 'in_progress'";
+        List<Integer> ids = new ArrayList<>();
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, quizId);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        return regrade(ids, null);
+    }
+
+    @Override
+    public Map<Integer, Integer> countCorrectByKey(List<Integer> submissionIds) throws SQLException {
+        Map<Integer, Integer> counts = new HashMap<>();
+        if (submissionIds.isEmpty()) {
+            return counts;
+        }
+
+        Map<Integer, Packed> rows = readRows(submissionIds);
+        Map<Integer, QuizSnapshot> keys = loadKeys(quizIdsOf(rows.values()));
+        for (Packed row : rows.values()) {
+            int correct = 0;
+            for (Map.Entry<Integer, ExamQuestion> slot : keys.get(row.quizId).getQuestionsBySlot().entrySet()) {
+                if (slot.getValue().getCorrectAnswer().equals(row.selected(slot.getKey()))) {
+                    correct++;
+                }
+            }
+            counts.put(row.submissionId, correct);
+        }
+        return counts;
+    }
+
+    @Override
+    public void releaseSlot(Integer quizId, int slot) throws SQLException {
+        String sql = "SELECT pa.submission_id FROM submission_answers pa " +
+                     "JOIN submissions s ON s.id = pa.submission_id " +
+                     "WHERE s.quiz_id = ? AND SUBSTRING(pa.answers, ?, 1) NOT IN ('', '-')";
+        List<Integer> ids = new ArrayList<>();
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, quizId);
+            stmt.setInt(2, slot);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        // Rewriting a row clears every slot without a question (normalize)
+        regrade(ids, null);
+    }
+
+    private void insertMissing(Collection<Integer> submissionIds) throws SQLException {
+        String sql = "INSERT IGNORE INTO submission_answers (submission_id) VALUES (?)";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            for (Integer id : submissionIds) {
+                stmt.setInt(1, id);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Rows of existing submissions, locked for update (in id order)
+     */
+    private Map<Integer, Packed> lockRows(Collection<Integer> submissionIds) throws SQLException {
+        return selectRows(submissionIds, " ORDER BY pa.submission_id FOR UPDATE OF pa");
+    }
+
+    /**
+     * Rows of in-progress submissions, locked for update; the submission rows
+     * are share-locked so they cannot be closed until the write commits
+     */
+    private Map<Integer, Packed> lockOpenRows(Collection<Integer> submissionIds) throws SQLException {
+        return selectRows(submissionIds, " AND s.status = 'in_progress' " +
+                "ORDER BY pa.submission_id FOR UPDATE OF pa FOR SHARE OF s");
+    }
+
+    private Map<Integer, Packed> readRows(Collection<Integer> submissionIds) throws SQLException {
+        return selectRows(submissionIds, "");
+    }
+
+    private Map<Integer, Packed> selectRows(Collection<Integer> submissionIds, String suffix) throws SQLException {
+        String sql = "SELECT pa.submission_id, s.quiz_id, pa.answers, pa.correct_bits, pa.client_seqs, " +
+                     "pa.answered_count, pa.correct_count " +
+                     "FROM submission_answers pa JOIN submissions s ON s.id = pa.submission_id " +
+                     "WHERE pa.submission_id IN (" + SubmissionDAO.placeholders(submissionIds.size()) + ")" + suffix;
+        Map<Integer, Packed> rows = new TreeMap<>();
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            for (Integer id : submissionIds) {
+                stmt.setInt(index++, id);
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Packed row = new Packed(rs.getInt("submission_id"), rs.getInt("quiz_id"),
+                            rs.getBytes("answers"), rs.getBytes("correct_bits"), rs.getBytes("client_seqs"));
+                    row.answeredCount = rs.getInt("answered_count");
+                    row.correctCount = rs.getInt("correct_count");
+                    rows.put(row.submissionId, row);
+                }
+            }
+        }
+        return rows;
+    }
+
+    private void write(List<Packed> rows) throws SQLException {
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        String sql = "UPDATE submission_answers SET answers = ?, correct_bits = ?, client_seqs = ?, " +
+                     "answered_count = ?, correct_count = ? WHERE submission_id = ?";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            for (Packed row : rows) {
+                stmt.setBytes(1, row.answers);
+                stmt.setBytes(2, row.correct.toByteArray());
+                stmt.setBytes(3, row.encodeSeqs());
+                stmt.setInt(4, row.answeredCount);
+                stmt.setInt(5, row.correctCount);
+                stmt.setInt(6, row.submissionId);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private static Set<Integer> quizIdsOf(Collection<Packed> rows) {
+        Set<Integer> quizIds = new LinkedHashSet<>();
+        for (Packed row : rows) {
+            quizIds.add(row.quizId);
+        }
+        return quizIds;
+    }
+
+    /**
+     * Snapshots (answer slots and key) of the given quizzes
+     */
+    private static Map<Integer, QuizSnapshot> loadKeys(Collection<Integer> quizIds) throws SQLException {
+        Map<Integer, QuizSnapshot> keys = new HashMap<>();
+        for (Integer quizId : quizIds) {
+            QuizSnapshot snapshot = snapshots.get(quizId);
+            if (!snapshot.hasAnswerSlots()) {
+                throw new SQLException("Quiz " + quizId + " has questions without answer_slot " +
+                        "(run step 1 of sql/add_packed_answers.sql)");
+            }
+            if (snapshot.getLastAnswerSlot() > MAX_SLOTS) {
+                throw new SQLException("Quiz " + quizId + " has an answer_slot above " + MAX_SLOTS);
+            }
+            keys.put(quizId, snapshot);
+        }
+        return keys;
+    }
+
+    /**
+     * Decoded submission_answers row
+     */
+    private static final class Packed {
+        final int submissionId;
+        final int quizId;
+        byte[] answers;
+        final BitSet correct;
+        // Client sequence per slot (index slot-1), 0 when none
+        long[] seqs;
+        // Migrated rows have no bitmap until regraded
+        boolean graded;
+        boolean dirty = false;
+        int answeredCount;
+        int correctCount;
+
+        Packed(int submissionId, int quizId, byte[] answers, byte[] correctBits, byte[] clientSeqs) {
+            this.submissionId = submissionId;
+            this.quizId = quizId;
+            this.answers = answers != null ? answers : new byte[0];
+            this.graded = correctBits != null;
+            this.correct = correctBits != null ? BitSet.valueOf(correctBits) : new BitSet();
+            this.seqs = decodeSeqs(clientSeqs);
+        }
+
+        /**
+         * Whether a save with this sequence may replace the slot's answer:
+         * always when either side has no sequence, else only when newer
+         */
+        boolean isNewer(int slot, Long clientSeq) {
+            long stored = slot <= seqs.length ? seqs[slot - 1] : 0;
+            return clientSeq == null || stored == 0 || clientSeq > stored;
+        }
+
+        byte[] encodeSeqs() {
+            int length = seqs.length;
+            while (length > 0 && seqs[length - 1] == 0) {
+                length--;
+            }
+            if (length == 0) {
+                return null;
+            }
+
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < length; i++) {
+                if (seqs[i] != 0) {
+                    min = Math.min(min, seqs[i]);
+                    max = Math.max(max, seqs[i]);
+                }
+            }
+            // Offsets must fit in an int; a sequence that much older than the
+            // newest one is stored as the base, which only matters against
+            // saves that are older still
+            long base = Math.max(min, max - (Integer.MAX_VALUE - 1));
+
+            ByteBuffer buffer = ByteBuffer.allocate(1 + 8 + length * 4);
+            buffer.put(SEQS_FORMAT);
+            buffer.putLong(base);
+            for (int i = 0; i < length; i++) {
+                buffer.putInt(seqs[i] == 0 ? 0 : (int) (Math.max(seqs[i], base) - base + 1));
+            }
+            return buffer.array();
+        }
+
+        private static long[] decodeSeqs(byte[] data) {
+            if (data == null || data.length < 9 || data[0] != SEQS_FORMAT) {
+                // Every save is then accepted until the row is rewritten
+                return new long[0];
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(data, 1, data.length - 1);
+            long base = buffer.getLong();
+            long[] seqs = new long[buffer.remaining() / 4];
+            for (int i = 0; i < seqs.length; i++) {
+                int offset = buffer.getInt();
+                seqs[i] = offset == 0 ? 0 : base + offset - 1;
+            }
+            return seqs;
+        }
+
+        String selected(int slot) {
+            if (slot > answers.length || answers[slot - 1] == UNANSWERED || answers[slot - 1] == 0) {
+                return null;
+            }
+            return String.valueOf((char) answers[slot - 1]);
+        }
+
+        boolean isCorrect(int slot, ExamQuestion question) {
+            if (!graded) {
+                return question.getCorrectAnswer().equals(selected(slot));
+            }
+            return correct.get(slot - 1);
+        }
+
+        void set(int slot, String letter, boolean isCorrect, Long clientSeq) {
+            if (slot > answers.length) {
+                int oldLength = answers.length;
+                answers = Arrays.copyOf(answers, slot);
+                Arrays.fill(answers, oldLength, slot, UNANSWERED);
+            }
+            answers[slot - 1] = (byte) letter.charAt(0);
+            correct.set(slot - 1, isCorrect);
+            if (clientSeq != null && slot > seqs.length) {
+                seqs = Arrays.copyOf(seqs, slot);
+            }
+            if (slot <= seqs.length) {
+                seqs[slot - 1] = clientSeq != null ? clientSeq : 0;
+            }
+            dirty = true;
+        }
+
+        void grade(int slot, boolean isCorrect) {
+            if (correct.get(slot - 1) != isCorrect) {
+                correct.set(slot - 1, isCorrect);
+                dirty = true;
+            }
+        }
+
+        /**
+         * Give a migrated row the bitmap readers have been assuming (answers checked against the key)
+         */
+        void ensureGraded(QuizSnapshot key) {
+            if (graded) {
+                return;
+            }
+            for (Map.Entry<Integer, ExamQuestion> slot : key.getQuestionsBySlot().entrySet()) {
+                correct.set(slot.getKey() - 1, slot.getValue().getCorrectAnswer().equals(selected(slot.getKey())));
+            }
+            graded = true;
+            dirty = true;
+        }
+
+        /**
+         * Clear slots without a question and recount; returns whether the row must be written
+         */
+        boolean normalize(QuizSnapshot key) {
+            int answered = 0;
+            int correctAnswers = 0;
+            for (int slot = 1; slot <= answers.length; slot++) {
+                boolean live = key.getQuestionsBySlot().containsKey(slot);
+                if (!live) {
+                    if (answers[slot - 1] != UNANSWERED) {
+                        answers[slot - 1] = UNANSWERED;
+                        dirty = true;
+                    }
+                    if (correct.get(slot - 1)) {
+                        correct.clear(slot - 1);
+                        dirty = true;
+                    }
+                    if (slot <= seqs.length && seqs[slot - 1] != 0) {
+                        seqs[slot - 1] = 0;
+                        dirty = true;
+                    }
+                    continue;
+                }
+                if (selected(slot) != null) {
+                    answered++;
+                    if (correct.get(slot - 1)) {
+                        correctAnswers++;
+                    }
+                } else if (correct.get(slot - 1)) {
+                    correct.clear(slot - 1);
+                    dirty = true;
+                }
+            }
+            if (answered != answeredCount || correctAnswers != correctCount) {
+                dirty = true;
+            }
+            answeredCount = answered;
+            correctCount = correctAnswers;
+            return dirty;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.examora.dao;
 
 import com.examora.model.Question;
 import com.examora.util.DBUtil;
+import com.examora.util.Transaction;
 
 import java.sql.*;
 import java.util.ArrayList;
@@ -12,40 +13,116 @@ import java.util.List;
  */
 public class QuestionDAO {
 
+    // Questions per quiz with packed answers; answer slots are 1..MAX_ANSWER_SLOTS
+    public static final int MAX_ANSWER_SLOTS = 1024;
+
+    private final AnswerStore answerStore = AnswerStore.create();
+    private final boolean answerSlots = answerStore.usesAnswerSlots();
+
+    /**
+     * Whether questions get answer slots (answer.storage=packed); rows mode
+     * neither writes nor reads questions.answer_slot
+     */
+    public boolean usesAnswerSlots() {
+        return answerSlots;
+    }
+
     /**
      * Create a new question
+     * With packed answers it gets the next answer slot of its quiz, so they keep
+     * pointing at the right question after deletes. Once the quiz has used
+     * every slot, the lowest one left free by a deleted question is cleared
+     * in the stored answers and reused. The quiz row is locked while the slot
+     * is chosen, so concurrent adds to the same quiz get different slots.
      */
     public Question create(Question question) throws SQLException {
-        String sql = "INSERT INTO questions (quiz_id, question_text, option_a, option_b, option_c, option_d, correct_answer, question_order) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        String sql = answerSlots
+                ? "INSERT INTO questions (quiz_id, question_text, option_a, option_b, option_c, option_d, correct_answer, question_order, answer_slot) " +
+                  "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)"
+                : "INSERT INTO questions (quiz_id, question_text, option_a, option_b, option_c, option_d, correct_answer, question_order) " +
+                  "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+        try (Transaction tx = Transaction.begin()) {
+            if (answerSlots) {
+                question.setAnswerSlot(nextAnswerSlot(question.getQuizId()));
+            }
 
-        try (Connection conn = DBUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            try (Connection conn = DBUtil.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+
+                stmt.setInt(1, question.getQuizId());
+                stmt.setString(2, question.getQuestionText());
+                stmt.setString(3, question.getOptionA());
+                stmt.setString(4, question.getOptionB());
+                stmt.setString(5, question.getOptionC());
+                stmt.setString(6, question.getOptionD());
+                stmt.setString(7, question.getCorrectAnswer());
+                stmt.setInt(8, question.getQuestionOrder() != null ? question.getQuestionOrder() : 0);
+                if (answerSlots) {
+                    stmt.setInt(9, question.getAnswerSlot());
+                }
+
+                int affectedRows = stmt.executeUpdate();
+
+                if (affectedRows == 0) {
+                    throw new SQLException("Creating question failed, no rows affected.");
+                }
 
-            stmt.setInt(1, question.getQuizId());
-            stmt.setString(2, question.getQuestionText());
-            stmt.setString(3, question.getOptionA());
-            stmt.setString(4, question.getOptionB());
-            stmt.setString(5, question.getOptionC());
-            stmt.setString(6, question.getOptionD());
-            stmt.setString(7, question.getCorrectAnswer());
-            stmt.setInt(8, question.getQuestionOrder() != null ? question.getQuestionOrder() : 0);
+                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        question.setId(generatedKeys.getInt(1));
+                    } else {
+                        throw new SQLException("Creating question failed, no ID obtained.");
+                    }
+                }
+            }
 
-            int affectedRows = stmt.executeUpdate();
+            tx.commit();
+            return question;
+        }
+    }
 
-            if (affectedRows == 0) {
-                throw new SQLException("Creating question failed, no rows affected.");
+    /**
+     * Next answer slot of a quiz; locks the quiz row until the transaction ends
+     */
+    private int nextAnswerSlot(Integer quizId) throws SQLException {
+        String lockSql = "SELECT id FROM quiz WHERE id = ? FOR UPDATE";
+        String sql = "SELECT answer_slot FROM questions WHERE quiz_id = ? AND answer_slot IS NOT NULL ORDER BY answer_slot";
+        int slot = 1;
+        int last = 0;
+
+        try (Connection conn = DBUtil.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(lockSql)) {
+                stmt.setInt(1, quizId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new SQLException("Creating question failed, quiz " + quizId + " not found.");
+                    }
+                }
             }
 
-            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    question.setId(generatedKeys.getInt(1));
-                } else {
-                    throw new SQLException("Creating question failed, no ID obtained.");
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setInt(1, quizId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        last = rs.getInt(1);
+                        if (last == slot) {
+                            slot++;
+                        }
+                    }
                 }
             }
+        }
 
-            return question;
+        if (last < MAX_ANSWER_SLOTS) {
+            return last + 1;
         }
+        if (slot > MAX_ANSWER_SLOTS) {
+            throw new SQLException("Creating question failed, quiz " + quizId + " already has " +
+                    MAX_ANSWER_SLOTS + " questions.");
+        }
+        answerStore.releaseSlot(quizId, slot);
+        return slot;
     }
 
     /**
@@ -89,36 +166,6 @@ public class QuestionDAO {
         return questions;
     }
 
-    /**
-     * Get questions for a quiz (without correct answers - for taking exam)
-     */
-    public List<Question> findByQuizIdForExam(Integer quizId) throws SQLException {
-        String sql = "SELECT id, quiz_id, question_text, option_a, option_b, option_c, option_d, question_order FROM questions WHERE quiz_id = ? ORDER BY RAND()";
-        List<Question> questions = new ArrayList<>();
-
-        try (Connection conn = DBUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setInt(1, quizId);
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    Question q = new Question();
-                    q.setId(rs.getInt("id"));
-                    q.setQuizId(rs.getInt("quiz_id"));
-                    q.setQuestionText(rs.getString("question_text"));
-                    q.setOptionA(rs.getString("option_a"));
-                    q.setOptionB(rs.getString("option_b"));
-                    q.setOptionC(rs.getString("option_c"));
-                    q.setOptionD(rs.getString("option_d"));
-                    q.setQuestionOrder(rs.getInt("question_order"));
-                    questions.add(q);
-                }
-            }
-        }
-        return questions;
-    }
-
     /**
      * Update question
      */
@@ -227,6 +274,10 @@ public class QuestionDAO {
         question.setOptionD(rs.getString("option_d"));
         question.setCorrectAnswer(rs.getString("correct_answer"));
         question.setQuestionOrder(rs.getInt("question_order"));
+        if (answerSlots) {
+            int answerSlot = rs.getInt("answer_slot");
+            question.setAnswerSlot(rs.wasNull() ? null : answerSlot);
+        }
 
         Timestamp createdAt = rs.getTimestamp("created_at");
         if (createdAt != null) {
@@ -90,6 +90,30 @@ public class QuizDAO {
         return quizzes;
     }
 
+    /**
+     * Get the most recently created quizzes
+     */
+    public List<Quiz> findRecent(int limit) throws SQLException {
+        String sql = "SELECT q.*, u.name as created_by_name, " +
+                     "(SELECT COUNT(*) FROM questions WHERE quiz_id = q.id) as question_count " +
+                     "FROM quiz q LEFT JOIN users u ON q.created_by = u.id " +
+                     "ORDER BY q.created_at DESC, q.id DESC LIMIT ?";
+        List<Quiz> quizzes = new ArrayList<>();
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, limit);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    quizzes.add(mapResultSetToQuiz(rs));
+                }
+            }
+        }
+        return quizzes;
+    }
+
     /**
      * Get active quizzes (for participants) - only those not expired
      */
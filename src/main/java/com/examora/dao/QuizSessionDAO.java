@@ -0,0 +1,87 @@
+package com.examora.dao;
+
+import com.examora.util.DBUtil;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Quiz Session Data Access Object - Last activity of in-progress submissions
+ * One quiz_sessions row per submission, keyed by the session token
+ * "submission-{id}"; last_activity is the last heartbeat the browser sent.
+ */
+public class QuizSessionDAO {
+
+    static final String TOKEN_PREFIX = "submission-";
+
+    /**
+     * Record last activity for many submissions in one batch. Rows are maps
+     * with submissionId, quizId, userId, startedAt, expiresAt and lastActivity
+     * (LocalDateTime); a stored later activity is kept.
+     */
+    public void saveActivity(List<Map<String, Object>> rows) throws SQLException {
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        String sql = "INSERT INTO quiz_sessions (session_token, quiz_id, user_id, started_at, expires_at, last_activity) " +
+                     "VALUES (?, ?, ?, ?, ?, ?) AS new " +
+                     "ON DUPLICATE KEY UPDATE last_activity = GREATEST(COALESCE(quiz_sessions.last_activity, new.last_activity), " +
+                     "new.last_activity), expires_at = new.expires_at";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            for (Map<String, Object> row : rows) {
+                stmt.setString(1, TOKEN_PREFIX + row.get("submissionId"));
+                stmt.setInt(2, (Integer) row.get("quizId"));
+                stmt.setInt(3, (Integer) row.get("userId"));
+                stmt.setTimestamp(4, Timestamp.valueOf((LocalDateTime) row.get("startedAt")));
+                stmt.setTimestamp(5, Timestamp.valueOf((LocalDateTime) row.get("expiresAt")));
+                stmt.setTimestamp(6, Timestamp.valueOf((LocalDateTime) row.get("lastActivity")));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Delete the activity rows of finished submissions
+     */
+    public void deleteActivity(Collection<Integer> submissionIds) throws SQLException {
+        if (submissionIds.isEmpty()) {
+            return;
+        }
+
+        String sql = "DELETE FROM quiz_sessions WHERE session_token = ?";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            for (Integer submissionId : submissionIds) {
+                stmt.setString(1, TOKEN_PREFIX + submissionId);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Delete the activity rows of every finished submission of a quiz
+     */
+    public void deleteFinishedActivity(Integer quizId) throws SQLException {
+        String sql = "DELETE qs FROM quiz_sessions qs " +
+                     "JOIN submissions s ON qs.session_token = CONCAT('" + TOKEN_PREFIX + "', s.id) " +
+                     "WHERE s.quiz_id = ? AND s.status <> 'in_progress'";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, quizId);
+            stmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.examora.dao;
+
+import com.examora.model.Answer;
+import com.examora.util.DBUtil;
+import com.examora.util.Transaction;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Row Answer Store - One answers row per submission and question
+ */
+class RowAnswerStore implements AnswerStore {
+
+    // An existing answer is replaced only by a save with a newer client
+    // sequence (or by one without a sequence); client_seq is assigned last so
+    // the other columns still compare against the stored sequence
+    private static final String NEWER =
+            "VALUES(client_seq) IS NULL OR answers.client_seq IS NULL OR VALUES(client_seq) > answers.client_seq";
+
+    // Inserts nothing once the submission is closed; the read of its status
+    // locks the row, so it cannot interleave with the grading UPDATE
+    private static final String UPSERT =
+            "INSERT INTO answers (submission_id, question_id, selected_answer, is_correct, client_seq) " +
+            "SELECT id, ?, ?, ?, ? FROM submissions WHERE id = ? AND status = 'in_progress' " +
+            "ON DUPLICATE KEY UPDATE " +
+            "selected_answer = IF(" + NEWER + ", VALUES(selected_answer), answers.selected_answer), " +
+            "is_correct = IF(" + NEWER + ", VALUES(is_correct), answers.is_correct), " +
+            "client_seq = IF(" + NEWER + ", VALUES(client_seq), answers.client_seq)";
+
+    @Override
+    public boolean usesAnswerSlots() {
+        return false;
+    }
+
+    @Override
+    public void createFor(Integer submissionId) {
+        // Rows are created as answers arrive
+    }
+
+    @Override
+    public boolean save(Answer answer) throws SQLException {
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(UPSERT)) {
+
+            bind(stmt, answer);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    @Override
+    public int saveAll(List<Answer> answers) throws SQLException {
+        if (answers.isEmpty()) {
+            return 0;
+        }
+
+        try (Transaction tx = Transaction.begin()) {
+            // Batched update counts may be SUCCESS_NO_INFO, so which answers
+            // are accepted is decided by the status read here; the share lock
+            // keeps those submissions open until the batch commits
+            Set<Integer> open = lockOpen(answers);
+            int saved = 0;
+
+            try (Connection conn = DBUtil.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(UPSERT)) {
+
+                for (Answer answer : answers) {
+                    if (!open.contains(answer.getSubmissionId())) {
+                        continue;
+                    }
+                    bind(stmt, answer);
+                    stmt.addBatch();
+                    saved++;
+                }
+                if (saved > 0) {
+                    stmt.executeBatch();
+                }
+            }
+            tx.commit();
+            return saved;
+        }
+    }
+
+    /**
+     * Ids of the answers' submissions that are still in progress, share-locked
+     */
+    private static Set<Integer> lockOpen(List<Answer> answers) throws SQLException {
+        Set<Integer> submissionIds = new LinkedHashSet<>();
+        for (Answer answer : answers) {
+            submissionIds.add(answer.getSubmissionId());
+        }
+
+        String sql = "SELECT id FROM submissions WHERE id IN (" + SubmissionDAO.placeholders(submissionIds.size()) + ") " +
+                     "AND status = 'in_progress' FOR SHARE";
+        Set<Integer> open = new HashSet<>();
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            for (Integer id : submissionIds) {
+                stmt.setInt(index++, id);
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    open.add(rs.getInt(1));
+                }
+            }
+        }
+        return open;
+    }
+
+    private static void bind(PreparedStatement stmt, Answer answer) throws SQLException {
+        stmt.setInt(1, answer.getQuestionId());
+        stmt.setString(2, answer.getSelectedAnswer());
+        stmt.setBoolean(3, Boolean.TRUE.equals(answer.getIsCorrect()));
+        if (answer.getClientSeq() != null) {
+            stmt.setLong(4, answer.getClientSeq());
+        } else {
+            stmt.setNull(4, Types.BIGINT);
+        }
+        stmt.setInt(5, answer.getSubmissionId());
+    }
+
+    @Override
+    public List<Answer> findBySubmission(Integer submissionId) throws SQLException {
+        String sql = "SELECT a.*, q.question_text, q.correct_answer " +
+                     "FROM answers a " +
+                     "LEFT JOIN questions q ON a.question_id = q.id " +
+                     "WHERE a.submission_id = ?";
+        List<Answer> answers = new ArrayList<>();
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, submissionId);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Answer answer = new Answer();
+                    answer.setId(rs.getInt("id"));
+                    answer.setSubmissionId(rs.getInt("submission_id"));
+                    answer.setQuestionId(rs.getInt("question_id"));
+                    answer.setSelectedAnswer(rs.getString("selected_answer"));
+                    answer.setIsCorrect(rs.getBoolean("is_correct"));
+                    answer.setQuestionText(rs.getString("question_text"));
+                    answer.setCorrectAnswer(rs.getString("correct_answer"));
+
+                    Timestamp answeredAt = rs.getTimestamp("answered_at");
+                    if (answeredAt != null) {
+                        answer.setAnsweredAt(answeredAt.toLocalDateTime());
+                    }
+
+                    answers.add(answer);
+                }
+            }
+        }
+        return answers;
+    }
+
+    @Override
+    public String countsSql(String submissionCondition) {
+        return "SELECT a.submission_id, COUNT(*) AS answered, SUM(a.is_correct) AS correct " +
+               "FROM answers a JOIN submissions sa ON a.submission_id = sa.id " +
+               "WHERE " + submissionCondition + " GROUP BY a.submission_id";
+    }
+
+    @Override
+    public int regrade(List<Integer> submissionIds, Integer questionId) throws SQLException {
+        if (submissionIds.isEmpty()) {
+            return 0;
+        }
+
+        String sql = "UPDATE answers a JOIN questions q ON a.question_id = q.id " +
+                     "SET a.is_correct = (a.selected_answer = q.correct_answer) " +
+                     "WHERE a.submission_id IN (" + SubmissionDAO.placeholders(submissionIds.size()) + ") " +
+                     (questionId != null ? "AND a.question_id = ? " : "") +
+                     "AND a.is_correct <> (a.selected_answer = q.correct_answer)";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            for (Integer id : submissionIds) {
+                stmt.setInt(index++, id);
+            }
+            if (questionId != null) {
+                stmt.setInt(index, questionId);
+            }
+            return stmt.executeUpdate();
+        }
+    }
+
+    @Override
+    public int regradeInProgress(Integer quizId) throws SQLException {
+        String sql = "UPDATE answers a " +
+                     "JOIN submissions s ON a.submission_id = s.id " +
+                     "JOIN questions q ON a.question_id = q.id " +
+                     "SET a.is_correct = (a.selected_answer = q.correct_answer) " +
+                     "WHERE s.quiz_id = ? AND s.status = 'in_progress'";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, quizId);
+            return stmt.executeUpdate();
+        }
+    }
+
+    @Override
+    public Map<Integer, Integer> countCorrectByKey(List<Integer> submissionIds) throws SQLException {
+        Map<Integer, Integer> counts = new HashMap<>();
+        if (submissionIds.isEmpty()) {
+            return counts;
+        }
+
+        String sql = "SELECT a.submission_id, SUM(a.selected_answer = q.correct_answer) AS correct " +
+                     "FROM answers a JOIN questions q ON q.id = a.question_id " +
+                     "WHERE a.submission_id IN (" + SubmissionDAO.placeholders(submissionIds.size()) + ") " +
+                     "GROUP BY a.submission_id";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            for (Integer id : submissionIds) {
+                stmt.setInt(index++, id);
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    counts.put(rs.getInt("submission_id"), rs.getInt("correct"));
+                }
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public void releaseSlot(Integer quizId, int slot) {
+        // Rows are keyed by question id; answer slots are not used
+    }
+}
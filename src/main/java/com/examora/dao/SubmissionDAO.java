@@ -3,9 +3,12 @@ package com.examora.dao;
 import com.examora.model.Answer;
 import com.examora.model.Submission;
 import com.examora.util.DBUtil;
+import com.examora.util.Transaction;
 
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -15,41 +18,94 @@ import java.util.Map;
  */
 public class SubmissionDAO {
 
+    // MySQL ER_DUP_ENTRY
+    private static final int DUPLICATE_KEY = 1062;
+
+    private final AnswerStore answerStore = AnswerStore.create();
+
+    // Last recorded heartbeat of submission s (see QuizSessionDAO) as qs.last_activity
+    private static final String ACTIVITY_JOIN =
+            "LEFT JOIN quiz_sessions qs ON qs.session_token = CONCAT('" + QuizSessionDAO.TOKEN_PREFIX + "', s.id) ";
+
+    // SET clause shared by the bulk finalize statements. Expects the updated
+    // submissions as s, their quiz as qz, correct counts as a.correct,
+    // question counts as qc.total and ACTIVITY_JOIN; parameters: finished
+    // time (three times), status. Time spent ends at the last heartbeat when
+    // the browser went away before the exam was closed.
+    private static final String FINALIZE_SET =
+            "SET s.correct_answers = COALESCE(a.correct, 0), " +
+            "    s.total_questions = COALESCE(qc.total, s.total_questions), " +
+            "    s.score = CASE WHEN COALESCE(qc.total, s.total_questions) > 0 " +
+            "              THEN ROUND(LEAST(100, COALESCE(a.correct, 0) * 100.0 / COALESCE(qc.total, s.total_questions)), 2) " +
+            "              ELSE 0 END, " +
+            "    s.submitted_at = ?, " +
+            "    s.time_spent = LEAST(GREATEST(TIMESTAMPDIFF(SECOND, s.started_at, " +
+            "                   LEAST(COALESCE(qs.last_activity, ?), ?)), 0), qz.duration * 60), " +
+            "    s.status = ? ";
+
     /**
      * Create a new submission
+     * The submission row and its answer storage are written in one
+     * transaction, so a failure cannot leave a submission without the
+     * storage its saves expect.
      */
     public Submission create(Submission submission) throws SQLException {
-        String sql = "INSERT INTO submissions (quiz_id, user_id, score, total_questions, correct_answers, started_at, status) VALUES (?, ?, ?, ?, ?, ?, ?)";
-
-        try (Connection conn = DBUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-
-            stmt.setInt(1, submission.getQuizId());
-            stmt.setInt(2, submission.getUserId());
-            stmt.setDouble(3, submission.getScore());
-            stmt.setInt(4, submission.getTotalQuestions());
-            stmt.setInt(5, submission.getCorrectAnswers());
-            stmt.setTimestamp(6, Timestamp.valueOf(submission.getStartedAt()));
-            stmt.setString(7, submission.getStatus());
+        String sql = "INSERT INTO submissions (quiz_id, user_id, score, total_questions, correct_answers, started_at, status, shuffle_seed) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+        try (Transaction tx = Transaction.begin()) {
+            try (Connection conn = DBUtil.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+
+                stmt.setInt(1, submission.getQuizId());
+                stmt.setInt(2, submission.getUserId());
+                stmt.setDouble(3, submission.getScore());
+                stmt.setInt(4, submission.getTotalQuestions());
+                stmt.setInt(5, submission.getCorrectAnswers());
+                stmt.setTimestamp(6, Timestamp.valueOf(submission.getStartedAt()));
+                stmt.setString(7, submission.getStatus());
+                if (submission.getShuffleSeed() != null) {
+                    stmt.setLong(8, submission.getShuffleSeed());
+                } else {
+                    stmt.setNull(8, Types.BIGINT);
+                }
 
-            int affectedRows = stmt.executeUpdate();
+                int affectedRows = stmt.executeUpdate();
 
-            if (affectedRows == 0) {
-                throw new SQLException("Creating submission failed, no rows affected.");
-            }
+                if (affectedRows == 0) {
+                    throw new SQLException("Creating submission failed, no rows affected.");
+                }
 
-            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    submission.setId(generatedKeys.getInt(1));
-                } else {
-                    throw new SQLException("Creating submission failed, no ID obtained.");
+                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        submission.setId(generatedKeys.getInt(1));
+                    } else {
+                        throw new SQLException("Creating submission failed, no ID obtained.");
+                    }
                 }
             }
+            answerStore.createFor(submission.getId());
 
+            tx.commit();
             return submission;
         }
     }
 
+    /**
+     * Create a submission unless the user already has one for the quiz
+     * (unique_user_quiz); returns null in that case instead of failing.
+     * Called outside a transaction: the duplicate rolls back create's own.
+     */
+    public Submission createIfAbsent(Submission submission) throws SQLException {
+        try {
+            return create(submission);
+        } catch (SQLIntegrityConstraintViolationException e) {
+            if (e.getErrorCode() == DUPLICATE_KEY) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
     /**
      * Find submission by ID
      */
@@ -99,6 +155,40 @@ public class SubmissionDAO {
         return null;
     }
 
+    /**
+     * Find a user's submissions for several quizzes in one query, keyed by quiz id
+     */
+    public Map<Integer, Submission> findByUserAndQuizIds(Integer userId, Collection<Integer> quizIds) throws SQLException {
+        Map<Integer, Submission> submissions = new HashMap<>();
+        if (quizIds == null || quizIds.isEmpty()) {
+            return submissions;
+        }
+
+        String sql = "SELECT s.*, u.name as user_name, q.title as quiz_title " +
+                     "FROM submissions s " +
+                     "LEFT JOIN users u ON s.user_id = u.id " +
+                     "LEFT JOIN quiz q ON s.quiz_id = q.id " +
+                     "WHERE s.user_id = ? AND s.quiz_id IN (" + placeholders(quizIds.size()) + ")";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            stmt.setInt(index++, userId);
+            for (Integer quizId : quizIds) {
+                stmt.setInt(index++, quizId);
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Submission submission = mapResultSetToSubmission(rs);
+                    submissions.put(submission.getQuizId(), submission);
+                }
+            }
+        }
+        return submissions;
+    }
+
     /**
      * Get all submissions for a quiz
      */
@@ -173,6 +263,49 @@ public class SubmissionDAO {
         return submissions;
     }
 
+    /**
+     * Get the most recently started submissions
+     */
+    public List<Submission> findRecent(int limit) throws SQLException {
+        String sql = "SELECT s.*, u.name as user_name, q.title as quiz_title " +
+                     "FROM submissions s " +
+                     "LEFT JOIN users u ON s.user_id = u.id " +
+                     "LEFT JOIN quiz q ON s.quiz_id = q.id " +
+                     "ORDER BY s.id DESC LIMIT ?";
+        List<Submission> submissions = new ArrayList<>();
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, limit);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    submissions.add(mapResultSetToSubmission(rs));
+                }
+            }
+        }
+        return submissions;
+    }
+
+    /**
+     * Count submissions grouped by status
+     */
+    public Map<String, Integer> countGroupByStatus() throws SQLException {
+        String sql = "SELECT status, COUNT(*) FROM submissions GROUP BY status";
+        Map<String, Integer> counts = new HashMap<>();
+
+        try (Connection conn = DBUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                counts.put(rs.getString(1), rs.getInt(2));
+            }
+        }
+        return counts;
+    }
+
     /**
      * Update submission (for completing)
      */
@@ -195,60 +328,65 @@ public class SubmissionDAO {
     }
 
     /**
-     * Save an answer
+     * Grade and complete one submission in a single statement, only while it
+     * is still in progress and owned by userId. Correct answers and the quiz's
+     * question count are read inside the UPDATE, so there is no window between
+     * reading and writing. time_spent runs from started_at to submittedAt,
+     * capped at the quiz duration. Returns false when nothing was updated
+     * (already closed, missing or someone else's).
      */
-    public boolean saveAnswer(Answer answer) throws SQLException {
-        String sql = "INSERT INTO answers (submission_id, question_id, selected_answer, is_correct) VALUES (?, ?, ?, ?) " +
-                     "ON DUPLICATE KEY UPDATE selected_answer = VALUES(selected_answer), is_correct = VALUES(is_correct)";
+    public boolean completeSubmission(Integer submissionId, Integer userId, LocalDateTime submittedAt)
+            throws SQLException {
+        String sql = "UPDATE submissions s " +
+                     "JOIN quiz qz ON qz.id = s.quiz_id " +
+                     "LEFT JOIN (" + answerStore.countsSql("sa.id = ?") + ") a ON a.submission_id = s.id " +
+                     "LEFT JOIN (SELECT q.quiz_id, COUNT(*) AS total FROM questions q " +
+                     "           JOIN submissions sq ON sq.quiz_id = q.quiz_id " +
+                     "           WHERE sq.id = ? GROUP BY q.quiz_id) qc ON qc.quiz_id = s.quiz_id " +
+                     "SET s.correct_answers = COALESCE(a.correct, 0), " +
+                     "    s.total_questions = COALESCE(qc.total, s.total_questions), " +
+                     "    s.score = CASE WHEN COALESCE(qc.total, s.total_questions) > 0 " +
+                     "              THEN ROUND(LEAST(100, COALESCE(a.correct, 0) * 100.0 / COALESCE(qc.total, s.total_questions)), 2) " +
+                     "              ELSE 0 END, " +
+                     "    s.submitted_at = ?, " +
+                     "    s.time_spent = LEAST(GREATEST(TIMESTAMPDIFF(SECOND, s.started_at, ?), 0), qz.duration * 60), " +
+                     "    s.status = 'completed' " +
+                     "WHERE s.id = ? AND s.user_id = ? AND s.status = 'in_progress'";
 
         try (Connection conn = DBUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setInt(1, answer.getSubmissionId());
-            stmt.setInt(2, answer.getQuestionId());
-            stmt.setString(3, answer.getSelectedAnswer());
-            stmt.setBoolean(4, answer.getIsCorrect());
+            stmt.setInt(1, submissionId);
+            stmt.setInt(2, submissionId);
+            Timestamp submitted = Timestamp.valueOf(submittedAt);
+            stmt.setTimestamp(3, submitted);
+            stmt.setTimestamp(4, submitted);
+            stmt.setInt(5, submissionId);
+            stmt.setInt(6, userId);
 
             return stmt.executeUpdate() > 0;
         }
     }
 
     /**
-     * Get answers for a submission
+     * Save an answer; returns false (and writes nothing) once the submission is closed
      */
-    public List<Answer> getAnswers(Integer submissionId) throws SQLException {
-        String sql = "SELECT a.*, q.question_text, q.correct_answer " +
-                     "FROM answers a " +
-                     "LEFT JOIN questions q ON a.question_id = q.id " +
-                     "WHERE a.submission_id = ?";
-        List<Answer> answers = new ArrayList<>();
-
-        try (Connection conn = DBUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setInt(1, submissionId);
+    public boolean saveAnswer(Answer answer) throws SQLException {
+        return answerStore.save(answer);
+    }
 
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    Answer answer = new Answer();
-                    answer.setId(rs.getInt("id"));
-                    answer.setSubmissionId(rs.getInt("submission_id"));
-                    answer.setQuestionId(rs.getInt("question_id"));
-                    answer.setSelectedAnswer(rs.getString("selected_answer"));
-                    answer.setIsCorrect(rs.getBoolean("is_correct"));
-                    answer.setQuestionText(rs.getString("question_text"));
-                    answer.setCorrectAnswer(rs.getString("correct_answer"));
-
-                    Timestamp answeredAt = rs.getTimestamp("answered_at");
-                    if (answeredAt != null) {
-                        answer.setAnsweredAt(answeredAt.toLocalDateTime());
-                    }
+    /**
+     * Save many answers in one batch (upsert, last value wins; closed submissions are skipped)
+     */
+    public int saveAnswers(List<Answer> answers) throws SQLException {
+        return answerStore.saveAll(answers);
+    }
 
-                    answers.add(answer);
-                }
-            }
-        }
-        return answers;
+    /**
+     * Get answers for a submission
+     */
+    public List<Answer> getAnswers(Integer submissionId) throws SQLException {
+        return answerStore.findBySubmission(submissionId);
     }
 
     /**
@@ -260,7 +398,7 @@ public class SubmissionDAO {
         // Basic statistics
         String basicSql = "SELECT COUNT(*) as total, AVG(score) as avg_score, MAX(score) as max_score, MIN(score) as min_score, " +
                           "AVG(time_spent) as avg_time, MIN(time_spent) as min_time, MAX(time_spent) as max_time " +
-                          "FROM submissions WHERE quiz_id = ? AND status = 'completed'";
+                          "FROM submissions WHERE quiz_id = ? AND status IN ('completed', 'timeout')";
 
         try (Connection conn = DBUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(basicSql)) {
@@ -289,7 +427,7 @@ public class SubmissionDAO {
                          "SUM(CASE WHEN score BETWEEN 86 AND 100 THEN 1 ELSE 0 END) as range_86_100, " +
                          "SUM(CASE WHEN score >= 60 THEN 1 ELSE 0 END) as passed, " +
                          "SUM(CASE WHEN score < 60 THEN 1 ELSE 0 END) as failed " +
-                         "FROM submissions WHERE quiz_id = ? AND status = 'completed'";
+                         "FROM submissions WHERE quiz_id = ? AND status IN ('completed', 'timeout')";
 
         try (Connection conn = DBUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(distSql)) {
@@ -322,7 +460,7 @@ public class SubmissionDAO {
      * Count submissions by quiz
      */
     public int countByQuizId(Integer quizId) throws SQLException {
-        String sql = "SELECT COUNT(*) FROM submissions WHERE quiz_id = ? AND status = 'completed'";
+        String sql = "SELECT COUNT(*) FROM submissions WHERE quiz_id = ? AND status IN ('completed', 'timeout')";
 
         try (Connection conn = DBUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -364,11 +502,15 @@ public class SubmissionDAO {
      * Returns list of maps containing submission info and user details
      */
     public List<Map<String, Object>> getDetailedSubmissionsByQuiz(Integer quizId) throws SQLException {
-        String sql = "SELECT s.*, u.name as user_name, u.email as user_email, u.tag as user_tag, q.title as quiz_title " +
+        // Answered counts are aggregated for the whole quiz in the same statement
+        String sql = "SELECT s.*, u.name as user_name, u.email as user_email, u.tag as user_tag, q.title as quiz_title, " +
+                     "COALESCE(ac.answered, 0) as answered_count " +
                      "FROM submissions s " +
                      "LEFT JOIN users u ON s.user_id = u.id " +
                      "LEFT JOIN quiz q ON s.quiz_id = q.id " +
-                     "WHERE s.quiz_id = ? AND s.status = 'completed' " +
+                     "LEFT JOIN (" + answerStore.countsSql("sa.quiz_id = ? AND sa.status IN ('completed', 'timeout')") + ") ac " +
+                     "  ON ac.submission_id = s.id " +
+                     "WHERE s.quiz_id = ? AND s.status IN ('completed', 'timeout') " +
                      "ORDER BY s.score DESC, s.time_spent ASC";
         List<Map<String, Object>> detailedSubmissions = new ArrayList<>();
 
@@ -376,6 +518,7 @@ public class SubmissionDAO {
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, quizId);
+            stmt.setInt(2, quizId);
 
             try (ResultSet rs = stmt.executeQuery()) {
                 int rank = 1;
@@ -400,10 +543,12 @@ public class SubmissionDAO {
                         detail.put("submittedAt", submittedAt.toLocalDateTime());
                     }
 
-                    // Calculate unanswered questions
-                    int unanswered = rs.getInt("total_questions") - rs.getInt("correct_answers");
-                    // Note: We need to get actual answered count from answers table for accurate unanswered count
-                    detail.put("unanswered", unanswered);
+                    int totalQuestions = rs.getInt("total_questions");
+                    int correctAnswers = rs.getInt("correct_answers");
+                    int answeredCount = rs.getInt("answered_count");
+                    detail.put("answeredCount", answeredCount);
+                    detail.put("wrongCount", answeredCount - correctAnswers);
+                    detail.put("unanswered", totalQuestions - answeredCount);
 
                     detailedSubmissions.add(detail);
                 }
@@ -426,14 +571,18 @@ public class SubmissionDAO {
 
         result.put("submission", submission);
 
-        // Get all questions for this quiz with user's answers
+        // Get all questions for this quiz, then the user's answers by question
         String sql = "SELECT q.id, q.question_text, q.option_a, q.option_b, q.option_c, q.option_d, " +
-                     "q.correct_answer, q.question_order, a.selected_answer, a.is_correct " +
+                     "q.correct_answer, q.question_order " +
                      "FROM questions q " +
-                     "LEFT JOIN answers a ON q.id = a.question_id AND a.submission_id = ? " +
                      "WHERE q.quiz_id = ? " +
                      "ORDER BY q.question_order, q.id";
 
+        Map<Integer, Answer> answers = new HashMap<>();
+        for (Answer answer : answerStore.findBySubmission(submissionId)) {
+            answers.put(answer.getQuestionId(), answer);
+        }
+
         List<Map<String, Object>> questionsWithAnswers = new ArrayList<>();
         int correctCount = 0;
         int wrongCount = 0;
@@ -442,8 +591,7 @@ public class SubmissionDAO {
         try (Connection conn = DBUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setInt(1, submissionId);
-            stmt.setInt(2, submission.getQuizId());
+            stmt.setInt(1, submission.getQuizId());
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -457,8 +605,9 @@ public class SubmissionDAO {
                     qa.put("correctAnswer", rs.getString("correct_answer"));
                     qa.put("questionOrder", rs.getInt("question_order"));
 
-                    String selectedAnswer = rs.getString("selected_answer");
-                    Boolean isCorrect = rs.getBoolean("is_correct");
+                    Answer answer = answers.get(rs.getInt("id"));
+                    String selectedAnswer = answer != null ? answer.getSelectedAnswer() : null;
+                    Boolean isCorrect = answer != null && Boolean.TRUE.equals(answer.getIsCorrect());
 
                     qa.put("selectedAnswer", selectedAnswer);
                     qa.put("isCorrect", isCorrect);
@@ -466,7 +615,7 @@ public class SubmissionDAO {
 
                     if (selectedAnswer == null) {
                         unansweredCount++;
-                    } else if (isCorrect != null && isCorrect) {
+                    } else if (isCorrect) {
                         correctCount++;
                     } else {
                         wrongCount++;
@@ -486,10 +635,10 @@ public class SubmissionDAO {
     }
 
     /**
-     * Get unanswered count for a submission (actual count from answers table)
+     * Get answered count for a submission (actual count from answer storage)
      */
     public int getAnsweredCount(Integer submissionId) throws SQLException {
-        String sql = "SELECT COUNT(*) FROM answers WHERE submission_id = ?";
+        String sql = "SELECT answered FROM (" + answerStore.countsSql("sa.id = ?") + ") ac";
 
         try (Connection conn = DBUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -505,6 +654,257 @@ public class SubmissionDAO {
         return 0;
     }
 
+    /**
+     * Get start time, duration and quiz deadline of in-progress submissions
+     * (all of them, or only those of one quiz when quizId is not null)
+     */
+    public List<Map<String, Object>> findInProgressDeadlines(Integer quizId) throws SQLException {
+        String sql = "SELECT s.id, s.quiz_id, s.started_at, q.duration, q.deadline " +
+                     "FROM submissions s JOIN quiz q ON s.quiz_id = q.id " +
+                     "WHERE s.status = 'in_progress'" + (quizId != null ? " AND s.quiz_id = ?" : "");
+        List<Map<String, Object>> deadlines = new ArrayList<>();
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            if (quizId != null) {
+                stmt.setInt(1, quizId);
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Map<String, Object> row = new HashMap<>();
+                    row.put("id", rs.getInt("id"));
+                    row.put("quizId", rs.getInt("quiz_id"));
+                    row.put("startedAt", rs.getTimestamp("started_at").toLocalDateTime());
+                    row.put("duration", rs.getInt("duration"));
+                    Timestamp deadline = rs.getTimestamp("deadline");
+                    if (deadline != null) {
+                        row.put("deadline", deadline.toLocalDateTime());
+                    }
+                    deadlines.add(row);
+                }
+            }
+        }
+        return deadlines;
+    }
+
+    /**
+     * Grade and close in-progress submissions in one statement.
+     * Correct answers are counted per submission and the score is computed
+     * against the quiz's current question count, as submitQuiz does.
+     * time_spent runs to the last recorded heartbeat (or finishedAt) and is
+     * capped at the quiz duration. Returns the number of submissions that
+     * were still in progress and are now closed.
+     */
+    public int finalizeSubmissions(Collection<Integer> submissionIds, Collection<Integer> quizIds,
+                                   String status, LocalDateTime finishedAt) throws SQLException {
+        if (submissionIds.isEmpty()) {
+            return 0;
+        }
+
+        String ids = placeholders(submissionIds.size());
+        String sql = "UPDATE submissions s " +
+                     "JOIN quiz qz ON qz.id = s.quiz_id " +
+                     "LEFT JOIN (" + answerStore.countsSql("sa.id IN (" + ids + ")") + ") a ON a.submission_id = s.id " +
+                     "LEFT JOIN (SELECT quiz_id, COUNT(*) AS total FROM questions " +
+                     "           WHERE quiz_id IN (" + placeholders(quizIds.size()) + ") GROUP BY quiz_id) qc ON qc.quiz_id = s.quiz_id " +
+                     ACTIVITY_JOIN +
+                     FINALIZE_SET +
+                     "WHERE s.id IN (" + ids + ") AND s.status = 'in_progress'";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            Timestamp finished = Timestamp.valueOf(finishedAt);
+            int index = 1;
+            for (Integer id : submissionIds) {
+                stmt.setInt(index++, id);
+            }
+            for (Integer quizId : quizIds) {
+                stmt.setInt(index++, quizId);
+            }
+            stmt.setTimestamp(index++, finished);
+            stmt.setTimestamp(index++, finished);
+            stmt.setTimestamp(index++, finished);
+            stmt.setString(index++, status);
+            for (Integer id : submissionIds) {
+                stmt.setInt(index++, id);
+            }
+
+            return stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Recompute the stored correctness of every answer in a quiz's in-progress
+     * submissions from the quiz's answer key
+     */
+    public int regradeOpenAnswers(Integer quizId) throws SQLException {
+        return answerStore.regradeInProgress(quizId);
+    }
+
+    /**
+     * Grade and close every in-progress submission of a quiz in one statement.
+     * Returns the number of submissions closed.
+     */
+    public int finalizeQuizSubmissions(Integer quizId, String status, LocalDateTime finishedAt) throws SQLException {
+        String sql = "UPDATE submissions s " +
+                     "JOIN quiz qz ON qz.id = s.quiz_id " +
+                     "LEFT JOIN (" + answerStore.countsSql("sa.quiz_id = ? AND sa.status = 'in_progress'") + ") a " +
+                     "  ON a.submission_id = s.id " +
+                     "LEFT JOIN (SELECT quiz_id, COUNT(*) AS total FROM questions " +
+                     "           WHERE quiz_id = ? GROUP BY quiz_id) qc ON qc.quiz_id = s.quiz_id " +
+                     ACTIVITY_JOIN +
+                     FINALIZE_SET +
+                     "WHERE s.quiz_id = ? AND s.status = 'in_progress'";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            Timestamp finished = Timestamp.valueOf(finishedAt);
+            stmt.setInt(1, quizId);
+            stmt.setInt(2, quizId);
+            stmt.setTimestamp(3, finished);
+            stmt.setTimestamp(4, finished);
+            stmt.setTimestamp(5, finished);
+            stmt.setString(6, status);
+            stmt.setInt(7, quizId);
+
+            return stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Next chunk of submission ids to regrade, in id order after afterId.
+     * Scope: one question (questionId), one quiz (quizId) or everything (both null).
+     */
+    public List<Integer> findIdsForRegrade(Integer quizId, Integer questionId, int afterId, int limit)
+            throws SQLException {
+        String sql;
+        if (questionId != null) {
+            sql = "SELECT s.id FROM submissions s JOIN questions q ON q.quiz_id = s.quiz_id " +
+                  "WHERE q.id = ? AND s.id > ? ORDER BY s.id LIMIT ?";
+        } else if (quizId != null) {
+            sql = "SELECT id FROM submissions WHERE quiz_id = ? AND id > ? ORDER BY id LIMIT ?";
+        } else {
+            sql = "SELECT id FROM submissions WHERE id > ? ORDER BY id LIMIT ?";
+        }
+        List<Integer> ids = new ArrayList<>();
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            if (questionId != null) {
+                stmt.setInt(index++, questionId);
+            } else if (quizId != null) {
+                stmt.setInt(index++, quizId);
+            }
+            stmt.setInt(index++, afterId);
+            stmt.setInt(index, limit);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Stored and recomputed correct counts of finished submissions, using the
+     * current answer key (for regrade reports and dry runs)
+     */
+    public List<Map<String, Object>> previewRegrade(List<Integer> submissionIds) throws SQLException {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        if (submissionIds.isEmpty()) {
+            return rows;
+        }
+
+        String sql = "SELECT s.id, s.quiz_id, s.user_id, u.name as user_name, s.total_questions, " +
+                     "s.correct_answers, s.score " +
+                     "FROM submissions s " +
+                     "LEFT JOIN users u ON s.user_id = u.id " +
+                     "WHERE s.id IN (" + placeholders(submissionIds.size()) + ") " +
+                     "AND s.status IN ('completed', 'timeout')";
+        Map<Integer, Integer> newCorrect = answerStore.countCorrectByKey(submissionIds);
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            for (Integer id : submissionIds) {
+                stmt.setInt(index++, id);
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Map<String, Object> row = new HashMap<>();
+                    row.put("id", rs.getInt("id"));
+                    row.put("quizId", rs.getInt("quiz_id"));
+                    row.put("userId", rs.getInt("user_id"));
+                    row.put("userName", rs.getString("user_name"));
+                    row.put("totalQuestions", rs.getInt("total_questions"));
+                    row.put("correctAnswers", rs.getInt("correct_answers"));
+                    row.put("score", rs.getDouble("score"));
+                    row.put("newCorrectAnswers", newCorrect.getOrDefault(rs.getInt("id"), 0));
+                    rows.add(row);
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Recompute stored correctness from the current answer key for the answers
+     * of the given submissions (optionally only one question). Only answers
+     * whose value changes are written.
+     */
+    public int regradeAnswers(List<Integer> submissionIds, Integer questionId) throws SQLException {
+        return answerStore.regrade(submissionIds, questionId);
+    }
+
+    /**
+     * Recompute correct_answers and score of finished submissions from their
+     * answers' stored correctness, keeping the question count they were graded with.
+     */
+    public int rescoreSubmissions(List<Integer> submissionIds) throws SQLException {
+        if (submissionIds.isEmpty()) {
+            return 0;
+        }
+
+        String ids = placeholders(submissionIds.size());
+        String sql = "UPDATE submissions s " +
+                     "LEFT JOIN (" + answerStore.countsSql("sa.id IN (" + ids + ")") + ") a ON a.submission_id = s.id " +
+                     "SET s.correct_answers = COALESCE(a.correct, 0), " +
+                     "    s.score = CASE WHEN s.total_questions > 0 " +
+                     "              THEN ROUND(LEAST(100, COALESCE(a.correct, 0) * 100.0 / s.total_questions), 2) " +
+                     "              ELSE 0 END " +
+                     "WHERE s.id IN (" + ids + ") AND s.status IN ('completed', 'timeout')";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            for (int pass = 0; pass < 2; pass++) {
+                for (Integer id : submissionIds) {
+                    stmt.setInt(index++, id);
+                }
+            }
+            return stmt.executeUpdate();
+        }
+    }
+
+    static String placeholders(int count) {
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        return placeholders.toString();
+    }
+
     /**
      * Map ResultSet to Submission object
      */
@@ -529,6 +929,8 @@ public class SubmissionDAO {
 
         submission.setTimeSpent(rs.getInt("time_spent"));
         submission.setStatus(rs.getString("status"));
+        long shuffleSeed = rs.getLong("shuffle_seed");
+        submission.setShuffleSeed(rs.wasNull() ? null : shuffleSeed);
         submission.setUserName(rs.getString("user_name"));
         submission.setQuizTitle(rs.getString("quiz_title"));
 
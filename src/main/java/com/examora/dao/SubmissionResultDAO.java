@@ -0,0 +1,78 @@
+package com.examora.dao;
+
+import com.examora.model.SubmissionResult;
+import com.examora.util.DBUtil;
+import com.google.gson.Gson;
+
+import java.sql.*;
+import java.util.List;
+
+/**
+ * Submission Result Data Access Object - Frozen result documents (submission_results)
+ */
+public class SubmissionResultDAO {
+    private static final Gson GSON = new Gson();
+
+    /**
+     * Find the result document of a submission
+     */
+    public SubmissionResult findBySubmissionId(Integer submissionId) throws SQLException {
+        String sql = "SELECT document FROM submission_results WHERE submission_id = ?";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, submissionId);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return GSON.fromJson(rs.getString("document"), SubmissionResult.class);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Store a result document once. Nothing is written if the submission already
+     * has one, or if its score no longer matches the document (a regrade
+     * committed while the document was being built).
+     */
+    public boolean create(SubmissionResult result) throws SQLException {
+        String sql = "INSERT IGNORE INTO submission_results (submission_id, document) " +
+                     "SELECT id, ? FROM submissions WHERE id = ? AND correct_answers = ? AND score = ?";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, GSON.toJson(result));
+            stmt.setInt(2, result.getSubmissionId());
+            stmt.setInt(3, result.getCorrectAnswers());
+            stmt.setDouble(4, result.getScore());
+
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Drop the documents of regraded submissions; they are rebuilt on the next read
+     */
+    public int deleteBySubmissionIds(List<Integer> submissionIds) throws SQLException {
+        if (submissionIds.isEmpty()) {
+            return 0;
+        }
+
+        String sql = "DELETE FROM submission_results WHERE submission_id IN (" +
+                     SubmissionDAO.placeholders(submissionIds.size()) + ")";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            for (Integer id : submissionIds) {
+                stmt.setInt(index++, id);
+            }
+            return stmt.executeUpdate();
+        }
+    }
+}
@@ -5,7 +5,9 @@ import com.examora.util.DBUtil;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * User Data Access Object - Handles database operations for users
@@ -236,6 +238,24 @@ public class UserDAO {
         return 0;
     }
 
+    /**
+     * Count users grouped by role
+     */
+    public Map<String, Integer> countGroupByRole() throws SQLException {
+        String sql = "SELECT role, COUNT(*) FROM users GROUP BY role";
+        Map<String, Integer> counts = new HashMap<>();
+
+        try (Connection conn = DBUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                counts.put(rs.getString(1), rs.getInt(2));
+            }
+        }
+        return counts;
+    }
+
     /**
      * Get all unique tags
      */
@@ -3,7 +3,6 @@ package com.examora.filter;
 import com.examora.model.User;
 
 import jakarta.servlet.*;
-import jakarta.servlet.annotation.WebFilter;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
@@ -11,8 +10,8 @@ import java.io.IOException;
 
 /**
  * Authentication Filter - Protects pages that require login
+ * Mapped in web.xml ahead of LoadSheddingFilter.
  */
-@WebFilter("/*")
 public class AuthFilter implements Filter {
 
     private static final String[] PUBLIC_PATHS = {
@@ -45,8 +44,7 @@ public class AuthFilter implements Filter {
         }
 
         // Check if user is logged in
-        HttpSession session = httpRequest.getSession(false);
-        User user = session != null ? (User) session.getAttribute("user") : null;
+        User user = authenticatedUser(httpRequest.getSession(false));
 
         if (user == null) {
             // Not logged in, redirect to login
@@ -65,6 +63,13 @@ public class AuthFilter implements Filter {
         chain.doFilter(request, response);
     }
 
+    /**
+     * The logged-in user of a session, or null (also used for the exam WebSocket handshake)
+     */
+    public static User authenticatedUser(HttpSession session) {
+        return session != null ? (User) session.getAttribute("user") : null;
+    }
+
     private boolean isPublicPath(String path) {
         if (path == null || path.isEmpty()) {
             return true;
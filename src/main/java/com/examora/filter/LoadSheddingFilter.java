@@ -0,0 +1,225 @@
+package com.examora.filter;
+
+import com.examora.util.AdaptiveLimiter;
+import com.examora.util.AppConfig;
+import com.examora.util.MetricsRegistry;
+
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Load Shedding Filter - Adaptive concurrency limit per route class
+ * Every request is classified (exam writes, exam pages, admin, static, other)
+ * and must take a slot from its class's AdaptiveLimiter, whose limit follows
+ * the latency that class sees. Exam classes wait up to
+ * loadshed.queueTimeoutMillis for a slot. Admin work (statistics, reports,
+ * CSV import) is low priority: it is shed as soon as an exam class is
+ * saturated, and otherwise queues only briefly. Static assets are not limited.
+ * Mapped in web.xml after AuthFilter, so unauthenticated requests are turned
+ * away before they take a slot.
+ */
+public class LoadSheddingFilter implements Filter {
+
+    enum RouteClass {
+        EXAM_WRITE(true, 40, 10, 400),
+        EXAM_PAGE(true, 20, 5, 200),
+        ADMIN(false, 4, 1, 20),
+        OTHER(false, 20, 5, 200),
+        STATIC(false, 0, 0, 0);
+
+        final boolean critical;
+        final int initialLimit;
+        final int minLimit;
+        final int maxLimit;
+
+        RouteClass(boolean critical, int initialLimit, int minLimit, int maxLimit) {
+            this.critical = critical;
+            this.initialLimit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+        }
+
+        String key() {
+            return name().toLowerCase().replace("_", "");
+        }
+    }
+
+    private final Map<RouteClass, AdaptiveLimiter> limiters = new EnumMap<>(RouteClass.class);
+    private boolean enabled;
+    private long queueTimeoutMillis;
+    private int maxQueue;
+    private long adminQueueTimeoutMillis;
+    private int adminMaxQueue;
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        enabled = AppConfig.getBoolean("loadshed.enabled", true);
+        queueTimeoutMillis = AppConfig.getLong("loadshed.queueTimeoutMillis", 2000);
+        maxQueue = AppConfig.getInt("loadshed.maxQueue", 200);
+        adminQueueTimeoutMillis = AppConfig.getLong("loadshed.admin.queueTimeoutMillis", 500);
+        adminMaxQueue = AppConfig.getInt("loadshed.admin.maxQueue", 4);
+
+        for (RouteClass routeClass : RouteClass.values()) {
+            if (routeClass == RouteClass.STATIC) {
+                continue;
+            }
+            String prefix = "loadshed." + routeClass.key() + ".";
+            limiters.put(routeClass, new AdaptiveLimiter(routeClass.key(),
+                    AppConfig.getInt(prefix + "initialLimit", routeClass.initialLimit),
+                    AppConfig.getInt(prefix + "minLimit", routeClass.minLimit),
+                    AppConfig.getInt(prefix + "maxLimit", routeClass.maxLimit)));
+        }
+        MetricsRegistry.register("loadShedding", this::getStats);
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+
+        RouteClass routeClass = classify(httpRequest);
+        AdaptiveLimiter limiter = limiters.get(routeClass);
+        if (!enabled || limiter == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        if (!admit(routeClass, limiter)) {
+            shed(httpRequest, httpResponse);
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                // The slot is held until the async work has answered
+                request.getAsyncContext().addListener(new ReleaseListener(limiter, start));
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                limiter.release(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Releases the slot of an async request when it ends, however it ends
+     */
+    private static class ReleaseListener implements AsyncListener {
+        private final AdaptiveLimiter limiter;
+        private final long start;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        ReleaseListener(AdaptiveLimiter limiter, long start) {
+            this.limiter = limiter;
+            this.start = start;
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                limiter.release(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Dispatched again; keep listening to the new cycle
+            event.getAsyncContext().addListener(this);
+        }
+    }
+
+    private boolean admit(RouteClass routeClass, AdaptiveLimiter limiter) {
+        if (routeClass.critical) {
+            return limiter.acquire(queueTimeoutMillis, maxQueue);
+        }
+        if (routeClass == RouteClass.ADMIN) {
+            // Exam traffic first
+            if (limiters.get(RouteClass.EXAM_WRITE).isSaturated() || limiters.get(RouteClass.EXAM_PAGE).isSaturated()) {
+                limiter.shed();
+                return false;
+            }
+            return limiter.acquire(adminQueueTimeoutMillis, adminMaxQueue);
+        }
+        return limiter.acquire(queueTimeoutMillis, maxQueue);
+    }
+
+    private void shed(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setHeader("Retry-After", "2");
+        if ("POST".equals(request.getMethod())) {
+            // Same shape as the servlets' JSON errors
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setContentType("application/json");
+            response.setCharacterEncoding("UTF-8");
+            response.getWriter().write("{\"success\": false, \"message\": \"Server sedang sibuk, silakan coba lagi\"}");
+        } else {
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Server sedang sibuk, silakan coba lagi");
+        }
+    }
+
+    /**
+     * Route class from the path alone, so the request body is never read here
+     */
+    static RouteClass classify(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+
+        if (path.startsWith("/assets/") || path.endsWith(".css") || path.endsWith(".js") ||
+                path.endsWith(".png") || path.endsWith(".jpg") || path.endsWith(".gif") || path.endsWith(".svg")) {
+            return RouteClass.STATIC;
+        }
+        if (path.startsWith("/ExamServlet")) {
+            // POSTs are answer saves and submits
+            return "POST".equals(request.getMethod()) ? RouteClass.EXAM_WRITE : RouteClass.EXAM_PAGE;
+        }
+        if (path.startsWith("/user/")) {
+            return RouteClass.EXAM_PAGE;
+        }
+        if (path.startsWith("/AdminServlet") || path.startsWith("/admin/")) {
+            // Metrics must stay readable while the admin class is being shed
+            return "metrics".equals(request.getParameter("action")) ? RouteClass.OTHER : RouteClass.ADMIN;
+        }
+        return RouteClass.OTHER;
+    }
+
+    /**
+     * Limits, queue depths and shed counts per route class
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        for (AdaptiveLimiter limiter : limiters.values()) {
+            stats.put(limiter.getName(), limiter.getStats());
+        }
+        return stats;
+    }
+
+    @Override
+    public void destroy() {
+        MetricsRegistry.unregister("loadShedding");
+    }
+}
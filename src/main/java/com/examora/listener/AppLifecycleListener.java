@@ -0,0 +1,42 @@
+package com.examora.listener;
+
+import com.examora.service.AnswerWriteBuffer;
+import com.examora.service.ExamActivityTracker;
+import com.examora.service.ExamChannelHub;
+import com.examora.service.ExamExecutor;
+import com.examora.service.ExamTimeoutSweeper;
+import com.examora.service.RegradeService;
+import com.examora.util.DBUtil;
+
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.servlet.annotation.WebListener;
+
+/**
+ * Application Lifecycle Listener - Starts and stops shared infrastructure
+ */
+@WebListener
+public class AppLifecycleListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        // Resolve the connection source while the container naming context is bound
+        System.out.println("Examora starting, database connections from " + DBUtil.describe());
+        AnswerWriteBuffer.getInstance().start();
+        ExamTimeoutSweeper.getInstance().start();
+        ExamChannelHub.getInstance().start();
+        ExamActivityTracker.getInstance().start();
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        ExamChannelHub.getInstance().stop();
+        ExamTimeoutSweeper.getInstance().stop();
+        ExamActivityTracker.getInstance().stop();
+        ExamExecutor.getInstance().shutdown();
+        RegradeService.getInstance().shutdown();
+        AnswerWriteBuffer.getInstance().stop();
+        DBUtil.shutdown();
+        System.out.println("Examora stopped");
+    }
+}
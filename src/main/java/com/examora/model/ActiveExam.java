@@ -0,0 +1,118 @@
+package com.examora.model;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Active Exam Model - In-memory record of an in-progress submission
+ * Holds what the answer-save path needs to authorize a save without
+ * reading the submission row again.
+ */
+public class ActiveExam {
+    private final Integer submissionId;
+    private final Integer userId;
+    private final Integer quizId;
+    private final LocalDateTime startedAt;
+    private final Long shuffleSeed;
+    private volatile boolean closed;
+    // Saves hold the read lock; closing takes the write lock, so once close()
+    // returns no save is in flight and none can start
+    private final ReadWriteLock saveLock = new ReentrantReadWriteLock();
+
+    public ActiveExam(Integer submissionId, Integer userId, Integer quizId, LocalDateTime startedAt,
+                      Long shuffleSeed) {
+        this.submissionId = submissionId;
+        this.userId = userId;
+        this.quizId = quizId;
+        this.startedAt = startedAt;
+        this.shuffleSeed = shuffleSeed;
+    }
+
+    public static ActiveExam from(Submission submission) {
+        return new ActiveExam(submission.getId(), submission.getUserId(),
+                submission.getQuizId(), submission.getStartedAt(), submission.getShuffleSeed());
+    }
+
+    public Integer getSubmissionId() {
+        return submissionId;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public Integer getQuizId() {
+        return quizId;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Close the exam, waiting for saves already in flight
+     */
+    public void close() {
+        saveLock.writeLock().lock();
+        try {
+            this.closed = true;
+        } finally {
+            saveLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Open the exam again after a submit that did not go through
+     */
+    public void reopen() {
+        this.closed = false;
+    }
+
+    /**
+     * Enter a save; returns false if the exam is closed. A successful call
+     * must be paired with endSave().
+     */
+    public boolean beginSave() {
+        saveLock.readLock().lock();
+        if (closed) {
+            saveLock.readLock().unlock();
+            return false;
+        }
+        return true;
+    }
+
+    public void endSave() {
+        saveLock.readLock().unlock();
+    }
+
+    public boolean isOwnedBy(Integer userId) {
+        return this.userId.equals(userId);
+    }
+
+    /**
+     * Minimal in-progress submission (id, quiz, user, start time, shuffle seed)
+     */
+    public Submission toSubmission() {
+        Submission submission = new Submission(quizId, userId);
+        submission.setId(submissionId);
+        submission.setStartedAt(startedAt);
+        submission.setShuffleSeed(shuffleSeed);
+        submission.setStatus("in_progress");
+        return submission;
+    }
+
+    @Override
+    public String toString() {
+        return "ActiveExam{" +
+                "submissionId=" + submissionId +
+                ", userId=" + userId +
+                ", quizId=" + quizId +
+                ", closed=" + closed +
+                '}';
+    }
+}
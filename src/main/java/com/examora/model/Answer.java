@@ -12,6 +12,7 @@ public class Answer {
     private String selectedAnswer; // A, B, C, or D
     private Boolean isCorrect;
     private LocalDateTime answeredAt;
+    private Long clientSeq; // Sequence number sent by the exam page, if any
 
     // Related data for display
     private String questionText;
@@ -75,6 +76,14 @@ public class Answer {
         this.answeredAt = answeredAt;
     }
 
+    public Long getClientSeq() {
+        return clientSeq;
+    }
+
+    public void setClientSeq(Long clientSeq) {
+        this.clientSeq = clientSeq;
+    }
+
     public String getQuestionText() {
         return questionText;
     }
@@ -0,0 +1,141 @@
+package com.examora.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Exam Question Model - Immutable copy of a question held in a QuizSnapshot
+ * Shared by every participant taking the quiz, so it has no setters.
+ * A per-submission view may present the options in a different order;
+ * answers are always stored and graded by the original letters.
+ */
+public final class ExamQuestion {
+    public static final List<String> OPTION_LETTERS =
+            Collections.unmodifiableList(Arrays.asList("A", "B", "C", "D"));
+
+    private final Integer id;
+    private final Integer quizId;
+    private final String questionText;
+    private final String optionA;
+    private final String optionB;
+    private final String optionC;
+    private final String optionD;
+    private final String correctAnswer;
+    private final Integer questionOrder;
+    // Position in packed answers (questions.answer_slot)
+    private final Integer answerSlot;
+    // Original option letters in display order
+    private final List<String> optionOrder;
+
+    public ExamQuestion(Question question) {
+        this.id = question.getId();
+        this.quizId = question.getQuizId();
+        this.questionText = question.getQuestionText();
+        this.optionA = question.getOptionA();
+        this.optionB = question.getOptionB();
+        this.optionC = question.getOptionC();
+        this.optionD = question.getOptionD();
+        this.correctAnswer = question.getCorrectAnswer();
+        this.questionOrder = question.getQuestionOrder();
+        this.answerSlot = question.getAnswerSlot();
+        this.optionOrder = OPTION_LETTERS;
+    }
+
+    private ExamQuestion(ExamQuestion source, List<String> optionOrder) {
+        this.id = source.id;
+        this.quizId = source.quizId;
+        this.questionText = source.questionText;
+        this.optionA = source.optionA;
+        this.optionB = source.optionB;
+        this.optionC = source.optionC;
+        this.optionD = source.optionD;
+        this.correctAnswer = source.correctAnswer;
+        this.questionOrder = source.questionOrder;
+        this.answerSlot = source.answerSlot;
+        this.optionOrder = optionOrder;
+    }
+
+    /**
+     * View of this question showing its options in the given order of original letters
+     */
+    public ExamQuestion withOptionOrder(List<String> letters) {
+        return new ExamQuestion(this, Collections.unmodifiableList(letters));
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public Integer getQuizId() {
+        return quizId;
+    }
+
+    public String getQuestionText() {
+        return questionText;
+    }
+
+    public String getOptionA() {
+        return optionA;
+    }
+
+    public String getOptionB() {
+        return optionB;
+    }
+
+    public String getOptionC() {
+        return optionC;
+    }
+
+    public String getOptionD() {
+        return optionD;
+    }
+
+    public String getCorrectAnswer() {
+        return correctAnswer;
+    }
+
+    public Integer getQuestionOrder() {
+        return questionOrder;
+    }
+
+    public Integer getAnswerSlot() {
+        return answerSlot;
+    }
+
+    public List<String> getOptionOrder() {
+        return optionOrder;
+    }
+
+    // Helper method to get option by letter
+    public String getOptionByLetter(String letter) {
+        switch (letter.toUpperCase()) {
+            case "A": return optionA;
+            case "B": return optionB;
+            case "C": return optionC;
+            case "D": return optionD;
+            default: return null;
+        }
+    }
+
+    /**
+     * Rough heap footprint, used to bound the snapshot cache
+     */
+    public long estimatedBytes() {
+        return 96 + 2L * (length(questionText) + length(optionA) + length(optionB) +
+                length(optionC) + length(optionD)) + 5 * 48;
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "ExamQuestion{" +
+                "id=" + id +
+                ", quizId=" + quizId +
+                ", questionOrder=" + questionOrder +
+                '}';
+    }
+}
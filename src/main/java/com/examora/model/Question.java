@@ -15,6 +15,7 @@ public class Question {
     private String optionD;
     private String correctAnswer; // A, B, C, or D
     private Integer questionOrder;
+    private Integer answerSlot; // Stable position in packed answer storage
     private LocalDateTime createdAt;
 
     // For user answers
@@ -108,6 +109,14 @@ public class Question {
         this.questionOrder = questionOrder;
     }
 
+    public Integer getAnswerSlot() {
+        return answerSlot;
+    }
+
+    public void setAnswerSlot(Integer answerSlot) {
+        this.answerSlot = answerSlot;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -0,0 +1,142 @@
+package com.examora.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Quiz Snapshot Model - Immutable, versioned view of a quiz's questions
+ * Questions are kept in question_order; the answer key, positions and
+ * answer slots are derived once when the snapshot is built.
+ */
+public final class QuizSnapshot {
+    private final Integer quizId;
+    private final long version;
+    private final List<ExamQuestion> questions;
+    private final Map<Integer, String> answerKey;
+    private final Map<Integer, Integer> positions;
+    // questionId -> answer slot, and the questions by slot
+    private final Map<Integer, Integer> slots;
+    private final Map<Integer, ExamQuestion> bySlot;
+    private final boolean allSlotted;
+    private final int lastSlot;
+    private final long estimatedBytes;
+
+    public QuizSnapshot(Integer quizId, long version, List<Question> source) {
+        List<ExamQuestion> list = new ArrayList<>(source.size());
+        Map<Integer, String> key = new HashMap<>();
+        Map<Integer, Integer> index = new HashMap<>();
+        Map<Integer, Integer> slotIndex = new HashMap<>();
+        TreeMap<Integer, ExamQuestion> slotQuestions = new TreeMap<>();
+        boolean slotted = true;
+        long bytes = 128;
+
+        for (Question question : source) {
+            ExamQuestion examQuestion = new ExamQuestion(question);
+            index.put(examQuestion.getId(), list.size());
+            list.add(examQuestion);
+            key.put(examQuestion.getId(), examQuestion.getCorrectAnswer());
+            if (examQuestion.getAnswerSlot() != null) {
+                slotIndex.put(examQuestion.getId(), examQuestion.getAnswerSlot());
+                slotQuestions.put(examQuestion.getAnswerSlot(), examQuestion);
+            } else {
+                slotted = false;
+            }
+            bytes += examQuestion.estimatedBytes() + 128;
+        }
+
+        this.quizId = quizId;
+        this.version = version;
+        this.questions = Collections.unmodifiableList(list);
+        this.answerKey = Collections.unmodifiableMap(key);
+        this.positions = Collections.unmodifiableMap(index);
+        this.slots = Collections.unmodifiableMap(slotIndex);
+        this.bySlot = Collections.unmodifiableMap(slotQuestions);
+        this.allSlotted = slotted;
+        this.lastSlot = slotQuestions.isEmpty() ? 0 : slotQuestions.lastKey();
+        this.estimatedBytes = bytes;
+    }
+
+    public Integer getQuizId() {
+        return quizId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<ExamQuestion> getQuestions() {
+        return questions;
+    }
+
+    public int size() {
+        return questions.size();
+    }
+
+    /**
+     * questionId -> correct answer (A-D)
+     */
+    public Map<Integer, String> getAnswerKey() {
+        return answerKey;
+    }
+
+    public String getCorrectAnswer(Integer questionId) {
+        return answerKey.get(questionId);
+    }
+
+    public boolean contains(Integer questionId) {
+        return positions.containsKey(questionId);
+    }
+
+    /**
+     * Position of a question in question_order, or -1
+     */
+    public int positionOf(Integer questionId) {
+        Integer position = positions.get(questionId);
+        return position != null ? position : -1;
+    }
+
+    /**
+     * Answer slot of a question, or null when it is not in the quiz
+     */
+    public Integer slotOf(Integer questionId) {
+        return slots.get(questionId);
+    }
+
+    /**
+     * Questions by answer slot, in slot order
+     */
+    public Map<Integer, ExamQuestion> getQuestionsBySlot() {
+        return bySlot;
+    }
+
+    /**
+     * Whether every question has an answer slot
+     */
+    public boolean hasAnswerSlots() {
+        return allSlotted;
+    }
+
+    /**
+     * Highest answer slot in use, or 0
+     */
+    public int getLastAnswerSlot() {
+        return lastSlot;
+    }
+
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "QuizSnapshot{" +
+                "quizId=" + quizId +
+                ", version=" + version +
+                ", questions=" + questions.size() +
+                '}';
+    }
+}
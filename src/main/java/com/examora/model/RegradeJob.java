@@ -0,0 +1,160 @@
+package com.examora.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Regrade Job Model - Progress and report of one regrade run
+ * Written by the regrade worker and read by status requests, so the
+ * counters are volatile and the change list is synchronized.
+ */
+public class RegradeJob {
+    private final long id;
+    private final String scope; // question, quiz, global
+    private final Integer targetId;
+    private final boolean dryRun;
+    private final long createdAt;
+
+    private volatile String status = "queued"; // queued, running, done, failed
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile int submissionsScanned;
+    private volatile int answersUpdated;
+    private volatile int scoresChanged;
+    private volatile int chunks;
+    private volatile String error;
+
+    // Submissions whose score changes (or would change, in a dry run); capped
+    private final int maxReportedChanges;
+    private final List<Map<String, Object>> changes = new ArrayList<>();
+
+    public RegradeJob(long id, String scope, Integer targetId, boolean dryRun, int maxReportedChanges) {
+        this.id = id;
+        this.scope = scope;
+        this.targetId = targetId;
+        this.dryRun = dryRun;
+        this.maxReportedChanges = maxReportedChanges;
+        this.createdAt = System.currentTimeMillis();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public Integer getTargetId() {
+        return targetId;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(long startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(long finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public int getSubmissionsScanned() {
+        return submissionsScanned;
+    }
+
+    public int getAnswersUpdated() {
+        return answersUpdated;
+    }
+
+    public int getScoresChanged() {
+        return scoresChanged;
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    /**
+     * Record the outcome of one chunk
+     */
+    public void addChunk(int scanned, int answers, List<Map<String, Object>> changed) {
+        submissionsScanned += scanned;
+        answersUpdated += answers;
+        scoresChanged += changed.size();
+        chunks++;
+        synchronized (changes) {
+            for (Map<String, Object> change : changed) {
+                if (changes.size() >= maxReportedChanges) {
+                    break;
+                }
+                changes.add(change);
+            }
+        }
+    }
+
+    public List<Map<String, Object>> getChanges() {
+        synchronized (changes) {
+            return Collections.unmodifiableList(new ArrayList<>(changes));
+        }
+    }
+
+    public boolean isFinished() {
+        return "done".equals(status) || "failed".equals(status);
+    }
+
+    /**
+     * Consistent view of the job for JSON responses
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", id);
+        map.put("scope", scope);
+        map.put("targetId", targetId);
+        map.put("dryRun", dryRun);
+        map.put("status", status);
+        map.put("createdAt", createdAt);
+        map.put("startedAt", startedAt);
+        map.put("finishedAt", finishedAt);
+        map.put("submissionsScanned", submissionsScanned);
+        map.put("answersUpdated", answersUpdated);
+        map.put("scoresChanged", scoresChanged);
+        map.put("chunks", chunks);
+        map.put("error", error);
+        map.put("changes", getChanges());
+        return map;
+    }
+}
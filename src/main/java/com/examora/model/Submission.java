@@ -17,6 +17,7 @@ public class Submission {
     private LocalDateTime submittedAt;
     private Integer timeSpent; // in seconds
     private String status; // in_progress, completed, timeout
+    private Long shuffleSeed; // question/option order for this attempt
 
     // Related data
     private String userName;
@@ -117,6 +118,14 @@ public class Submission {
         this.status = status;
     }
 
+    public Long getShuffleSeed() {
+        return shuffleSeed;
+    }
+
+    public void setShuffleSeed(Long shuffleSeed) {
+        this.shuffleSeed = shuffleSeed;
+    }
+
     public String getUserName() {
         return userName;
     }
@@ -150,6 +159,15 @@ public class Submission {
         return "in_progress".equals(status);
     }
 
+    public boolean isTimedOut() {
+        return "timeout".equals(status);
+    }
+
+    // Completed by the participant or closed by the server when time ran out
+    public boolean isFinished() {
+        return isCompleted() || isTimedOut();
+    }
+
     public String getFormattedTimeSpent() {
         if (timeSpent == null) return "N/A";
         int minutes = timeSpent / 60;
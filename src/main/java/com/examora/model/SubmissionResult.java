@@ -0,0 +1,208 @@
+package com.examora.model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Submission Result Model - Frozen result document of a finished submission
+ * Everything the result pages show (score, titles, every question with the
+ * selected and correct answer) denormalized into one object, stored as JSON
+ * in submission_results. Dates are kept as ISO strings so the document
+ * serializes without custom adapters.
+ */
+public class SubmissionResult {
+    private Integer submissionId;
+    private Integer quizId;
+    private Integer userId;
+    private String userName;
+    private String quizTitle;
+    private String status;
+    private Double score;
+    private Integer totalQuestions;
+    private Integer correctAnswers;
+    private Integer timeSpent;
+    private String startedAt;
+    private String submittedAt;
+    private int correctCount;
+    private int wrongCount;
+    private int unansweredCount;
+    private String builtAt;
+    private List<Item> items = new ArrayList<>();
+
+    /**
+     * One question as it was graded
+     */
+    public static class Item {
+        private Integer questionId;
+        private Integer questionOrder;
+        private String questionText;
+        private String optionA;
+        private String optionB;
+        private String optionC;
+        private String optionD;
+        private String correctAnswer;
+        private String selectedAnswer;
+        private boolean correct;
+
+        public Integer getQuestionId() {
+            return questionId;
+        }
+
+        public String getQuestionText() {
+            return questionText;
+        }
+
+        public String getCorrectAnswer() {
+            return correctAnswer;
+        }
+
+        public String getSelectedAnswer() {
+            return selectedAnswer;
+        }
+
+        public boolean isCorrect() {
+            return correct;
+        }
+    }
+
+    /**
+     * Build the document from SubmissionDAO.getSubmissionDetailWithAnswers
+     */
+    @SuppressWarnings("unchecked")
+    public static SubmissionResult fromDetail(Map<String, Object> detail) {
+        Submission submission = (Submission) detail.get("submission");
+        SubmissionResult result = new SubmissionResult();
+        result.submissionId = submission.getId();
+        result.quizId = submission.getQuizId();
+        result.userId = submission.getUserId();
+        result.userName = submission.getUserName();
+        result.quizTitle = submission.getQuizTitle();
+        result.status = submission.getStatus();
+        result.score = submission.getScore();
+        result.totalQuestions = submission.getTotalQuestions();
+        result.correctAnswers = submission.getCorrectAnswers();
+        result.timeSpent = submission.getTimeSpent();
+        result.startedAt = format(submission.getStartedAt());
+        result.submittedAt = format(submission.getSubmittedAt());
+        result.correctCount = (Integer) detail.get("correctCount");
+        result.wrongCount = (Integer) detail.get("wrongCount");
+        result.unansweredCount = (Integer) detail.get("unansweredCount");
+        result.builtAt = format(LocalDateTime.now());
+
+        for (Map<String, Object> qa : (List<Map<String, Object>>) detail.get("questions")) {
+            Item item = new Item();
+            item.questionId = (Integer) qa.get("questionId");
+            item.questionOrder = (Integer) qa.get("questionOrder");
+            item.questionText = (String) qa.get("questionText");
+            item.optionA = (String) qa.get("optionA");
+            item.optionB = (String) qa.get("optionB");
+            item.optionC = (String) qa.get("optionC");
+            item.optionD = (String) qa.get("optionD");
+            item.correctAnswer = (String) qa.get("correctAnswer");
+            item.selectedAnswer = (String) qa.get("selectedAnswer");
+            item.correct = Boolean.TRUE.equals(qa.get("isCorrect"));
+            result.items.add(item);
+        }
+        return result;
+    }
+
+    /**
+     * Submission with its answered questions, as the participant result page expects
+     */
+    public Submission toSubmission() {
+        Submission submission = new Submission();
+        submission.setId(submissionId);
+        submission.setQuizId(quizId);
+        submission.setUserId(userId);
+        submission.setUserName(userName);
+        submission.setQuizTitle(quizTitle);
+        submission.setStatus(status);
+        submission.setScore(score);
+        submission.setTotalQuestions(totalQuestions);
+        submission.setCorrectAnswers(correctAnswers);
+        submission.setTimeSpent(timeSpent);
+        submission.setStartedAt(parse(startedAt));
+        submission.setSubmittedAt(parse(submittedAt));
+
+        List<Answer> answers = new ArrayList<>();
+        for (Item item : items) {
+            if (item.selectedAnswer == null) {
+                continue;
+            }
+            Answer answer = new Answer(submissionId, item.questionId, item.selectedAnswer);
+            answer.setIsCorrect(item.correct);
+            answer.setQuestionText(item.questionText);
+            answer.setCorrectAnswer(item.correctAnswer);
+            answers.add(answer);
+        }
+        submission.setAnswers(answers);
+        return submission;
+    }
+
+    /**
+     * Same shape as SubmissionDAO.getSubmissionDetailWithAnswers, for the admin detail page
+     */
+    public Map<String, Object> toDetailMap() {
+        List<Map<String, Object>> questions = new ArrayList<>();
+        for (Item item : items) {
+            Map<String, Object> qa = new HashMap<>();
+            qa.put("questionId", item.questionId);
+            qa.put("questionText", item.questionText);
+            qa.put("optionA", item.optionA);
+            qa.put("optionB", item.optionB);
+            qa.put("optionC", item.optionC);
+            qa.put("optionD", item.optionD);
+            qa.put("correctAnswer", item.correctAnswer);
+            qa.put("questionOrder", item.questionOrder);
+            qa.put("selectedAnswer", item.selectedAnswer);
+            qa.put("isCorrect", item.correct);
+            qa.put("answered", item.selectedAnswer != null);
+            questions.add(qa);
+        }
+
+        Map<String, Object> detail = new HashMap<>();
+        detail.put("submission", toSubmission());
+        detail.put("questions", questions);
+        detail.put("correctCount", correctCount);
+        detail.put("wrongCount", wrongCount);
+        detail.put("unansweredCount", unansweredCount);
+        return detail;
+    }
+
+    private static String format(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.toString() : null;
+    }
+
+    private static LocalDateTime parse(String dateTime) {
+        return dateTime != null ? LocalDateTime.parse(dateTime) : null;
+    }
+
+    // Getters
+
+    public Integer getSubmissionId() {
+        return submissionId;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public Double getScore() {
+        return score;
+    }
+
+    public Integer getCorrectAnswers() {
+        return correctAnswers;
+    }
+
+    public String getBuiltAt() {
+        return builtAt;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+}
@@ -0,0 +1,140 @@
+package com.examora.service;
+
+import com.examora.dao.SubmissionDAO;
+import com.examora.model.ActiveExam;
+import com.examora.model.Submission;
+import com.examora.util.MetricsRegistry;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Active Exam Registry - In-memory records of in-progress submissions
+ * Registered when an exam is started or opened and removed when it is
+ * submitted, so answer saves can check ownership and status without a query.
+ */
+public class ActiveExamRegistry {
+    private static final ActiveExamRegistry INSTANCE = new ActiveExamRegistry();
+
+    private final Map<Integer, ActiveExam> exams = new ConcurrentHashMap<>();
+    // Submission id per user and quiz, for repeated starts
+    private final Map<Long, Integer> byUserQuiz = new ConcurrentHashMap<>();
+    private final SubmissionDAO submissionDAO = new SubmissionDAO();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private ActiveExamRegistry() {
+        MetricsRegistry.register("activeExams", this::getStats);
+    }
+
+    public static ActiveExamRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Record an in-progress submission (completed ones are ignored)
+     */
+    public ActiveExam register(Submission submission) {
+        if (submission == null || submission.getId() == null || !submission.isInProgress()) {
+            return null;
+        }
+        ActiveExam exam = ActiveExam.from(submission);
+        ActiveExam existing = exams.putIfAbsent(submission.getId(), exam);
+        if (existing == null) {
+            byUserQuiz.put(userQuizKey(exam.getUserId(), exam.getQuizId()), exam.getSubmissionId());
+        }
+        return existing != null ? existing : exam;
+    }
+
+    /**
+     * The user's open exam for a quiz if this node tracks it, without a query
+     */
+    public ActiveExam find(Integer userId, Integer quizId) {
+        Integer submissionId = byUserQuiz.get(userQuizKey(userId, quizId));
+        ActiveExam exam = submissionId != null ? exams.get(submissionId) : null;
+        return exam != null && !exam.isClosed() ? exam : null;
+    }
+
+    /**
+     * Get the active exam for a submission, loading it once on a miss.
+     * Returns null when the submission does not exist or is no longer in progress.
+     */
+    public ActiveExam get(Integer submissionId) throws SQLException {
+        ActiveExam exam = exams.get(submissionId);
+        if (exam != null) {
+            hits.increment();
+            return exam;
+        }
+
+        misses.increment();
+        return register(submissionDAO.findById(submissionId));
+    }
+
+    /**
+     * The active exam for a submission if this node already tracks it, without a query
+     */
+    public ActiveExam peek(Integer submissionId) {
+        return exams.get(submissionId);
+    }
+
+    /**
+     * Close and forget a submission (after submit or timeout)
+     */
+    public void remove(Integer submissionId) {
+        ActiveExam exam = exams.remove(submissionId);
+        if (exam != null) {
+            exam.close();
+            byUserQuiz.remove(userQuizKey(exam.getUserId(), exam.getQuizId()), submissionId);
+        }
+    }
+
+    /**
+     * Close every tracked exam of a quiz without forgetting it (before a bulk
+     * close); waits for saves in flight. Returns the exams closed, to be
+     * reopened if the bulk close fails.
+     */
+    public List<ActiveExam> closeByQuiz(Integer quizId) {
+        List<ActiveExam> closed = new ArrayList<>();
+        for (ActiveExam exam : exams.values()) {
+            if (exam.getQuizId().equals(quizId) && !exam.isClosed()) {
+                exam.close();
+                closed.add(exam);
+            }
+        }
+        return closed;
+    }
+
+    /**
+     * Forget every exam of a quiz (quiz deleted)
+     */
+    public void removeByQuiz(Integer quizId) {
+        exams.values().removeIf(exam -> {
+            if (exam.getQuizId().equals(quizId)) {
+                exam.close();
+                byUserQuiz.remove(userQuizKey(exam.getUserId(), quizId), exam.getSubmissionId());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private static long userQuizKey(Integer userId, Integer quizId) {
+        return ((long) userId << 32) | (quizId & 0xffffffffL);
+    }
+
+    /**
+     * Registry counters for the metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("active", exams.size());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,402 @@
+package com.examora.service;
+
+import com.examora.dao.SubmissionDAO;
+import com.examora.model.Answer;
+import com.examora.util.AnswerJournal;
+import com.examora.util.AppConfig;
+import com.examora.util.MetricsRegistry;
+import com.examora.util.Threads;
+import com.examora.util.Transaction;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.BatchUpdateException;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Answer Write Buffer - Write-behind ingest for exam answers
+ * In "buffered" mode a save is acknowledged once it is appended to the local
+ * AnswerJournal. The newest answer per (submission, question) is kept in
+ * memory and flushed to the answers table in JDBC batches. Journal segments are only
+ * deleted after the answers they hold are committed, and leftover segments are
+ * replayed on startup. When a batch is rejected, its rows are written one by
+ * one: rows the database refuses for good (e.g. the question was deleted) are
+ * logged and dropped, so they cannot block every later flush and submit;
+ * any other error keeps the rows pending for the next flush.
+ */
+public class AnswerWriteBuffer {
+    private static final AnswerWriteBuffer INSTANCE = new AnswerWriteBuffer();
+
+    private final boolean enabled;
+    private final long flushIntervalMillis;
+    private final int batchSize;
+    private final SubmissionDAO submissionDAO = new SubmissionDAO();
+
+    // submissionId -> (questionId -> latest answer)
+    private final Map<Integer, Map<Integer, Answer>> pending = new ConcurrentHashMap<>();
+    // Appends hold the read lock; journal rotation takes the write lock so every
+    // record in a sealed segment is already visible in the pending map
+    private final ReentrantReadWriteLock rotationLock = new ReentrantReadWriteLock();
+    // Serializes database writes so an older snapshot never overwrites a newer answer
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder flushedRows = new LongAdder();
+    private final LongAdder flushBatches = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+    private final LongAdder droppedRows = new LongAdder();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong lastFlushMillis = new AtomicLong();
+    private long bytesAtLastRotation = -1;
+
+    private AnswerJournal journal;
+    private ScheduledExecutorService flusher;
+
+    private AnswerWriteBuffer() {
+        this.enabled = "buffered".equalsIgnoreCase(AppConfig.get("answer.ingest.mode", "direct"));
+        this.flushIntervalMillis = Math.max(50, AppConfig.getLong("answer.flush.intervalMillis", 500));
+        this.batchSize = Math.max(1, AppConfig.getInt("answer.flush.batchSize", 500));
+    }
+
+    public static AnswerWriteBuffer getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Whether saves go through the buffer (answer.ingest.mode=buffered)
+     */
+    public boolean isEnabled() {
+        return enabled && journal != null;
+    }
+
+    /**
+     * Open the journal, replay unflushed records and start the flusher
+     */
+    public void start() {
+        if (!enabled || journal != null) {
+            return;
+        }
+
+        try {
+            journal = new AnswerJournal(resolveJournalDir(), AppConfig.getBoolean("answer.journal.fsync", false));
+        } catch (IOException e) {
+            System.err.println("AnswerWriteBuffer: journal unavailable, falling back to direct writes: " + e.getMessage());
+            return;
+        }
+
+        replay();
+
+        flusher = Executors.newSingleThreadScheduledExecutor(Threads.factory("answer-flusher", false));
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+
+        MetricsRegistry.register("answerBuffer", this::getStats);
+        System.out.println("AnswerWriteBuffer: buffered ingest enabled, journal at " + journal.getDirectory());
+    }
+
+    /**
+     * Stop the flusher and write everything that is still pending
+     */
+    public void stop() {
+        if (journal == null) {
+            return;
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+        journal.close();
+    }
+
+    /**
+     * Acknowledge an answer: journal it, then make it the latest pending value
+     */
+    public void append(Answer answer) throws IOException {
+        rotationLock.readLock().lock();
+        try {
+            journal.append(answer);
+            keepNewest(answer);
+        } finally {
+            rotationLock.readLock().unlock();
+        }
+        appended.increment();
+    }
+
+    /**
+     * Acknowledge several answers with a single journal write
+     */
+    public void appendAll(List<Answer> answers) throws IOException {
+        if (answers.isEmpty()) {
+            return;
+        }
+        rotationLock.readLock().lock();
+        try {
+            journal.appendAll(answers);
+            for (Answer answer : answers) {
+                keepNewest(answer);
+            }
+        } finally {
+            rotationLock.readLock().unlock();
+        }
+        appended.add(answers.size());
+    }
+
+    /**
+     * Answers of a submission that are acknowledged but not yet flushed
+     */
+    public Map<Integer, Answer> getPending(Integer submissionId) {
+        Map<Integer, Answer> answers = pending.get(submissionId);
+        return answers != null ? new HashMap<>(answers) : new HashMap<>();
+    }
+
+    /**
+     * Write all pending answers of one submission (used before grading)
+     */
+    public void flushSubmission(Integer submissionId) throws SQLException {
+        flushSubmissions(Collections.singletonList(submissionId));
+    }
+
+    /**
+     * Write all pending answers of several submissions in one pass (used before bulk grading)
+     */
+    public void flushSubmissions(Collection<Integer> submissionIds) throws SQLException {
+        if (!isEnabled()) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            List<Answer> batch = new ArrayList<>();
+            for (Integer submissionId : submissionIds) {
+                Map<Integer, Answer> answers = pending.get(submissionId);
+                if (answers != null) {
+                    batch.addAll(answers.values());
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            write(batch);
+            for (Answer answer : batch) {
+                Map<Integer, Answer> answers = pending.get(answer.getSubmissionId());
+                if (answers != null) {
+                    answers.remove(answer.getQuestionId(), answer);
+                }
+            }
+            removeEmptySubmissions();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Write every pending answer and drop journal segments that are covered
+     */
+    public void flush() throws IOException, SQLException {
+        if (journal == null) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            // Nothing appended since the last flush: no need to rotate an empty segment
+            if (pending.isEmpty() && journal.getBytesWritten() == bytesAtLastRotation) {
+                return;
+            }
+
+            long sealed;
+            rotationLock.writeLock().lock();
+            try {
+                sealed = journal.rotate();
+                bytesAtLastRotation = journal.getBytesWritten();
+            } finally {
+                rotationLock.writeLock().unlock();
+            }
+
+            List<Answer> batch = new ArrayList<>();
+            for (Map<Integer, Answer> answers : pending.values()) {
+                batch.addAll(answers.values());
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                for (Answer answer : batch) {
+                    Map<Integer, Answer> answers = pending.get(answer.getSubmissionId());
+                    if (answers != null) {
+                        answers.remove(answer.getQuestionId(), answer);
+                    }
+                }
+                removeEmptySubmissions();
+            }
+
+            journal.deleteUpTo(sealed);
+            lastFlushMillis.set(System.currentTimeMillis());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Buffer counters for the metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        int pendingAnswers = 0;
+        for (Map<Integer, Answer> answers : pending.values()) {
+            pendingAnswers += answers.size();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("pendingSubmissions", pending.size());
+        stats.put("pendingAnswers", pendingAnswers);
+        stats.put("appended", appended.sum());
+        stats.put("flushedRows", flushedRows.sum());
+        stats.put("flushBatches", flushBatches.sum());
+        stats.put("flushFailures", flushFailures.sum());
+        stats.put("droppedRows", droppedRows.sum());
+        stats.put("replayed", replayed.get());
+        stats.put("journalBytesWritten", journal != null ? journal.getBytesWritten() : 0);
+        stats.put("lastFlushAt", lastFlushMillis.get());
+        return stats;
+    }
+
+    /**
+     * Make an answer the pending value of its question unless the pending one
+     * has a newer client sequence (same rule as the stores, so a reordered
+     * save is dropped here without touching the database)
+     */
+    private void keepNewest(Answer answer) {
+        pending.computeIfAbsent(answer.getSubmissionId(), id -> new ConcurrentHashMap<>())
+               .merge(answer.getQuestionId(), answer, (current, incoming) ->
+                       incoming.getClientSeq() == null || current.getClientSeq() == null
+                               || incoming.getClientSeq() > current.getClientSeq() ? incoming : current);
+    }
+
+    /**
+     * Drop drained per-submission maps; holds the write lock so a concurrent
+     * append cannot put into a map that is being removed
+     */
+    private void removeEmptySubmissions() {
+        rotationLock.writeLock().lock();
+        try {
+            pending.values().removeIf(Map::isEmpty);
+        } finally {
+            rotationLock.writeLock().unlock();
+        }
+    }
+
+    private void write(List<Answer> answers) throws SQLException {
+        for (int from = 0; from < answers.size(); from += batchSize) {
+            List<Answer> chunk = answers.subList(from, Math.min(answers.size(), from + batchSize));
+            int written = chunk.size();
+            try (Transaction tx = Transaction.begin()) {
+                submissionDAO.saveAnswers(chunk);
+                tx.commit();
+            } catch (SQLException e) {
+                flushFailures.increment();
+                if (!(e instanceof BatchUpdateException) && !isPermanent(e)) {
+                    throw e;
+                }
+                // Find the rows that were refused; the others still go in
+                written = writeRows(chunk);
+            }
+            flushBatches.increment();
+            flushedRows.add(written);
+        }
+    }
+
+    /**
+     * Write a rejected batch row by row, dropping rows refused for good;
+     * rethrows the first error that may go away on a retry. Returns the rows written.
+     */
+    private int writeRows(List<Answer> answers) throws SQLException {
+        int written = 0;
+        for (Answer answer : answers) {
+            try {
+                submissionDAO.saveAnswer(answer);
+                written++;
+            } catch (SQLException e) {
+                if (!isPermanent(e)) {
+                    throw e;
+                }
+                droppedRows.increment();
+                System.err.println("AnswerWriteBuffer: dropping answer submission=" + answer.getSubmissionId() +
+                        " question=" + answer.getQuestionId() + " answer=" + answer.getSelectedAnswer() +
+                        " seq=" + answer.getClientSeq() + ": " + e.getMessage());
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Constraint and data errors (SQLSTATE classes 23 and 22, e.g. a foreign
+     * key to a deleted question) fail the same way on every retry
+     */
+    private static boolean isPermanent(SQLException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLIntegrityConstraintViolationException || cause instanceof SQLDataException) {
+                return true;
+            }
+            if (cause instanceof SQLException) {
+                String state = ((SQLException) cause).getSQLState();
+                if (state != null && (state.startsWith("23") || state.startsWith("22"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void replay() {
+        try {
+            List<Answer> records = journal.readAll();
+            for (Answer answer : records) {
+                keepNewest(answer);
+            }
+            replayed.set(records.size());
+            if (!records.isEmpty()) {
+                System.out.println("AnswerWriteBuffer: replaying " + records.size() + " journaled answers");
+                flush();
+            }
+        } catch (IOException | SQLException e) {
+            // Records stay pending and their segments stay on disk until a flush succeeds
+            System.err.println("AnswerWriteBuffer: replay incomplete, will retry: " + e.getMessage());
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException | SQLException | RuntimeException e) {
+            System.err.println("AnswerWriteBuffer: flush failed, will retry: " + e.getMessage());
+        }
+    }
+
+    private Path resolveJournalDir() {
+        String configured = AppConfig.get("answer.journal.dir", "");
+        if (!configured.isEmpty()) {
+            return Paths.get(configured);
+        }
+        String catalinaBase = System.getProperty("catalina.base");
+        if (catalinaBase != null) {
+            return Paths.get(catalinaBase, "data", "answer-journal");
+        }
+        return Paths.get(System.getProperty("java.io.tmpdir"), "examora-answer-journal");
+    }
+}
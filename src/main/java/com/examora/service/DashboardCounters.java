@@ -0,0 +1,283 @@
+package com.examora.service;
+
+import com.examora.dao.QuizDAO;
+import com.examora.dao.SubmissionDAO;
+import com.examora.dao.UserDAO;
+import com.examora.util.AppConfig;
+import com.examora.util.MetricsRegistry;
+import com.examora.util.Transaction;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Dashboard Counters - Totals shown on the admin dashboard
+ * Counts are loaded once with grouped COUNT queries and then kept current by
+ * the services as they write. They are reloaded when marked stale (e.g. after
+ * a cascading delete) and at least every dashboard.resyncMillis, which also
+ * picks up changes made by other nodes or directly in the database. Changes
+ * notified after the reload has read its counts are applied on top of them.
+ * A change that commits while the COUNT queries run may be missed, or
+ * counted twice, until the next resync.
+ */
+public class DashboardCounters {
+    private static final DashboardCounters INSTANCE = new DashboardCounters();
+
+    private final UserDAO userDAO = new UserDAO();
+    private final QuizDAO quizDAO = new QuizDAO();
+    private final SubmissionDAO submissionDAO = new SubmissionDAO();
+    private final long resyncMillis;
+
+    private final Counts live = new Counts();
+    // Changes notified after a reload read its counts; applied on top of them
+    private Counts changedDuringLoad;
+    // Notifications hold the read lock; installing reloaded counts takes the write lock
+    private final ReentrantReadWriteLock changeLock = new ReentrantReadWriteLock();
+
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    // 0 = not loaded yet (or marked stale)
+    private volatile long loadedAt = 0;
+
+    private DashboardCounters() {
+        this.resyncMillis = Math.max(1000, AppConfig.getLong("dashboard.resyncMillis", 300000));
+        MetricsRegistry.register("dashboardCounters", this::getStats);
+    }
+
+    public static DashboardCounters getInstance() {
+        return INSTANCE;
+    }
+
+    public long countUsers(String role) throws SQLException {
+        ensureLoaded();
+        return valueOf(live.usersByRole, role);
+    }
+
+    public long countQuizzes() throws SQLException {
+        ensureLoaded();
+        return live.quizzes.get();
+    }
+
+    public long countActiveQuizzes() throws SQLException {
+        ensureLoaded();
+        return live.activeQuizzes.get();
+    }
+
+    public long countSubmissions(String status) throws SQLException {
+        ensureLoaded();
+        return valueOf(live.submissionsByStatus, status);
+    }
+
+    public long countSubmissions() throws SQLException {
+        ensureLoaded();
+        long total = 0;
+        for (AtomicLong count : live.submissionsByStatus.values()) {
+            total += count.get();
+        }
+        return total;
+    }
+
+    // Write notifications (call after the change is committed)
+
+    public void userCreated(String role) {
+        record(counts -> add(counts.usersByRole, role, 1));
+    }
+
+    public void userRoleChanged(String oldRole, String newRole) {
+        if (oldRole != null && !oldRole.equals(newRole)) {
+            record(counts -> {
+                add(counts.usersByRole, oldRole, -1);
+                add(counts.usersByRole, newRole, 1);
+            });
+        }
+    }
+
+    public void quizCreated(boolean active) {
+        record(counts -> {
+            counts.quizzes.incrementAndGet();
+            if (active) {
+                counts.activeQuizzes.incrementAndGet();
+            }
+        });
+    }
+
+    public void quizStatusChanged(boolean wasActive, boolean active) {
+        if (wasActive != active) {
+            record(counts -> counts.activeQuizzes.addAndGet(active ? 1 : -1));
+        }
+    }
+
+    public void quizDeleted(boolean wasActive) {
+        record(counts -> {
+            counts.quizzes.decrementAndGet();
+            if (wasActive) {
+                counts.activeQuizzes.decrementAndGet();
+            }
+        });
+    }
+
+    public void submissionStarted() {
+        record(counts -> add(counts.submissionsByStatus, "in_progress", 1));
+    }
+
+    public void submissionFinished(String status) {
+        submissionsFinished(status, 1);
+    }
+
+    /**
+     * Several submissions finished at once (bulk close)
+     */
+    public void submissionsFinished(String status, int count) {
+        if (count <= 0) {
+            return;
+        }
+        record(counts -> {
+            add(counts.submissionsByStatus, "in_progress", -count);
+            add(counts.submissionsByStatus, status, count);
+        });
+    }
+
+    /**
+     * Force a reload on the next read (for changes that cannot be tracked cheaply)
+     */
+    public void markStale() {
+        loadedAt = 0;
+    }
+
+    /**
+     * Counters for the metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("loadedAt", loadedAt);
+        stats.put("quizzes", live.quizzes.get());
+        stats.put("activeQuizzes", live.activeQuizzes.get());
+        stats.put("usersByRole", snapshot(live.usersByRole));
+        stats.put("submissionsByStatus", snapshot(live.submissionsByStatus));
+        return stats;
+    }
+
+    private void ensureLoaded() throws SQLException {
+        long loaded = loadedAt;
+        if (loaded != 0 && System.currentTimeMillis() - loaded < resyncMillis) {
+            return;
+        }
+
+        reloadLock.lock();
+        try {
+            // Another thread may have reloaded while we waited
+            loaded = loadedAt;
+            if (loaded != 0 && System.currentTimeMillis() - loaded < resyncMillis) {
+                return;
+            }
+
+            Counts loadedCounts = new Counts();
+            try (Transaction tx = Transaction.begin()) {
+                set(loadedCounts.usersByRole, userDAO.countGroupByRole());
+                loadedCounts.quizzes.set(quizDAO.countAll());
+                loadedCounts.activeQuizzes.set(quizDAO.countActive());
+                set(loadedCounts.submissionsByStatus, submissionDAO.countGroupByStatus());
+                tx.commit();
+            }
+            // Only changes notified from here on can be missing from the counts
+            Counts changed = new Counts();
+            setChangedDuringLoad(changed);
+
+            changeLock.writeLock().lock();
+            try {
+                replace(live.usersByRole, loadedCounts.usersByRole, changed.usersByRole);
+                replace(live.submissionsByStatus, loadedCounts.submissionsByStatus, changed.submissionsByStatus);
+                live.quizzes.set(loadedCounts.quizzes.get() + changed.quizzes.get());
+                live.activeQuizzes.set(loadedCounts.activeQuizzes.get() + changed.activeQuizzes.get());
+                changedDuringLoad = null;
+                loadedAt = System.currentTimeMillis();
+            } finally {
+                changeLock.writeLock().unlock();
+            }
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    /**
+     * Apply a change to the live counts (once loaded; before that the
+     * database is the source of truth) and to a reload in progress
+     */
+    private void record(Consumer<Counts> change) {
+        changeLock.readLock().lock();
+        try {
+            if (loadedAt != 0) {
+                change.accept(live);
+            }
+            Counts changed = changedDuringLoad;
+            if (changed != null) {
+                change.accept(changed);
+            }
+        } finally {
+            changeLock.readLock().unlock();
+        }
+    }
+
+    private void setChangedDuringLoad(Counts changed) {
+        changeLock.writeLock().lock();
+        try {
+            changedDuringLoad = changed;
+        } finally {
+            changeLock.writeLock().unlock();
+        }
+    }
+
+    private static void add(Map<String, AtomicLong> counters, String key, long delta) {
+        if (key != null) {
+            counters.computeIfAbsent(key, k -> new AtomicLong()).addAndGet(delta);
+        }
+    }
+
+    private static long valueOf(Map<String, AtomicLong> counters, String key) {
+        AtomicLong count = counters.get(key);
+        return count != null ? count.get() : 0;
+    }
+
+    private static void set(Map<String, AtomicLong> counters, Map<String, Integer> values) {
+        for (Map.Entry<String, Integer> entry : values.entrySet()) {
+            counters.put(entry.getKey(), new AtomicLong(entry.getValue()));
+        }
+    }
+
+    private static void replace(Map<String, AtomicLong> counters, Map<String, AtomicLong> loaded,
+                                Map<String, AtomicLong> changed) {
+        for (Map.Entry<String, AtomicLong> entry : counters.entrySet()) {
+            entry.getValue().set(valueOf(loaded, entry.getKey()) + valueOf(changed, entry.getKey()));
+        }
+        for (Map.Entry<String, AtomicLong> entry : loaded.entrySet()) {
+            counters.computeIfAbsent(entry.getKey(), k -> new AtomicLong())
+                    .set(entry.getValue().get() + valueOf(changed, entry.getKey()));
+        }
+        for (Map.Entry<String, AtomicLong> entry : changed.entrySet()) {
+            counters.computeIfAbsent(entry.getKey(), k -> new AtomicLong(entry.getValue().get()));
+        }
+    }
+
+    private static Map<String, Long> snapshot(Map<String, AtomicLong> counters) {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (Map.Entry<String, AtomicLong> entry : counters.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().get());
+        }
+        return values;
+    }
+
+    /**
+     * One set of totals (the live counts, or the changes seen during a reload)
+     */
+    private static final class Counts {
+        final Map<String, AtomicLong> usersByRole = new ConcurrentHashMap<>();
+        final Map<String, AtomicLong> submissionsByStatus = new ConcurrentHashMap<>();
+        final AtomicLong quizzes = new AtomicLong();
+        final AtomicLong activeQuizzes = new AtomicLong();
+    }
+}
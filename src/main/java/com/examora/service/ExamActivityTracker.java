@@ -0,0 +1,237 @@
+package com.examora.service;
+
+import com.examora.dao.QuizSessionDAO;
+import com.examora.model.ActiveExam;
+import com.examora.util.AppConfig;
+import com.examora.util.MetricsRegistry;
+import com.examora.util.Threads;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Exam Activity Tracker - Last sign of life of each in-progress submission
+ * Heartbeats (answer saves, the exam page's heartbeat request, an open exam
+ * socket) only update an in-memory timestamp. Every
+ * exam.activity.flushSeconds the timestamps that moved are written to
+ * quiz_sessions.last_activity in one batch, and the closing paths flush
+ * before grading, so a submission that times out after its browser went away
+ * gets the time spent up to its last heartbeat instead of the full duration.
+ */
+public class ExamActivityTracker {
+    private static final ExamActivityTracker INSTANCE = new ExamActivityTracker();
+
+    private final boolean enabled;
+    private final long flushMillis;
+    private final QuizSessionDAO sessionDAO = new QuizSessionDAO();
+
+    private final Map<Integer, Activity> activities = new ConcurrentHashMap<>();
+    // Serializes flushes so an older snapshot is never written after a newer one
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final LongAdder heartbeats = new LongAdder();
+    private final LongAdder flushedRows = new LongAdder();
+    private final LongAdder flushBatches = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+    private final AtomicLong lastFlushMillis = new AtomicLong();
+
+    private volatile ScheduledExecutorService flusher;
+
+    private ExamActivityTracker() {
+        this.enabled = AppConfig.getBoolean("exam.activity.enabled", true);
+        this.flushMillis = Math.max(1, AppConfig.getLong("exam.activity.flushSeconds", 30)) * 1000;
+        MetricsRegistry.register("examActivity", this::getStats);
+    }
+
+    public static ExamActivityTracker getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Start the periodic flush
+     */
+    public void start() {
+        if (!enabled || flusher != null) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(Threads.factory("exam-activity-flusher", false));
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the flusher and write what is still pending
+     */
+    public void stop() {
+        ScheduledExecutorService current = flusher;
+        flusher = null;
+        if (current == null) {
+            return;
+        }
+        current.shutdown();
+        try {
+            current.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+    }
+
+    /**
+     * Record that the participant of an open exam is still there
+     */
+    public void touch(ActiveExam exam) {
+        if (!enabled) {
+            return;
+        }
+        heartbeats.increment();
+        activities.computeIfAbsent(exam.getSubmissionId(), id -> new Activity(exam)).lastSeen = System.currentTimeMillis();
+    }
+
+    /**
+     * Stop tracking finished submissions (their time spent is already stored)
+     * and delete their quiz_sessions rows. Taking the flush lock keeps a flush
+     * that already read them from writing the rows back afterwards.
+     */
+    public void forget(Collection<Integer> submissionIds) {
+        activities.keySet().removeAll(submissionIds);
+        if (!enabled) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            sessionDAO.deleteActivity(submissionIds);
+        } catch (SQLException e) {
+            System.err.println("ExamActivityTracker: failed to delete activity rows: " + e.getMessage());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Stop tracking every submission of a quiz (closed in bulk) and delete
+     * the quiz_sessions rows of its finished submissions
+     */
+    public void forgetQuiz(Integer quizId) {
+        activities.values().removeIf(activity -> activity.exam.getQuizId().equals(quizId));
+        if (!enabled) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            sessionDAO.deleteFinishedActivity(quizId);
+        } catch (SQLException e) {
+            System.err.println("ExamActivityTracker: failed to delete activity rows: " + e.getMessage());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Write every timestamp that moved since the last flush
+     */
+    public void flush() throws SQLException {
+        if (!enabled) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            List<Activity> changed = new ArrayList<>();
+            List<Long> seenValues = new ArrayList<>();
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (Activity activity : activities.values()) {
+                long seen = activity.lastSeen;
+                if (seen <= activity.flushedSeen) {
+                    continue;
+                }
+                changed.add(activity);
+                seenValues.add(seen);
+                rows.add(activity.toRow(seen));
+            }
+            if (rows.isEmpty()) {
+                return;
+            }
+
+            try {
+                sessionDAO.saveActivity(rows);
+            } catch (SQLException e) {
+                flushFailures.increment();
+                throw e;
+            }
+            for (int i = 0; i < changed.size(); i++) {
+                changed.get(i).flushedSeen = seenValues.get(i);
+            }
+            flushedRows.add(rows.size());
+            flushBatches.increment();
+            lastFlushMillis.set(System.currentTimeMillis());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Tracker counters for the metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("tracked", activities.size());
+        stats.put("heartbeats", heartbeats.sum());
+        stats.put("flushedRows", flushedRows.sum());
+        stats.put("flushBatches", flushBatches.sum());
+        stats.put("flushFailures", flushFailures.sum());
+        stats.put("lastFlushAt", lastFlushMillis.get());
+        return stats;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("ExamActivityTracker: flush failed, will retry: " + e.getMessage());
+        }
+    }
+
+    private static LocalDateTime toLocal(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    /**
+     * Heartbeat state of one submission
+     */
+    private static final class Activity {
+        final ActiveExam exam;
+        volatile long lastSeen;
+        // Only touched under flushLock
+        long flushedSeen;
+
+        Activity(ActiveExam exam) {
+            this.exam = exam;
+        }
+
+        Map<String, Object> toRow(long seen) {
+            Long deadline = ExamTimeoutSweeper.getInstance().getDeadlineMillis(exam.getSubmissionId());
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("submissionId", exam.getSubmissionId());
+            row.put("quizId", exam.getQuizId());
+            row.put("userId", exam.getUserId());
+            row.put("startedAt", exam.getStartedAt());
+            row.put("expiresAt", toLocal(deadline != null ? deadline : seen));
+            row.put("lastActivity", toLocal(seen));
+            return row;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.examora.service;
+
+import com.examora.util.AppConfig;
+import com.examora.util.MetricsRegistry;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Exam Admission Controller - Limits exam starts and page loads in flight
+ * When a scheduled exam opens, every participant starts it within seconds.
+ * Requests to start or open an exam must take a permit, both from a node-wide
+ * pool (exam.admission.maxPerNode) and from the quiz's own limit
+ * (exam.admission.maxPerQuiz). A request that cannot is not held on a
+ * container thread: it gets a ticket and a queue position and is asked to
+ * retry after a few seconds. Tickets are served in order, so a retrying
+ * participant is not overtaken by newcomers; tickets that stop retrying are
+ * dropped.
+ */
+public class ExamAdmissionController {
+    private static final ExamAdmissionController INSTANCE = new ExamAdmissionController();
+
+    private final boolean enabled;
+    private final int maxPerNode;
+    private final int maxPerQuiz;
+    private final int retrySeconds;
+    private final long staleMillis;
+
+    private final Semaphore nodePermits;
+    private final Map<Integer, Gate> gates = new ConcurrentHashMap<>();
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder queuedResponses = new LongAdder();
+    private final LongAdder abandoned = new LongAdder();
+    private final LongAdder waited = new LongAdder();
+    private final LongAdder waitMillisTotal = new LongAdder();
+    private final AtomicLong waitMillisMax = new AtomicLong();
+
+    /**
+     * Admission state of one quiz
+     */
+    private static class Gate {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicLong nextTicket = new AtomicLong();
+        // Waiting tickets in arrival order
+        final ConcurrentSkipListMap<Long, Waiter> waiting = new ConcurrentSkipListMap<>();
+    }
+
+    private static class Waiter {
+        final long queuedAt;
+        volatile long lastSeen;
+
+        Waiter(long now) {
+            this.queuedAt = now;
+            this.lastSeen = now;
+        }
+    }
+
+    /**
+     * Outcome of an admission attempt
+     */
+    public static class Admission {
+        private final boolean admitted;
+        private final Long ticket;
+        private final int position;
+        private final int retryAfterSeconds;
+
+        private Admission(boolean admitted, Long ticket, int position, int retryAfterSeconds) {
+            this.admitted = admitted;
+            this.ticket = ticket;
+            this.position = position;
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public boolean isAdmitted() {
+            return admitted;
+        }
+
+        /**
+         * Ticket to present on the next attempt (null once admitted)
+         */
+        public Long getTicket() {
+            return ticket;
+        }
+
+        /**
+         * 1-based position in the quiz's queue
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        public int getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+
+    private static final Admission ADMITTED = new Admission(true, null, 0, 0);
+
+    private ExamAdmissionController() {
+        this.enabled = AppConfig.getBoolean("exam.admission.enabled", true);
+        this.maxPerNode = Math.max(1, AppConfig.getInt("exam.admission.maxPerNode", 64));
+        this.maxPerQuiz = Math.max(1, AppConfig.getInt("exam.admission.maxPerQuiz", 32));
+        this.retrySeconds = Math.max(1, AppConfig.getInt("exam.admission.retrySeconds", 3));
+        // A ticket not presented again within a few retry periods is abandoned
+        this.staleMillis = retrySeconds * 2 * 1000L * 3;
+        this.nodePermits = new Semaphore(maxPerNode);
+        MetricsRegistry.register("examAdmission", this::getStats);
+    }
+
+    public static ExamAdmissionController getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Try to enter for a quiz, presenting the ticket from an earlier attempt
+     * (or null). An admitted caller must call leave(quizId) when done.
+     * With priority the queue is skipped (e.g. opening an exam just started),
+     * though the limits still apply.
+     */
+    public Admission enter(Integer quizId, Long ticket, boolean priority) {
+        if (!enabled) {
+            return ADMITTED;
+        }
+
+        Gate gate = gates.computeIfAbsent(quizId, id -> new Gate());
+        long now = System.currentTimeMillis();
+        dropStale(gate, now);
+
+        Waiter waiter = ticket != null ? gate.waiting.get(ticket) : null;
+        if (waiter == null) {
+            ticket = null;
+        }
+
+        // Only as many waiters as there are free permits may go ahead, oldest first
+        int ahead = priority ? 0 : (ticket != null ? gate.waiting.headMap(ticket).size() : gate.waiting.size());
+        int free = Math.min(nodePermits.availablePermits(), maxPerQuiz - gate.inFlight.get());
+        if (ahead < free && acquire(gate)) {
+            if (ticket != null && gate.waiting.remove(ticket) != null) {
+                recordWait(now - waiter.queuedAt);
+            }
+            admitted.increment();
+            return ADMITTED;
+        }
+
+        if (ticket == null) {
+            ticket = gate.nextTicket.incrementAndGet();
+            gate.waiting.put(ticket, new Waiter(now));
+        } else {
+            waiter.lastSeen = now;
+        }
+        queuedResponses.increment();
+
+        // Jitter spreads the retries of everyone queued at the same moment
+        int retryAfter = retrySeconds + ThreadLocalRandom.current().nextInt(retrySeconds + 1);
+        return new Admission(false, ticket, ahead + 1, retryAfter);
+    }
+
+    /**
+     * Release the permits taken by an admitted enter()
+     */
+    public void leave(Integer quizId) {
+        if (!enabled) {
+            return;
+        }
+        Gate gate = gates.get(quizId);
+        if (gate != null) {
+            gate.inFlight.decrementAndGet();
+            nodePermits.release();
+        }
+    }
+
+    private boolean acquire(Gate gate) {
+        if (!nodePermits.tryAcquire()) {
+            return false;
+        }
+        while (true) {
+            int current = gate.inFlight.get();
+            if (current >= maxPerQuiz) {
+                nodePermits.release();
+                return false;
+            }
+            if (gate.inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void dropStale(Gate gate, long now) {
+        for (Map.Entry<Long, Waiter> entry : gate.waiting.entrySet()) {
+            if (now - entry.getValue().lastSeen > staleMillis
+                    && gate.waiting.remove(entry.getKey(), entry.getValue())) {
+                abandoned.increment();
+            }
+        }
+    }
+
+    private void recordWait(long millis) {
+        waited.increment();
+        waitMillisTotal.add(millis);
+        waitMillisMax.accumulateAndGet(millis, Math::max);
+    }
+
+    /**
+     * Admission counters for the metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("maxPerNode", maxPerNode);
+        stats.put("maxPerQuiz", maxPerQuiz);
+        stats.put("inFlight", maxPerNode - nodePermits.availablePermits());
+
+        int queueLength = 0;
+        Map<String, Object> quizzes = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Gate> entry : gates.entrySet()) {
+            Gate gate = entry.getValue();
+            int waiting = gate.waiting.size();
+            int inFlight = gate.inFlight.get();
+            queueLength += waiting;
+            if (waiting > 0 || inFlight > 0) {
+                Map<String, Object> quiz = new LinkedHashMap<>();
+                quiz.put("inFlight", inFlight);
+                quiz.put("queued", waiting);
+                quizzes.put(String.valueOf(entry.getKey()), quiz);
+            }
+        }
+        stats.put("queueLength", queueLength);
+        stats.put("admitted", admitted.sum());
+        stats.put("queuedResponses", queuedResponses.sum());
+        stats.put("abandoned", abandoned.sum());
+
+        long count = waited.sum();
+        stats.put("waitedAdmissions", count);
+        stats.put("waitMillisAvg", count > 0 ? waitMillisTotal.sum() / count : 0);
+        stats.put("waitMillisMax", waitMillisMax.get());
+        stats.put("quizzes", quizzes);
+        return stats;
+    }
+}
@@ -0,0 +1,303 @@
+package com.examora.service;
+
+import com.examora.dao.QuizDAO;
+import com.examora.model.ActiveExam;
+import com.examora.model.Quiz;
+import com.examora.util.AppConfig;
+import com.examora.util.MetricsRegistry;
+import com.examora.util.Threads;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Exam Channel Hub - Open exam WebSocket connections of this node
+ * Every connection of an in-progress submission is registered with its
+ * deadline (the one ExamTimeoutSweeper enforces). A single ticker pushes the
+ * remaining time to every connection each exam.socket.tickSeconds, sends one
+ * forceSubmit event when the time is up, and connections are told and closed
+ * when their submission is finished here. Connections are capped per node
+ * (exam.socket.maxConnections); the exam page then stays on HTTP.
+ *
+ * Frame and HTTP save counters (bytes and handling time per save) are kept
+ * side by side so both paths can be compared in the metrics.
+ */
+public class ExamChannelHub {
+    private static final ExamChannelHub INSTANCE = new ExamChannelHub();
+
+    /**
+     * One open connection, implemented by the WebSocket endpoint
+     */
+    public interface Channel {
+        /**
+         * Send a JSON frame; must be safe to call from any thread and must not
+         * block on the client, since the ticker serves every connection
+         */
+        void send(String json);
+
+        /**
+         * Close the connection normally
+         */
+        void close(String reason);
+    }
+
+    private final boolean enabled;
+    private final long tickMillis;
+    private final int maxConnections;
+    private final QuizDAO quizDAO = new QuizDAO();
+
+    private final Map<Channel, Entry> channels = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger peakConnections = new AtomicInteger();
+
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder framesIn = new LongAdder();
+    private final LongAdder framesOut = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder socketSaveNanos = new LongAdder();
+    private final LongAdder forcedSubmits = new LongAdder();
+    private final LongAdder httpSaves = new LongAdder();
+    private final LongAdder httpBytes = new LongAdder();
+    private final LongAdder httpSaveNanos = new LongAdder();
+
+    private volatile ScheduledExecutorService ticker;
+
+    private ExamChannelHub() {
+        this.enabled = AppConfig.getBoolean("exam.socket.enabled", true);
+        this.tickMillis = Math.max(1, AppConfig.getLong("exam.socket.tickSeconds", 15)) * 1000;
+        this.maxConnections = Math.max(1, AppConfig.getInt("exam.socket.maxConnections", 5000));
+        MetricsRegistry.register("examChannel", this::getStats);
+    }
+
+    public static ExamChannelHub getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Whether exam pages should open a WebSocket (exam.socket.enabled)
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Start the ticker that pushes remaining time
+     */
+    public void start() {
+        if (!enabled || ticker != null) {
+            return;
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(Threads.factory("exam-channel-ticker", false));
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the ticker and close every connection
+     */
+    public void stop() {
+        ScheduledExecutorService current = ticker;
+        ticker = null;
+        if (current != null) {
+            current.shutdownNow();
+        }
+        for (Channel channel : channels.keySet()) {
+            channel.close("Server berhenti");
+        }
+    }
+
+    /**
+     * Register a connection of an in-progress exam and send it the remaining
+     * time. Returns false (nothing registered) when the node is at its limit.
+     */
+    public boolean register(Channel channel, ActiveExam exam) throws SQLException {
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        peakConnections.accumulateAndGet(connections.get(), Math::max);
+        opened.increment();
+
+        Entry entry = new Entry(exam, deadlineOf(exam));
+        channels.put(channel, entry);
+        pushTime(channel, entry, System.currentTimeMillis());
+        return true;
+    }
+
+    /**
+     * Forget a connection (closed by either side)
+     */
+    public void unregister(Channel channel) {
+        if (channels.remove(channel) != null) {
+            connections.decrementAndGet();
+        }
+    }
+
+    /**
+     * Tell the connections of a submission that it was finished ("completed"
+     * or "timeout") and close them
+     */
+    public void finished(Integer submissionId, String status) {
+        for (Map.Entry<Channel, Entry> open : channels.entrySet()) {
+            if (open.getValue().submissionId.equals(submissionId)) {
+                closeFinished(open.getKey(), status);
+            }
+        }
+    }
+
+    /**
+     * Same as finished() for every submission of a quiz (closed in bulk)
+     */
+    public void finishedQuiz(Integer quizId, String status) {
+        for (Map.Entry<Channel, Entry> open : channels.entrySet()) {
+            if (open.getValue().quizId.equals(quizId)) {
+                closeFinished(open.getKey(), status);
+            }
+        }
+    }
+
+    /**
+     * Send a frame to one connection, counting it
+     */
+    public void send(Channel channel, String json) {
+        framesOut.increment();
+        bytesOut.add(json.length());
+        channel.send(json);
+    }
+
+    /**
+     * Count an answer-save frame and how long it took to handle
+     */
+    public void recordFrame(int bytes, long elapsedNanos) {
+        framesIn.increment();
+        bytesIn.add(bytes);
+        socketSaveNanos.add(elapsedNanos);
+    }
+
+    /**
+     * Count an answer-save request over HTTP (request line, headers and
+     * body) and how long it took to handle
+     */
+    public void recordHttpSave(long bytes, long elapsedNanos) {
+        httpSaves.increment();
+        httpBytes.add(bytes);
+        httpSaveNanos.add(elapsedNanos);
+    }
+
+    /**
+     * Connection and per-message counters for the metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("connections", connections.get());
+        stats.put("peakConnections", peakConnections.get());
+        stats.put("maxConnections", maxConnections);
+        stats.put("opened", opened.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("forcedSubmits", forcedSubmits.sum());
+
+        Map<String, Object> socket = new LinkedHashMap<>();
+        long frames = framesIn.sum();
+        socket.put("messages", frames);
+        socket.put("avgBytes", average(bytesIn.sum(), frames));
+        socket.put("avgMicros", average(socketSaveNanos.sum() / 1000, frames));
+        socket.put("framesOut", framesOut.sum());
+        socket.put("avgBytesOut", average(bytesOut.sum(), framesOut.sum()));
+        stats.put("socket", socket);
+
+        Map<String, Object> http = new LinkedHashMap<>();
+        long saves = httpSaves.sum();
+        http.put("messages", saves);
+        http.put("avgBytes", average(httpBytes.sum(), saves));
+        http.put("avgMicros", average(httpSaveNanos.sum() / 1000, saves));
+        stats.put("http", http);
+        return stats;
+    }
+
+    private static double average(long total, long count) {
+        return count > 0 ? Math.round(total * 10.0 / count) / 10.0 : 0;
+    }
+
+    private void closeFinished(Channel channel, String status) {
+        send(channel, "{\"type\": \"closed\", \"status\": \"" + status + "\"}");
+        channel.close(status);
+        unregister(channel);
+    }
+
+    private void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            ExamActivityTracker activity = ExamActivityTracker.getInstance();
+            for (Map.Entry<Channel, Entry> open : channels.entrySet()) {
+                // An open socket counts as a heartbeat
+                activity.touch(open.getValue().exam);
+                pushTime(open.getKey(), open.getValue(), now);
+            }
+        } catch (RuntimeException e) {
+            // Keep the ticker scheduled
+            System.err.println("ExamChannelHub: tick failed: " + e.getMessage());
+        }
+    }
+
+    private void pushTime(Channel channel, Entry entry, long now) {
+        // Follows deadline changes the sweeper picked up after the connection opened
+        Long deadline = ExamTimeoutSweeper.getInstance().getDeadlineMillis(entry.submissionId);
+        if (deadline == null) {
+            deadline = entry.deadlineMillis;
+        }
+        if (deadline == null) {
+            return;
+        }
+        long remaining = Math.max(0, (deadline - now + 999) / 1000);
+        send(channel, "{\"type\": \"time\", \"remaining\": " + remaining + "}");
+        if (remaining == 0 && !entry.forced) {
+            entry.forced = true;
+            forcedSubmits.increment();
+            send(channel, "{\"type\": \"forceSubmit\"}");
+        }
+    }
+
+    /**
+     * Deadline the sweeper tracks, else computed from the quiz
+     */
+    private Long deadlineOf(ActiveExam exam) throws SQLException {
+        Long deadline = ExamTimeoutSweeper.getInstance().getDeadlineMillis(exam.getSubmissionId());
+        if (deadline != null) {
+            return deadline;
+        }
+        Quiz quiz = quizDAO.findById(exam.getQuizId());
+        if (quiz == null || exam.getStartedAt() == null) {
+            return null;
+        }
+        return ExamTimeoutSweeper.deadlineOf(exam.getStartedAt(), quiz.getDuration(), quiz.getDeadline());
+    }
+
+    /**
+     * What the hub knows about one connection
+     */
+    private static final class Entry {
+        final ActiveExam exam;
+        final Integer submissionId;
+        final Integer quizId;
+        final Long deadlineMillis;
+        // Set once forceSubmit was sent
+        volatile boolean forced;
+
+        Entry(ActiveExam exam, Long deadlineMillis) {
+            this.exam = exam;
+            this.submissionId = exam.getSubmissionId();
+            this.quizId = exam.getQuizId();
+            this.deadlineMillis = deadlineMillis;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.examora.service;
+
+import com.examora.util.AppConfig;
+import com.examora.util.MetricsRegistry;
+import com.examora.util.Threads;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Exam Executor - Bounded pool that runs the database work of exam requests
+ * ExamServlet hands answer saves and submits to this pool through servlet
+ * async processing, so container threads are not parked on JDBC. The pool
+ * (exam.async.threads) and its queue (exam.async.queueSize) are bounded; when
+ * both are full, work is rejected and the request answered as busy. With
+ * threads.mode=virtual each task gets its own virtual thread instead, and
+ * threads + queueSize bounds the tasks in flight.
+ */
+public class ExamExecutor {
+    private static final ExamExecutor INSTANCE = new ExamExecutor();
+
+    private final boolean enabled;
+    private final long timeoutMillis;
+    private final ExecutorService pool;
+    // Platform mode only
+    private final ThreadPoolExecutor platformPool;
+    // Virtual mode only: tasks in flight
+    private final Semaphore virtualPermits;
+    private final int maxVirtualTasks;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    private ExamExecutor() {
+        this.enabled = AppConfig.getBoolean("exam.async.enabled", true);
+        this.timeoutMillis = Math.max(1000, AppConfig.getLong("exam.async.timeoutMillis", 10000));
+        int threads = Math.max(1, AppConfig.getInt("exam.async.threads", 16));
+        int queueSize = Math.max(1, AppConfig.getInt("exam.async.queueSize", 1000));
+
+        ExecutorService virtualPool = Threads.newVirtualThreadPerTaskExecutor();
+        if (virtualPool != null) {
+            this.pool = virtualPool;
+            this.platformPool = null;
+            this.maxVirtualTasks = threads + queueSize;
+            this.virtualPermits = new Semaphore(maxVirtualTasks);
+        } else {
+            this.platformPool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueSize), Threads.factory("exam-worker", true));
+            this.platformPool.allowCoreThreadTimeOut(true);
+            this.pool = platformPool;
+            this.maxVirtualTasks = 0;
+            this.virtualPermits = null;
+        }
+        MetricsRegistry.register("examExecutor", this::getStats);
+    }
+
+    public static ExamExecutor getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Whether exam requests should be processed asynchronously
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * How long an async exam request may take before it is answered with a timeout
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Run a task on the pool; throws RejectedExecutionException when it is full
+     */
+    public void execute(Runnable task) {
+        if (virtualPermits != null && !virtualPermits.tryAcquire()) {
+            rejected.increment();
+            throw new RejectedExecutionException("Too many exam tasks in flight");
+        }
+        try {
+            pool.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    completed.increment();
+                    if (virtualPermits != null) {
+                        virtualPermits.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if (virtualPermits != null) {
+                virtualPermits.release();
+            }
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    public void recordTimeout() {
+        timeouts.increment();
+    }
+
+    public void recordFailure() {
+        failures.increment();
+    }
+
+    /**
+     * Stop the pool (application shutdown), letting queued work finish briefly
+     */
+    public void shutdown() {
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(10, TimeUnit.SECONDS)) {
+                pool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Pool counters for the metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("mode", platformPool != null ? "platform" : "virtual");
+        if (platformPool != null) {
+            stats.put("threads", platformPool.getMaximumPoolSize());
+            stats.put("active", platformPool.getActiveCount());
+            stats.put("queued", platformPool.getQueue().size());
+        } else {
+            stats.put("maxTasks", maxVirtualTasks);
+            stats.put("active", maxVirtualTasks - virtualPermits.availablePermits());
+            stats.put("queued", 0);
+        }
+        stats.put("completed", completed.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("timeouts", timeouts.sum());
+        stats.put("failures", failures.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,211 @@
+package com.examora.service;
+
+import com.examora.model.ExamQuestion;
+import com.examora.model.QuizSnapshot;
+import com.examora.util.MetricsRegistry;
+import com.google.gson.Gson;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exam Payload Cache - Serialized questions of a quiz, shared by every participant
+ * The question and option text of a QuizSnapshot is written to JSON (without
+ * the answer key) once per snapshot version and kept as a byte array, plus a
+ * gzip copy. The exam page fetches it and applies its own question and option
+ * order, which is sent separately as index lists, so the text is never encoded
+ * per participant. Entries follow QuestionSnapshotCache: they are dropped when
+ * the snapshot of the quiz is invalidated or evicted.
+ */
+public class ExamPayloadCache {
+    private static final ExamPayloadCache INSTANCE = new ExamPayloadCache();
+    private static final Gson GSON = new Gson();
+
+    private final Map<Integer, Payload> payloads = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder builds = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder servedBytes = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+
+    private ExamPayloadCache() {
+        MetricsRegistry.register("examPayload", this::getStats);
+    }
+
+    public static ExamPayloadCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Serialized payload of a snapshot, built on the first request for its version
+     */
+    public Payload get(QuizSnapshot snapshot) {
+        Payload cached = payloads.get(snapshot.getQuizId());
+        if (cached != null && cached.version == snapshot.getVersion()) {
+            hits.increment();
+            return cached;
+        }
+        // compute() keeps a start storm to a single build per quiz
+        return payloads.compute(snapshot.getQuizId(), (quizId, current) -> {
+            if (current != null && current.version == snapshot.getVersion()) {
+                hits.increment();
+                return current;
+            }
+            Payload built = build(snapshot);
+            builds.increment();
+            totalBytes.addAndGet(built.size() - (current != null ? current.size() : 0));
+            return built;
+        });
+    }
+
+    /**
+     * Drop the payload of a quiz (its snapshot changed or left the cache)
+     */
+    public void invalidate(Integer quizId) {
+        Payload removed = payloads.remove(quizId);
+        if (removed != null) {
+            invalidations.increment();
+            totalBytes.addAndGet(-removed.size());
+        }
+    }
+
+    /**
+     * Count a payload response (bytes of the body; 0 for a 304)
+     */
+    public void recordServed(long bytes) {
+        if (bytes == 0) {
+            notModified.increment();
+        }
+        servedBytes.add(bytes);
+    }
+
+    /**
+     * Cache counters for the metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("quizzes", payloads.size());
+        stats.put("bytes", totalBytes.get());
+        stats.put("hits", hits.sum());
+        stats.put("builds", builds.sum());
+        stats.put("invalidations", invalidations.sum());
+        stats.put("notModified", notModified.sum());
+        stats.put("servedBytes", servedBytes.sum());
+        return stats;
+    }
+
+    private static Payload build(QuizSnapshot snapshot) {
+        List<PayloadQuestion> questions = new ArrayList<>(snapshot.size());
+        for (ExamQuestion question : snapshot.getQuestions()) {
+            questions.add(new PayloadQuestion(question));
+        }
+        byte[] json = GSON.toJson(new PayloadBody(snapshot, questions)).getBytes(StandardCharsets.UTF_8);
+        return new Payload(snapshot.getQuizId(), snapshot.getVersion(), json, gzip(json));
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            // In-memory streams do not fail
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Immutable serialized questions of one snapshot version
+     */
+    public static final class Payload {
+        private final Integer quizId;
+        private final long version;
+        private final byte[] json;
+        private final byte[] gzip;
+
+        Payload(Integer quizId, long version, byte[] json, byte[] gzip) {
+            this.quizId = quizId;
+            this.version = version;
+            this.json = json;
+            this.gzip = gzip;
+        }
+
+        public Integer getQuizId() {
+            return quizId;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Entity tag of the plain or gzip body; both change with the version
+         */
+        public String getEtag(boolean gzipped) {
+            return "\"" + quizId + "-" + version + (gzipped ? "-gz" : "") + "\"";
+        }
+
+        /**
+         * UTF-8 JSON body; shared, must not be modified
+         */
+        public byte[] getJson() {
+            return json;
+        }
+
+        /**
+         * gzip of getJson(); shared, must not be modified
+         */
+        public byte[] getGzip() {
+            return gzip;
+        }
+
+        long size() {
+            return json.length + gzip.length;
+        }
+    }
+
+    /**
+     * {"quizId": 1, "version": 17, "questions": [...]} in question_order
+     */
+    private static class PayloadBody {
+        final Integer quizId;
+        final long version;
+        final List<PayloadQuestion> questions;
+
+        PayloadBody(QuizSnapshot snapshot, List<PayloadQuestion> questions) {
+            this.quizId = snapshot.getQuizId();
+            this.version = snapshot.getVersion();
+            this.questions = questions;
+        }
+    }
+
+    /**
+     * {"id": 5, "text": "...", "options": [A, B, C, D]}; no answer key
+     */
+    private static class PayloadQuestion {
+        final Integer id;
+        final String text;
+        final List<String> options;
+
+        PayloadQuestion(ExamQuestion question) {
+            this.id = question.getId();
+            this.text = question.getQuestionText();
+            this.options = new ArrayList<>(ExamQuestion.OPTION_LETTERS.size());
+            for (String letter : ExamQuestion.OPTION_LETTERS) {
+                options.add(question.getOptionByLetter(letter));
+            }
+        }
+    }
+}
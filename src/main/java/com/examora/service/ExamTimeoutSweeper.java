@@ -0,0 +1,307 @@
+package com.examora.service;
+
+import com.examora.dao.SubmissionDAO;
+import com.examora.model.ActiveExam;
+import com.examora.model.Quiz;
+import com.examora.model.Submission;
+import com.examora.util.AppConfig;
+import com.examora.util.MetricsRegistry;
+import com.examora.util.Threads;
+import com.examora.util.Transaction;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Exam Timeout Sweeper - Closes submissions whose time has run out
+ * Every in-progress submission has one entry in a DelayQueue ordered by its
+ * deadline (started_at + quiz duration, capped by the quiz deadline, plus a
+ * grace period for the browser's own auto-submit). A single thread waits for
+ * the earliest deadline, drains everything that has expired and grades the
+ * batch with one set-based UPDATE, marking it 'timeout'; time spent ends at
+ * the last heartbeat ExamActivityTracker recorded. Nothing polls the
+ * submissions table; it is read once at startup to rebuild the queue.
+ */
+public class ExamTimeoutSweeper {
+    private static final ExamTimeoutSweeper INSTANCE = new ExamTimeoutSweeper();
+    private static final long RETRY_DELAY_MILLIS = 30000;
+
+    private final boolean enabled;
+    private final long graceMillis;
+    private final int batchSize;
+    private final SubmissionDAO submissionDAO = new SubmissionDAO();
+
+    private final DelayQueue<Deadline> queue = new DelayQueue<>();
+    // Current deadline per submission; queue entries that no longer match are stale
+    private final Map<Integer, Deadline> scheduled = new ConcurrentHashMap<>();
+
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final AtomicLong lastSweepMillis = new AtomicLong();
+
+    private volatile Thread worker;
+
+    private ExamTimeoutSweeper() {
+        this.enabled = AppConfig.getBoolean("exam.timeout.enabled", true);
+        this.graceMillis = Math.max(0, AppConfig.getLong("exam.timeout.graceSeconds", 30)) * 1000;
+        this.batchSize = Math.max(1, AppConfig.getInt("exam.timeout.batchSize", 200));
+    }
+
+    public static ExamTimeoutSweeper getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Load deadlines of all in-progress submissions and start the sweeper thread
+     */
+    public void start() {
+        if (!enabled || worker != null) {
+            return;
+        }
+
+        try {
+            int loaded = scheduleAll(submissionDAO.findInProgressDeadlines(null));
+            System.out.println("ExamTimeoutSweeper: tracking " + loaded + " in-progress submissions");
+        } catch (SQLException e) {
+            // Submissions started from now on are still tracked
+            System.err.println("ExamTimeoutSweeper: could not load in-progress submissions: " + e.getMessage());
+        }
+
+        Thread thread = Threads.factory("exam-timeout-sweeper", false).newThread(this::run);
+        worker = thread;
+        thread.start();
+
+        MetricsRegistry.register("examTimeouts", this::getStats);
+    }
+
+    /**
+     * Stop the sweeper thread
+     */
+    public void stop() {
+        Thread thread = worker;
+        worker = null;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Track the deadline of a started (or resumed) submission
+     */
+    public void schedule(Submission submission, Quiz quiz) {
+        if (!enabled || submission == null || !submission.isInProgress()) {
+            return;
+        }
+        schedule(submission.getId(), submission.getQuizId(),
+                deadlineOf(submission.getStartedAt(), quiz.getDuration(), quiz.getDeadline()));
+    }
+
+    /**
+     * Stop tracking a submission (submitted by the participant)
+     */
+    public void cancel(Integer submissionId) {
+        // The queue entry becomes stale and is skipped when it expires
+        scheduled.remove(submissionId);
+    }
+
+    /**
+     * Stop tracking every submission of a quiz (closed in bulk)
+     */
+    public void cancelQuiz(Integer quizId) {
+        scheduled.values().removeIf(deadline -> deadline.quizId.equals(quizId));
+    }
+
+    /**
+     * Recompute deadlines of a quiz's in-progress submissions (duration or deadline changed)
+     */
+    public void rescheduleQuiz(Integer quizId) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            scheduleAll(submissionDAO.findInProgressDeadlines(quizId));
+        } catch (SQLException e) {
+            // Old deadlines stay queued; the change is picked up on the next restart
+            System.err.println("ExamTimeoutSweeper: could not reschedule quiz " + quizId + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Deadline (epoch millis, without the grace period) of a tracked
+     * submission, or null when it is not tracked
+     */
+    public Long getDeadlineMillis(Integer submissionId) {
+        Deadline deadline = scheduled.get(submissionId);
+        return deadline != null ? deadline.dueMillis - graceMillis : null;
+    }
+
+    /**
+     * Sweeper counters for the metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tracked", scheduled.size());
+        stats.put("queued", queue.size());
+        Deadline next = queue.peek();
+        stats.put("nextDeadlineAt", next != null ? next.dueMillis : 0);
+        stats.put("timedOut", timedOut.sum());
+        stats.put("batches", batches.sum());
+        stats.put("failures", failures.sum());
+        stats.put("lastSweepAt", lastSweepMillis.get());
+        return stats;
+    }
+
+    private int scheduleAll(List<Map<String, Object>> rows) {
+        for (Map<String, Object> row : rows) {
+            schedule((Integer) row.get("id"), (Integer) row.get("quizId"),
+                    deadlineOf((LocalDateTime) row.get("startedAt"), (Integer) row.get("duration"),
+                            (LocalDateTime) row.get("deadline")));
+        }
+        return rows.size();
+    }
+
+    private void schedule(Integer submissionId, Integer quizId, long deadlineMillis) {
+        long dueMillis = deadlineMillis + graceMillis;
+        scheduled.compute(submissionId, (id, previous) -> {
+            // Resuming an exam keeps the entry that is already queued
+            if (previous != null && previous.dueMillis == dueMillis) {
+                return previous;
+            }
+            Deadline deadline = new Deadline(submissionId, quizId, dueMillis);
+            queue.add(deadline);
+            return deadline;
+        });
+    }
+
+    static long deadlineOf(LocalDateTime startedAt, Integer durationMinutes, LocalDateTime quizDeadline) {
+        LocalDateTime end = startedAt.plusMinutes(durationMinutes != null ? durationMinutes : 0);
+        if (quizDeadline != null && quizDeadline.isBefore(end)) {
+            end = quizDeadline;
+        }
+        return end.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private void run() {
+        while (worker == Thread.currentThread()) {
+            try {
+                List<Deadline> expired = new ArrayList<>();
+                expired.add(queue.take());
+                queue.drainTo(expired, batchSize - 1);
+                sweep(expired);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("ExamTimeoutSweeper: unexpected error: " + e.getMessage());
+            }
+        }
+    }
+
+    private void sweep(List<Deadline> expired) {
+        Set<Integer> submissionIds = new LinkedHashSet<>();
+        Set<Integer> quizIds = new LinkedHashSet<>();
+        List<Deadline> current = new ArrayList<>();
+        for (Deadline deadline : expired) {
+            // Skip entries that were cancelled or replaced by a later deadline
+            if (scheduled.get(deadline.submissionId) == deadline) {
+                current.add(deadline);
+                submissionIds.add(deadline.submissionId);
+                quizIds.add(deadline.quizId);
+            }
+        }
+        if (current.isEmpty()) {
+            return;
+        }
+
+        // Stop accepting answers on this node first (waits for saves in flight),
+        // so no save is acknowledged after the flush and then lost
+        ActiveExamRegistry activeExams = ActiveExamRegistry.getInstance();
+        List<ActiveExam> closing = new ArrayList<>();
+        for (Integer submissionId : submissionIds) {
+            ActiveExam exam = activeExams.peek(submissionId);
+            if (exam != null) {
+                exam.close();
+                closing.add(exam);
+            }
+        }
+
+        try {
+            // Answers still in the write buffer must be graded too, and the
+            // last heartbeats bound the time spent
+            AnswerWriteBuffer.getInstance().flushSubmissions(submissionIds);
+            ExamActivityTracker.getInstance().flush();
+
+            int closed;
+            try (Transaction tx = Transaction.begin()) {
+                closed = submissionDAO.finalizeSubmissions(submissionIds, quizIds, "timeout", LocalDateTime.now());
+                tx.commit();
+            }
+
+            ExamChannelHub channels = ExamChannelHub.getInstance();
+            for (Deadline deadline : current) {
+                scheduled.remove(deadline.submissionId, deadline);
+                activeExams.remove(deadline.submissionId);
+                channels.finished(deadline.submissionId, "timeout");
+            }
+            ExamActivityTracker.getInstance().forget(submissionIds);
+            DashboardCounters.getInstance().submissionsFinished("timeout", closed);
+
+            timedOut.add(closed);
+            batches.increment();
+            lastSweepMillis.set(System.currentTimeMillis());
+        } catch (SQLException | RuntimeException e) {
+            for (ActiveExam exam : closing) {
+                exam.reopen();
+            }
+            failures.increment();
+            System.err.println("ExamTimeoutSweeper: closing " + current.size() +
+                    " submissions failed, will retry: " + e.getMessage());
+            long retryAt = System.currentTimeMillis() + RETRY_DELAY_MILLIS;
+            for (Deadline deadline : current) {
+                Deadline retry = new Deadline(deadline.submissionId, deadline.quizId, retryAt);
+                if (scheduled.replace(deadline.submissionId, deadline, retry)) {
+                    queue.add(retry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Queue entry: a submission and the time it must be closed
+     */
+    private static final class Deadline implements Delayed {
+        final Integer submissionId;
+        final Integer quizId;
+        final long dueMillis;
+
+        Deadline(Integer submissionId, Integer quizId, long dueMillis) {
+            this.submissionId = submissionId;
+            this.quizId = quizId;
+            this.dueMillis = dueMillis;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueMillis, ((Deadline) other).dueMillis);
+        }
+    }
+}
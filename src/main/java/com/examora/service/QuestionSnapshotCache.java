@@ -0,0 +1,189 @@
+package com.examora.service;
+
+import com.examora.dao.AnswerStore;
+import com.examora.dao.QuestionDAO;
+import com.examora.model.QuizSnapshot;
+import com.examora.util.AppConfig;
+import com.examora.util.MetricsRegistry;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Question Snapshot Cache - Application-wide cache of QuizSnapshot per quiz
+ * Every participant of a quiz shares one immutable snapshot. The cache is an
+ * LRU bounded by the estimated heap size of the snapshots
+ * (question.cache.maxBytes) and is invalidated by QuizService whenever a
+ * question of the quiz is added, updated or deleted. The serialized payload
+ * of a quiz (ExamPayloadCache) is dropped together with its snapshot. The
+ * packed answer store takes its answer slots and keys from here too.
+ */
+public class QuestionSnapshotCache {
+    private static final QuestionSnapshotCache INSTANCE = new QuestionSnapshotCache();
+
+    private final QuestionDAO questionDAO = new QuestionDAO();
+    private final long maxBytes;
+
+    // Access-ordered map guarded by lock; never held while querying the database
+    private final LinkedHashMap<Integer, QuizSnapshot> snapshots = new LinkedHashMap<>(64, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    private long totalBytes = 0;
+
+    // One in-flight load per quiz, so a start storm triggers a single query
+    private final Map<Integer, CompletableFuture<QuizSnapshot>> loading = new ConcurrentHashMap<>();
+    // Bumped on every invalidation so a load that raced with it is not cached
+    private final AtomicLong generation = new AtomicLong();
+    // Seeded with the clock so versions stay unique across restarts
+    private final AtomicLong versions = new AtomicLong(System.currentTimeMillis());
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private QuestionSnapshotCache() {
+        this.maxBytes = Math.max(1024 * 1024, AppConfig.getLong("question.cache.maxBytes", 64L * 1024 * 1024));
+        MetricsRegistry.register("questionCache", this::getStats);
+        AnswerStore.useSnapshots(this::get);
+    }
+
+    public static QuestionSnapshotCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the snapshot of a quiz, loading it on a miss
+     */
+    public QuizSnapshot get(Integer quizId) throws SQLException {
+        QuizSnapshot snapshot = lookup(quizId);
+        if (snapshot != null) {
+            hits.increment();
+            return snapshot;
+        }
+
+        misses.increment();
+        CompletableFuture<QuizSnapshot> created = new CompletableFuture<>();
+        CompletableFuture<QuizSnapshot> inFlight = loading.putIfAbsent(quizId, created);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+
+        try {
+            long seen = generation.get();
+            QuizSnapshot loaded = new QuizSnapshot(quizId, versions.incrementAndGet(),
+                    questionDAO.findByQuizId(quizId));
+            if (generation.get() == seen) {
+                store(loaded);
+            }
+            created.complete(loaded);
+            return loaded;
+        } catch (SQLException | RuntimeException e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(quizId, created);
+        }
+    }
+
+    /**
+     * Drop the snapshot of a quiz (call after the change is committed)
+     */
+    public void invalidate(Integer quizId) {
+        generation.incrementAndGet();
+        invalidations.increment();
+        lock.lock();
+        try {
+            QuizSnapshot removed = snapshots.remove(quizId);
+            if (removed != null) {
+                totalBytes -= removed.getEstimatedBytes();
+            }
+        } finally {
+            lock.unlock();
+        }
+        ExamPayloadCache.getInstance().invalidate(quizId);
+    }
+
+    /**
+     * Cache counters for the metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            stats.put("quizzes", snapshots.size());
+            stats.put("estimatedBytes", totalBytes);
+        } finally {
+            lock.unlock();
+        }
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("invalidations", invalidations.sum());
+        return stats;
+    }
+
+    private QuizSnapshot lookup(Integer quizId) {
+        lock.lock();
+        try {
+            return snapshots.get(quizId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void store(QuizSnapshot snapshot) {
+        List<Integer> evicted = new ArrayList<>();
+        lock.lock();
+        try {
+            QuizSnapshot previous = snapshots.put(snapshot.getQuizId(), snapshot);
+            if (previous != null) {
+                totalBytes -= previous.getEstimatedBytes();
+            }
+            totalBytes += snapshot.getEstimatedBytes();
+
+            // Evict least recently used snapshots, but always keep the newest one
+            Iterator<QuizSnapshot> eldest = snapshots.values().iterator();
+            while (totalBytes > maxBytes && snapshots.size() > 1 && eldest.hasNext()) {
+                QuizSnapshot candidate = eldest.next();
+                if (candidate == snapshot) {
+                    continue;
+                }
+                eldest.remove();
+                totalBytes -= candidate.getEstimatedBytes();
+                evictions.increment();
+                evicted.add(candidate.getQuizId());
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (Integer quizId : evicted) {
+            ExamPayloadCache.getInstance().invalidate(quizId);
+        }
+    }
+
+    private QuizSnapshot await(CompletableFuture<QuizSnapshot> future) throws SQLException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while loading questions", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            throw new SQLException("Failed to load questions: " + cause.getMessage(), cause);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.examora.dao.QuizDAO;
 import com.examora.dao.SubmissionDAO;
 import com.examora.model.Question;
 import com.examora.model.Quiz;
+import com.examora.util.Transaction;
 import com.examora.util.ValidationUtil;
 
 import java.sql.SQLException;
@@ -18,11 +19,19 @@ public class QuizService {
     private QuizDAO quizDAO;
     private QuestionDAO questionDAO;
     private SubmissionDAO submissionDAO;
+    private QuestionSnapshotCache snapshots;
+    private ActiveExamRegistry activeExams;
+    private DashboardCounters counters;
+    private RegradeService regrades;
 
     public QuizService() {
         this.quizDAO = new QuizDAO();
         this.questionDAO = new QuestionDAO();
         this.submissionDAO = new SubmissionDAO();
+        this.snapshots = QuestionSnapshotCache.getInstance();
+        this.activeExams = ActiveExamRegistry.getInstance();
+        this.counters = DashboardCounters.getInstance();
+        this.regrades = RegradeService.getInstance();
     }
 
     /**
@@ -62,7 +71,9 @@ public class QuizService {
             Quiz quiz = new Quiz(title, description, duration, createdBy);
             quiz.setDeadline(deadline);
             quiz.setTargetTag(targetTag);
-            return quizDAO.create(quiz);
+            Quiz created = quizDAO.create(quiz);
+            counters.quizCreated(Boolean.TRUE.equals(created.getIsActive()));
+            return created;
         } catch (SQLException e) {
             throw new ServiceException("Gagal membuat quiz: " + e.getMessage(), e);
         }
@@ -94,6 +105,17 @@ public class QuizService {
         }
     }
 
+    /**
+     * Get the most recently created quizzes (admin dashboard)
+     */
+    public List<Quiz> getRecentQuizzes(int limit) throws ServiceException {
+        try {
+            return quizDAO.findRecent(limit);
+        } catch (SQLException e) {
+            throw new ServiceException("Gagal mengambil data quizzes: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Get active quizzes
      */
@@ -156,7 +178,7 @@ public class QuizService {
             throw new ServiceException("Durasi harus lebih dari 0 menit");
         }
 
-        try {
+        try (Transaction tx = Transaction.begin()) {
             Quiz quiz = quizDAO.findById(id);
             if (quiz == null) {
                 throw new ServiceException("Quiz tidak ditemukan");
@@ -171,6 +193,9 @@ public class QuizService {
             if (!quizDAO.update(quiz)) {
                 throw new ServiceException("Gagal mengupdate quiz");
             }
+            tx.commit();
+            // Duration or deadline may have changed for exams in progress
+            ExamTimeoutSweeper.getInstance().rescheduleQuiz(id);
 
             return quiz;
         } catch (SQLException e) {
@@ -182,7 +207,7 @@ public class QuizService {
      * Publish quiz
      */
     public void publishQuiz(Integer id) throws ServiceException {
-        try {
+        try (Transaction tx = Transaction.begin()) {
             Quiz quiz = quizDAO.findById(id);
             if (quiz == null) {
                 throw new ServiceException("Quiz tidak ditemukan");
@@ -197,6 +222,8 @@ public class QuizService {
             if (!quizDAO.updateStatus(id, true)) {
                 throw new ServiceException("Gagal mempublish quiz");
             }
+            tx.commit();
+            counters.quizStatusChanged(Boolean.TRUE.equals(quiz.getIsActive()), true);
         } catch (SQLException e) {
             throw new ServiceException("Gagal mempublish quiz: " + e.getMessage(), e);
         }
@@ -206,10 +233,13 @@ public class QuizService {
      * Unpublish quiz
      */
     public void unpublishQuiz(Integer id) throws ServiceException {
-        try {
-            if (!quizDAO.updateStatus(id, false)) {
+        try (Transaction tx = Transaction.begin()) {
+            Quiz quiz = quizDAO.findById(id);
+            if (quiz == null || !quizDAO.updateStatus(id, false)) {
                 throw new ServiceException("Gagal unpublish quiz");
             }
+            tx.commit();
+            counters.quizStatusChanged(Boolean.TRUE.equals(quiz.getIsActive()), false);
         } catch (SQLException e) {
             throw new ServiceException("Gagal unpublish quiz: " + e.getMessage(), e);
         }
@@ -219,16 +249,21 @@ public class QuizService {
      * Delete quiz
      */
     public void deleteQuiz(Integer id) throws ServiceException {
-        try {
+        try (Transaction tx = Transaction.begin()) {
             // Check if quiz has submissions
             int submissionCount = submissionDAO.countByQuizId(id);
             if (submissionCount > 0) {
                 throw new ServiceException("Quiz tidak dapat dihapus karena sudah ada yang mengerjakan");
             }
 
-            if (!quizDAO.delete(id)) {
+            Quiz quiz = quizDAO.findById(id);
+            if (quiz == null || !quizDAO.delete(id)) {
                 throw new ServiceException("Gagal menghapus quiz");
             }
+            tx.commit();
+            counters.quizDeleted(Boolean.TRUE.equals(quiz.getIsActive()));
+            snapshots.invalidate(id);
+            activeExams.removeByQuiz(id);
         } catch (SQLException e) {
             throw new ServiceException("Gagal menghapus quiz: " + e.getMessage(), e);
         }
@@ -252,7 +287,7 @@ public class QuizService {
             throw new ServiceException("Jawaban benar harus A, B, C, atau D");
         }
 
-        try {
+        try (Transaction tx = Transaction.begin()) {
             // Check if quiz exists
             Quiz quiz = quizDAO.findById(quizId);
             if (quiz == null) {
@@ -261,11 +296,18 @@ public class QuizService {
 
             // Get next order number
             int order = questionDAO.countByQuizId(quizId);
+            if (questionDAO.usesAnswerSlots() && order >= QuestionDAO.MAX_ANSWER_SLOTS) {
+                throw new ServiceException("Quiz sudah berisi " + QuestionDAO.MAX_ANSWER_SLOTS +
+                        " pertanyaan (batas maksimal)");
+            }
 
             Question question = new Question(quizId, questionText, optionA, optionB, optionC, optionD, correctAnswer.toUpperCase());
             question.setQuestionOrder(order);
 
-            return questionDAO.create(question);
+            Question created = questionDAO.create(question);
+            tx.commit();
+            snapshots.invalidate(quizId);
+            return created;
         } catch (SQLException e) {
             throw new ServiceException("Gagal menambah pertanyaan: " + e.getMessage(), e);
         }
@@ -299,12 +341,13 @@ public class QuizService {
             throw new ServiceException("Jawaban benar harus A, B, C, atau D");
         }
 
-        try {
+        try (Transaction tx = Transaction.begin()) {
             Question question = questionDAO.findById(questionId);
             if (question == null) {
                 throw new ServiceException("Pertanyaan tidak ditemukan");
             }
 
+            boolean keyChanged = !correctAnswer.equalsIgnoreCase(question.getCorrectAnswer());
             question.setQuestionText(questionText);
             question.setOptionA(optionA);
             question.setOptionB(optionB);
@@ -315,6 +358,12 @@ public class QuizService {
             if (!questionDAO.update(question)) {
                 throw new ServiceException("Gagal mengupdate pertanyaan");
             }
+            tx.commit();
+            snapshots.invalidate(question.getQuizId());
+            if (keyChanged) {
+                // Existing answers and scores follow the new key in the background
+                regrades.regradeQuestion(questionId, false);
+            }
 
             return question;
         } catch (SQLException e) {
@@ -326,10 +375,13 @@ public class QuizService {
      * Delete question
      */
     public void deleteQuestion(Integer questionId) throws ServiceException {
-        try {
-            if (!questionDAO.delete(questionId)) {
+        try (Transaction tx = Transaction.begin()) {
+            Question question = questionDAO.findById(questionId);
+            if (question == null || !questionDAO.delete(questionId)) {
                 throw new ServiceException("Gagal menghapus pertanyaan");
             }
+            tx.commit();
+            snapshots.invalidate(question.getQuizId());
         } catch (SQLException e) {
             throw new ServiceException("Gagal menghapus pertanyaan: " + e.getMessage(), e);
         }
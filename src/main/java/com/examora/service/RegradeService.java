@@ -0,0 +1,236 @@
+package com.examora.service;
+
+import com.examora.dao.SubmissionDAO;
+import com.examora.dao.SubmissionResultDAO;
+import com.examora.model.RegradeJob;
+import com.examora.util.AppConfig;
+import com.examora.util.MetricsRegistry;
+import com.examora.util.Threads;
+import com.examora.util.Transaction;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Regrade Service - Recomputes answers and scores after answer-key changes
+ * A regrade covers one question, one quiz or every submission. It walks the
+ * affected submissions in id order, one chunk (regrade.chunkSize) per short
+ * transaction: stored correctness is recomputed against the answer key and
+ * scores with one grouped UPDATE, so locks are held only for a chunk and live
+ * exams keep running. Jobs run one at a time on a background thread; a dry
+ * run only reports the submissions whose score would change.
+ */
+public class RegradeService {
+    private static final RegradeService INSTANCE = new RegradeService();
+    private static final int MAX_JOBS_KEPT = 50;
+
+    private final SubmissionDAO submissionDAO = new SubmissionDAO();
+    private final SubmissionResultDAO resultDAO = new SubmissionResultDAO();
+    private final int chunkSize;
+    private final long pauseMillis;
+    private final int maxReportedChanges;
+
+    private final AtomicLong jobIds = new AtomicLong();
+    private final LongAdder answersUpdated = new LongAdder();
+    private final LongAdder scoresChanged = new LongAdder();
+    private final LongAdder failedJobs = new LongAdder();
+    private final ConcurrentSkipListMap<Long, RegradeJob> jobs = new ConcurrentSkipListMap<>();
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(Threads.factory("regrade-worker", false));
+
+    private RegradeService() {
+        this.chunkSize = Math.max(1, AppConfig.getInt("regrade.chunkSize", 500));
+        this.pauseMillis = Math.max(0, AppConfig.getLong("regrade.pauseMillis", 50));
+        this.maxReportedChanges = Math.max(0, AppConfig.getInt("regrade.maxReportedChanges", 1000));
+        MetricsRegistry.register("regrade", this::getStats);
+    }
+
+    public static RegradeService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Queue a regrade of the answers to one question
+     */
+    public RegradeJob regradeQuestion(Integer questionId, boolean dryRun) {
+        return submit("question", questionId, dryRun);
+    }
+
+    /**
+     * Queue a regrade of every submission of a quiz
+     */
+    public RegradeJob regradeQuiz(Integer quizId, boolean dryRun) {
+        return submit("quiz", quizId, dryRun);
+    }
+
+    /**
+     * Queue a regrade of every submission
+     */
+    public RegradeJob regradeAll(boolean dryRun) {
+        return submit("global", null, dryRun);
+    }
+
+    public RegradeJob getJob(long jobId) {
+        return jobs.get(jobId);
+    }
+
+    /**
+     * Most recent jobs first
+     */
+    public List<RegradeJob> getJobs() {
+        return new ArrayList<>(jobs.descendingMap().values());
+    }
+
+    /**
+     * Regrade counters for the metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        int active = 0;
+        for (RegradeJob job : jobs.values()) {
+            if (!job.isFinished()) {
+                active++;
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("jobs", jobIds.get());
+        stats.put("activeJobs", active);
+        stats.put("failedJobs", failedJobs.sum());
+        stats.put("answersUpdated", answersUpdated.sum());
+        stats.put("scoresChanged", scoresChanged.sum());
+        return stats;
+    }
+
+    /**
+     * Stop the worker (application shutdown); a running job stops after its current chunk
+     */
+    public void shutdown() {
+        worker.shutdownNow();
+        try {
+            worker.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private RegradeJob submit(String scope, Integer targetId, boolean dryRun) {
+        RegradeJob job = new RegradeJob(jobIds.incrementAndGet(), scope, targetId, dryRun, maxReportedChanges);
+        jobs.put(job.getId(), job);
+        trimHistory();
+        worker.execute(() -> run(job));
+        return job;
+    }
+
+    private void run(RegradeJob job) {
+        job.setStatus("running");
+        job.setStartedAt(System.currentTimeMillis());
+        Integer quizId = "quiz".equals(job.getScope()) ? job.getTargetId() : null;
+        Integer questionId = "question".equals(job.getScope()) ? job.getTargetId() : null;
+
+        try {
+            if (!job.isDryRun()) {
+                // Buffered answers carry is_correct from the old key; write them first so they are regraded too
+                AnswerWriteBuffer.getInstance().flush();
+            }
+
+            int afterId = 0;
+            while (!Thread.currentThread().isInterrupted()) {
+                List<Integer> ids = submissionDAO.findIdsForRegrade(quizId, questionId, afterId, chunkSize);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                afterId = ids.get(ids.size() - 1);
+                processChunk(job, ids, questionId);
+
+                if (pauseMillis > 0) {
+                    Thread.sleep(pauseMillis);
+                }
+            }
+
+            if (Thread.currentThread().isInterrupted()) {
+                fail(job, "Dihentikan sebelum selesai");
+            } else {
+                job.setStatus("done");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(job, "Dihentikan sebelum selesai");
+        } catch (SQLException | IOException | RuntimeException e) {
+            fail(job, e.getMessage());
+            System.err.println("RegradeService: job " + job.getId() + " failed: " + e.getMessage());
+        } finally {
+            job.setFinishedAt(System.currentTimeMillis());
+        }
+    }
+
+    private void processChunk(RegradeJob job, List<Integer> ids, Integer questionId) throws SQLException {
+        try (Transaction tx = Transaction.begin()) {
+            List<Map<String, Object>> changed = new ArrayList<>();
+            for (Map<String, Object> row : submissionDAO.previewRegrade(ids)) {
+                int total = (Integer) row.get("totalQuestions");
+                int newCorrect = (Integer) row.get("newCorrectAnswers");
+                double oldScore = (Double) row.get("score");
+                double newScore = scoreOf(newCorrect, total);
+                if (newCorrect != (Integer) row.get("correctAnswers") || newScore != oldScore) {
+                    Map<String, Object> change = new LinkedHashMap<>();
+                    change.put("submissionId", row.get("id"));
+                    change.put("quizId", row.get("quizId"));
+                    change.put("userId", row.get("userId"));
+                    change.put("userName", row.get("userName"));
+                    change.put("oldCorrectAnswers", row.get("correctAnswers"));
+                    change.put("newCorrectAnswers", newCorrect);
+                    change.put("oldScore", oldScore);
+                    change.put("newScore", newScore);
+                    changed.add(change);
+                }
+            }
+
+            int answers = 0;
+            if (!job.isDryRun()) {
+                answers = submissionDAO.regradeAnswers(ids, questionId);
+                if (!changed.isEmpty()) {
+                    submissionDAO.rescoreSubmissions(ids);
+                }
+                // Frozen result documents show the old key; they are rebuilt on the next read
+                resultDAO.deleteBySubmissionIds(ids);
+            }
+            tx.commit();
+            job.addChunk(ids.size(), answers, changed);
+            if (!job.isDryRun()) {
+                answersUpdated.add(answers);
+                scoresChanged.add(changed.size());
+            }
+        }
+    }
+
+    private void fail(RegradeJob job, String error) {
+        failedJobs.increment();
+        job.setStatus("failed");
+        job.setError(error);
+    }
+
+    // Same rounding as SubmissionDAO.completeSubmission
+    private static double scoreOf(int correct, int total) {
+        double score = total > 0 ? (correct * 100.0 / total) : 0;
+        score = Math.min(100.0, Math.max(0.0, score));
+        return Math.round(score * 100.0) / 100.0;
+    }
+
+    private void trimHistory() {
+        while (jobs.size() > MAX_JOBS_KEPT) {
+            Map.Entry<Long, RegradeJob> oldest = jobs.firstEntry();
+            if (oldest == null || !oldest.getValue().isFinished()) {
+                return;
+            }
+            jobs.remove(oldest.getKey());
+        }
+    }
+}
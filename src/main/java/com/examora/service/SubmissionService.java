@@ -1,17 +1,27 @@
 package com.examora.service;
 
-import com.examora.dao.QuestionDAO;
 import com.examora.dao.QuizDAO;
 import com.examora.dao.SubmissionDAO;
+import com.examora.dao.SubmissionResultDAO;
+import com.examora.model.ActiveExam;
 import com.examora.model.Answer;
-import com.examora.model.Question;
+import com.examora.model.ExamQuestion;
 import com.examora.model.Quiz;
+import com.examora.model.QuizSnapshot;
 import com.examora.model.Submission;
+import com.examora.model.SubmissionResult;
+import com.examora.util.AppConfig;
+import com.examora.util.ShuffleUtil;
+import com.examora.util.Transaction;
 import com.examora.util.ValidationUtil;
 
+import java.io.IOException;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -19,14 +29,35 @@ import java.util.Map;
  * Submission Service - Business logic for quiz submissions
  */
 public class SubmissionService {
+    // Upper bound for one saveAnswers request
+    private static final int MAX_BATCH_ANSWERS = 200;
+
     private SubmissionDAO submissionDAO;
+    private SubmissionResultDAO resultDAO;
     private QuizDAO quizDAO;
-    private QuestionDAO questionDAO;
+    private AnswerWriteBuffer answerBuffer;
+    private ActiveExamRegistry activeExams;
+    private QuestionSnapshotCache snapshots;
+    private ExamPayloadCache payloads;
+    private DashboardCounters counters;
+    private ExamTimeoutSweeper timeoutSweeper;
+    private ExamChannelHub channels;
+    private ExamActivityTracker activity;
+    private boolean shuffleOptions;
 
     public SubmissionService() {
         this.submissionDAO = new SubmissionDAO();
+        this.resultDAO = new SubmissionResultDAO();
         this.quizDAO = new QuizDAO();
-        this.questionDAO = new QuestionDAO();
+        this.answerBuffer = AnswerWriteBuffer.getInstance();
+        this.activeExams = ActiveExamRegistry.getInstance();
+        this.snapshots = QuestionSnapshotCache.getInstance();
+        this.payloads = ExamPayloadCache.getInstance();
+        this.counters = DashboardCounters.getInstance();
+        this.timeoutSweeper = ExamTimeoutSweeper.getInstance();
+        this.channels = ExamChannelHub.getInstance();
+        this.activity = ExamActivityTracker.getInstance();
+        this.shuffleOptions = AppConfig.getBoolean("exam.shuffleOptions", false);
     }
 
     /**
@@ -34,47 +65,188 @@ public class SubmissionService {
      */
     public Submission startQuiz(Integer quizId, Integer userId) throws ServiceException {
         try {
-            // Check if quiz exists and is active
-            Quiz quiz = quizDAO.findById(quizId);
-            if (quiz == null) {
-                throw new ServiceException("Quiz tidak ditemukan");
+            return startQuiz(quizDAO.findById(quizId), userId);
+        } catch (SQLException e) {
+            throw new ServiceException("Gagal memulai quiz: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Start a quiz, or return the user's in-progress submission for it
+     * Idempotent: concurrent starts (double clicks, several tabs) all get the
+     * same submission. Instead of checking first, the INSERT relies on the
+     * unique_user_quiz key, so a first start is a single statement; only when
+     * it finds an existing row is that row read. Resuming an exam this node
+     * already tracks needs no query at all.
+     */
+    public Submission startQuiz(Quiz quiz, Integer userId) throws ServiceException {
+        // Check if quiz exists and is active
+        if (quiz == null) {
+            throw new ServiceException("Quiz tidak ditemukan");
+        }
+        if (!quiz.getIsActive()) {
+            throw new ServiceException("Quiz belum dipublish");
+        }
+
+        // Check if quiz has expired (past deadline)
+        if (quiz.isExpired()) {
+            throw new ServiceException("Quiz sudah melewati deadline (" + quiz.getFormattedDeadline() + ")");
+        }
+
+        ActiveExam active = activeExams.find(userId, quiz.getId());
+        if (active != null) {
+            return active.toSubmission();
+        }
+
+        try {
+            Submission submission = new Submission(quiz.getId(), userId);
+            submission.setShuffleSeed(ShuffleUtil.newSeed());
+            submission.setTotalQuestions(snapshots.get(quiz.getId()).getQuestions().size());
+
+            Submission created = submissionDAO.createIfAbsent(submission);
+            if (created != null) {
+                activeExams.register(created);
+                timeoutSweeper.schedule(created, quiz);
+                counters.submissionStarted();
+                return created;
             }
-            if (!quiz.getIsActive()) {
-                throw new ServiceException("Quiz belum dipublish");
+
+            // Lost the race or started before: the existing row decides
+            Submission existing = submissionDAO.findByUserAndQuiz(userId, quiz.getId());
+            if (existing == null) {
+                throw new ServiceException("Gagal memulai quiz, silakan coba lagi");
             }
+            if (!existing.isInProgress()) {
+                throw new ServiceException("Anda sudah mengerjakan quiz ini");
+            }
+            activeExams.register(existing);
+            timeoutSweeper.schedule(existing, quiz);
+            return existing;
+
+        } catch (SQLException e) {
+            throw new ServiceException("Gagal memulai quiz: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The user's in-progress submission of a quiz for the exam page, or null
+     * An exam started on this node is taken from the registry without a
+     * query; otherwise (e.g. after a restart) the row is read and the exam is
+     * tracked again, as a resumed start would.
+     */
+    public Submission openExam(Quiz quiz, Integer userId) throws ServiceException {
+        ActiveExam active = activeExams.find(userId, quiz.getId());
+        if (active != null) {
+            return active.toSubmission();
+        }
 
-            // Check if quiz has expired (past deadline)
-            if (quiz.isExpired()) {
-                throw new ServiceException("Quiz sudah melewati deadline (" + quiz.getFormattedDeadline() + ")");
+        try {
+            Submission submission = submissionDAO.findByUserAndQuiz(userId, quiz.getId());
+            if (submission == null || !submission.isInProgress()) {
+                return null;
             }
+            activeExams.register(submission);
+            timeoutSweeper.schedule(submission, quiz);
+            return submission;
+        } catch (SQLException e) {
+            throw new ServiceException("Gagal mengambil data submission: " + e.getMessage(), e);
+        }
+    }
 
-            // Check if user has already submitted
-            if (submissionDAO.hasSubmitted(userId, quizId)) {
-                throw new ServiceException("Anda sudah mengerjakan quiz ini");
+    /**
+     * Saved answers of an in-progress submission (questionId -> letter),
+     * including those still waiting in the write buffer
+     */
+    public Map<Integer, String> getSavedAnswers(Integer submissionId) throws ServiceException {
+        try {
+            Map<Integer, String> saved = new HashMap<>();
+            for (Answer answer : mergePendingAnswers(submissionId, submissionDAO.getAnswers(submissionId))) {
+                saved.put(answer.getQuestionId(), answer.getSelectedAnswer());
             }
+            return saved;
+        } catch (SQLException e) {
+            throw new ServiceException("Gagal mengambil jawaban: " + e.getMessage(), e);
+        }
+    }
 
-            // Check if there's an in-progress submission
-            Submission existing = submissionDAO.findByUserAndQuiz(userId, quizId);
-            if (existing != null && existing.isInProgress()) {
-                return existing;
+    /**
+     * Get questions for taking quiz, in the order fixed by the submission's shuffle seed
+     * The order is keyed by question id, so questions added or deleted during
+     * the exam do not move the others.
+     */
+    public List<ExamQuestion> getQuestionsForExam(Submission submission) throws ServiceException {
+        try {
+            List<ExamQuestion> questions = snapshots.get(submission.getQuizId()).getQuestions();
+            // Submissions created before seeds existed fall back to their id
+            long seed = submission.getShuffleSeed() != null ? submission.getShuffleSeed() : submission.getId();
+
+            List<ExamQuestion> ordered = ShuffleUtil.shuffleByIds(questions, ExamQuestion::getId, seed);
+            if (shuffleOptions) {
+                for (int i = 0; i < ordered.size(); i++) {
+                    ExamQuestion question = ordered.get(i);
+                    long optionSeed = ShuffleUtil.derive(seed, question.getId());
+                    ordered.set(i, question.withOptionOrder(
+                            ShuffleUtil.shuffle(ExamQuestion.OPTION_LETTERS, optionSeed)));
+                }
             }
+            return ordered;
+        } catch (SQLException e) {
+            throw new ServiceException("Gagal mengambil soal: " + e.getMessage(), e);
+        }
+    }
 
-            // Create new submission
-            Submission submission = new Submission(quizId, userId);
-            submission.setTotalQuestions(questionDAO.countByQuizId(quizId));
-            return submissionDAO.create(submission);
+    /**
+     * The submission's question and option order as index lists into the
+     * exam payload (same order as getQuestionsForExam): "order" holds payload
+     * positions, "options" (only with exam.shuffleOptions) the option indexes
+     * of each question in display order, and "version" the snapshot they
+     * refer to.
+     */
+    public Map<String, Object> getExamOrder(Submission submission) throws ServiceException {
+        try {
+            QuizSnapshot snapshot = snapshots.get(submission.getQuizId());
+            List<ExamQuestion> questions = snapshot.getQuestions();
+            long seed = submission.getShuffleSeed() != null ? submission.getShuffleSeed() : submission.getId();
 
+            long[] ids = new long[questions.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = questions.get(i).getId();
+            }
+            int[] order = ShuffleUtil.orderByIds(ids, seed);
+            Map<String, Object> view = new LinkedHashMap<>();
+            view.put("version", snapshot.getVersion());
+            view.put("order", order);
+            if (shuffleOptions) {
+                int[][] options = new int[order.length][];
+                for (int i = 0; i < order.length; i++) {
+                    long optionSeed = ShuffleUtil.derive(seed, questions.get(order[i]).getId());
+                    options[i] = ShuffleUtil.permutation(ExamQuestion.OPTION_LETTERS.size(), optionSeed);
+                }
+                view.put("options", options);
+            }
+            return view;
         } catch (SQLException e) {
-            throw new ServiceException("Gagal memulai quiz: " + e.getMessage(), e);
+            throw new ServiceException("Gagal mengambil soal: " + e.getMessage(), e);
         }
     }
 
     /**
-     * Get questions for taking quiz
+     * Serialized questions of an in-progress submission's quiz, shared by
+     * every participant (see ExamPayloadCache)
      */
-    public List<Question> getQuestionsForExam(Integer quizId) throws ServiceException {
+    public ExamPayloadCache.Payload getExamPayload(Integer userId, Integer submissionId) throws ServiceException {
+        if (submissionId == null || submissionId <= 0) {
+            throw new ServiceException("Submission ID tidak valid");
+        }
         try {
-            return questionDAO.findByQuizIdForExam(quizId);
+            ActiveExam exam = activeExams.get(submissionId);
+            if (exam == null || exam.isClosed()) {
+                throw new ServiceException("Submission tidak ditemukan atau quiz sudah selesai");
+            }
+            if (!exam.isOwnedBy(userId)) {
+                throw new ServiceException("Unauthorized");
+            }
+            return payloads.get(snapshots.get(exam.getQuizId()));
         } catch (SQLException e) {
             throw new ServiceException("Gagal mengambil soal: " + e.getMessage(), e);
         }
@@ -82,9 +254,15 @@ public class SubmissionService {
 
     /**
      * Save an answer during exam
+     * Ownership, status and question membership are checked against the
+     * in-memory active exam and the cached quiz snapshot, so a normal save costs a
+     * single upsert (or no query at all in buffered mode). clientSeq (optional)
+     * orders saves of one submission: the stored answer is only replaced by a
+     * save with a higher sequence, so a late or retried request cannot undo a
+     * newer one.
      */
-    public void saveAnswer(Integer submissionId, Integer questionId, String selectedAnswer)
-            throws ServiceException {
+    public void saveAnswer(Integer userId, Integer submissionId, Integer questionId, String selectedAnswer,
+                           Long clientSeq) throws ServiceException {
         // Validate inputs
         if (submissionId == null || submissionId <= 0) {
             throw new ServiceException("Submission ID tidak valid");
@@ -97,104 +275,364 @@ public class SubmissionService {
         }
 
         try {
-            // Verify submission exists and is in progress
-            Submission submission = submissionDAO.findById(submissionId);
-            if (submission == null) {
-                throw new ServiceException("Submission tidak ditemukan");
+            // Verify submission exists, belongs to the user and is in progress
+            ActiveExam exam = activeExams.get(submissionId);
+            if (exam == null) {
+                throw new ServiceException("Submission tidak ditemukan atau quiz sudah selesai");
             }
-            if (submission.isCompleted()) {
-                throw new ServiceException("Quiz sudah selesai, tidak dapat mengubah jawaban");
-            }
-
-            // Get question and verify it belongs to the quiz
-            Question question = questionDAO.findById(questionId);
-            if (question == null) {
-                throw new ServiceException("Pertanyaan tidak ditemukan");
+            if (!exam.isOwnedBy(userId)) {
+                throw new ServiceException("Unauthorized");
             }
 
             // Verify question belongs to this quiz
-            if (!question.getQuizId().equals(submission.getQuizId())) {
+            QuizSnapshot snapshot = snapshots.get(exam.getQuizId());
+            String correctAnswer = snapshot.getCorrectAnswer(questionId);
+            if (correctAnswer == null) {
                 throw new ServiceException("Pertanyaan tidak termasuk dalam quiz ini");
             }
 
             // Calculate correctness
-            boolean isCorrect = selectedAnswer.equalsIgnoreCase(question.getCorrectAnswer());
+            boolean isCorrect = selectedAnswer.equalsIgnoreCase(correctAnswer);
 
             // Save answer (will update if exists due to unique constraint)
             Answer answer = new Answer(submissionId, questionId, selectedAnswer.toUpperCase());
             answer.setIsCorrect(isCorrect);
+            answer.setClientSeq(clientSeq);
 
-            submissionDAO.saveAnswer(answer);
+            // A submit closes the exam only after in-flight saves are done, and
+            // the store itself refuses answers for a submission closed elsewhere
+            if (!exam.beginSave()) {
+                throw new ServiceException("Quiz sudah selesai, tidak dapat mengubah jawaban");
+            }
+            try {
+                activity.touch(exam);
+                if (answerBuffer.isEnabled()) {
+                    answerBuffer.append(answer);
+                } else if (!submissionDAO.saveAnswer(answer)) {
+                    throw new ServiceException("Quiz sudah selesai, tidak dapat mengubah jawaban");
+                }
+            } finally {
+                exam.endSave();
+            }
 
-        } catch (SQLException e) {
+        } catch (SQLException | IOException e) {
             throw new ServiceException("Gagal menyimpan jawaban: " + e.getMessage(), e);
         }
     }
 
     /**
-     * Submit quiz and calculate score
+     * Save several answers of one submission from a single request
+     * Ownership and status are checked once and every item is validated in
+     * one pass against the quiz snapshot; the valid ones are written with one
+     * JDBC batch (or one journal write in buffered mode). When a question
+     * appears more than once, the item with the highest clientSeq wins (the
+     * later one if no sequence is given). Returns one status per item, in
+     * request order: "saved", "superseded" or "invalid" (with a message).
+     * "saved" means accepted: the store still keeps an already stored answer
+     * whose clientSeq is higher.
      */
-    public Submission submitQuiz(Integer submissionId, Integer timeSpent) throws ServiceException {
-        // Validate inputs
+    public List<Map<String, Object>> saveAnswers(Integer userId, Integer submissionId, List<Answer> items)
+            throws ServiceException {
         if (submissionId == null || submissionId <= 0) {
             throw new ServiceException("Submission ID tidak valid");
         }
-        if (timeSpent != null && timeSpent < 0) {
-            timeSpent = 0; // Default to 0 if negative
+        if (items == null || items.isEmpty()) {
+            throw new ServiceException("Tidak ada jawaban untuk disimpan");
+        }
+        if (items.size() > MAX_BATCH_ANSWERS) {
+            throw new ServiceException("Terlalu banyak jawaban dalam satu permintaan (maksimal " + MAX_BATCH_ANSWERS + ")");
         }
 
         try {
-            Submission submission = submissionDAO.findById(submissionId);
-            if (submission == null) {
-                throw new ServiceException("Submission tidak ditemukan");
+            ActiveExam exam = activeExams.get(submissionId);
+            if (exam == null) {
+                throw new ServiceException("Submission tidak ditemukan atau quiz sudah selesai");
+            }
+            if (!exam.isOwnedBy(userId)) {
+                throw new ServiceException("Unauthorized");
             }
 
-            if (submission.isCompleted()) {
-                throw new ServiceException("Quiz sudah disubmit");
+            QuizSnapshot snapshot = snapshots.get(exam.getQuizId());
+            List<Map<String, Object>> results = new ArrayList<>(items.size());
+            // Winning item per question
+            Map<Integer, Integer> latest = new HashMap<>();
+            for (int i = 0; i < items.size(); i++) {
+                Answer item = items.get(i);
+                Map<String, Object> result = new LinkedHashMap<>();
+                result.put("q", item.getQuestionId());
+                result.put("s", item.getClientSeq());
+                results.add(result);
+
+                String correctAnswer = item.getQuestionId() != null ? snapshot.getCorrectAnswer(item.getQuestionId()) : null;
+                if (!ValidationUtil.isValidAnswer(item.getSelectedAnswer())) {
+                    invalid(result, "Jawaban tidak valid (harus A, B, C, atau D)");
+                    continue;
+                }
+                if (correctAnswer == null) {
+                    invalid(result, "Pertanyaan tidak termasuk dalam quiz ini");
+                    continue;
+                }
+
+                String selected = item.getSelectedAnswer().toUpperCase();
+                item.setSubmissionId(submissionId);
+                item.setSelectedAnswer(selected);
+                item.setIsCorrect(selected.equals(correctAnswer.toUpperCase()));
+
+                Integer previous = latest.get(item.getQuestionId());
+                if (previous != null && isNewer(items.get(previous), item)) {
+                    results.get(i).put("status", "superseded");
+                    continue;
+                }
+                if (previous != null) {
+                    results.get(previous).put("status", "superseded");
+                }
+                latest.put(item.getQuestionId(), i);
+                result.put("status", "saved");
             }
 
-            // Get all answers for this submission
-            List<Answer> answers = submissionDAO.getAnswers(submissionId);
-            int correctCount = 0;
+            List<Answer> batch = new ArrayList<>(latest.size());
+            for (Integer index : latest.values()) {
+                batch.add(items.get(index));
+            }
+            if (batch.isEmpty()) {
+                return results;
+            }
 
-            for (Answer answer : answers) {
-                if (answer.getIsCorrect() != null && answer.getIsCorrect()) {
-                    correctCount++;
+            if (!exam.beginSave()) {
+                throw new ServiceException("Quiz sudah selesai, tidak dapat mengubah jawaban");
+            }
+            try {
+                activity.touch(exam);
+                if (answerBuffer.isEnabled()) {
+                    answerBuffer.appendAll(batch);
+                } else if (submissionDAO.saveAnswers(batch) == 0) {
+                    throw new ServiceException("Quiz sudah selesai, tidak dapat mengubah jawaban");
                 }
+            } finally {
+                exam.endSave();
             }
+            return results;
+
+        } catch (SQLException | IOException e) {
+            throw new ServiceException("Gagal menyimpan jawaban: " + e.getMessage(), e);
+        }
+    }
 
-            // Get total questions from quiz
-            int totalQuestions = questionDAO.countByQuizId(submission.getQuizId());
-            if (totalQuestions <= 0) {
-                totalQuestions = submission.getTotalQuestions();
+    /**
+     * Heartbeat of an open exam page; only recorded in memory
+     */
+    public void heartbeat(Integer userId, Integer submissionId) throws ServiceException {
+        if (submissionId == null || submissionId <= 0) {
+            throw new ServiceException("Submission ID tidak valid");
+        }
+        try {
+            ActiveExam exam = activeExams.get(submissionId);
+            if (exam == null || exam.isClosed()) {
+                throw new ServiceException("Submission tidak ditemukan atau quiz sudah selesai");
+            }
+            if (!exam.isOwnedBy(userId)) {
+                throw new ServiceException("Unauthorized");
             }
+            activity.touch(exam);
+        } catch (SQLException e) {
+            throw new ServiceException("Gagal mencatat aktivitas: " + e.getMessage(), e);
+        }
+    }
+
+    // Whether a is newer than b: higher clientSeq, or b has none
+    private static boolean isNewer(Answer a, Answer b) {
+        if (a.getClientSeq() == null || b.getClientSeq() == null) {
+            return b.getClientSeq() == null && a.getClientSeq() != null;
+        }
+        return a.getClientSeq() > b.getClientSeq();
+    }
 
-            // Calculate score (0-100)
-            double score = totalQuestions > 0 ? (correctCount * 100.0 / totalQuestions) : 0;
-            score = Math.min(100.0, Math.max(0.0, score)); // Ensure score is between 0-100
+    private static void reopen(List<ActiveExam> exams) {
+        for (ActiveExam exam : exams) {
+            exam.reopen();
+        }
+    }
+
+    private static void invalid(Map<String, Object> result, String message) {
+        result.put("status", "invalid");
+        result.put("message", message);
+    }
 
-            // Update submission
-            submission.setTotalQuestions(totalQuestions);
-            submission.setCorrectAnswers(correctCount);
-            submission.setScore(Math.round(score * 100.0) / 100.0); // Round to 2 decimal places
-            submission.setSubmittedAt(LocalDateTime.now());
-            submission.setTimeSpent(timeSpent != null ? timeSpent : 0);
-            submission.setStatus("completed");
+    /**
+     * Submit quiz and calculate score
+     * The in_progress -> completed transition is one conditional UPDATE that
+     * also grades, so concurrent submits (double clicks, a second tab, the
+     * timeout sweeper) cannot both win and nothing is read first. Returns true
+     * if this call completed the submission, false if it was already finished
+     * (the caller just shows the result). A missing or foreign submission
+     * raises AccessException. The result document is written right after
+     * the transition, so the result page reads one row. Time spent is measured on the server, from started_at to
+     * now.
+     */
+    public boolean submitQuiz(Integer submissionId, Integer userId) throws ServiceException {
+        // Validate inputs
+        if (submissionId == null || submissionId <= 0) {
+            throw new ServiceException("Submission ID tidak valid");
+        }
 
-            if (!submissionDAO.update(submission)) {
-                throw new ServiceException("Gagal mengupdate submission");
+        // Stop accepting answers on this node; waits for saves in flight
+        ActiveExam exam = activeExams.peek(submissionId);
+        if (exam != null) {
+            if (!exam.isOwnedBy(userId)) {
+                throw new AccessException("Unauthorized");
             }
+            exam.close();
+        }
 
-            // Set answers for display
-            submission.setAnswers(answers);
+        boolean completed;
+        try {
+            // Every acknowledged answer must be in the table before grading
+            answerBuffer.flushSubmission(submissionId);
 
-            return submission;
+            try (Transaction tx = Transaction.begin()) {
+                completed = submissionDAO.completeSubmission(submissionId, userId, LocalDateTime.now());
+                tx.commit();
+            }
+        } catch (SQLException e) {
+            if (exam != null) {
+                exam.reopen();
+            }
+            throw new ServiceException("Gagal submit quiz: " + e.getMessage(), e);
+        }
+
+        if (completed) {
+            activeExams.remove(submissionId);
+            timeoutSweeper.cancel(submissionId);
+            activity.forget(Collections.singletonList(submissionId));
+            channels.finished(submissionId, "completed");
+            counters.submissionFinished("completed");
+            try {
+                buildResult(submissionId);
+            } catch (SQLException e) {
+                // The submit stands; the result page builds the document instead
+                System.err.println("SubmissionService: result document of submission " + submissionId +
+                        " not written: " + e.getMessage());
+            }
+            return true;
+        }
 
+        // Nothing updated: find out why (only on this path)
+        try {
+            Submission submission = submissionDAO.findById(submissionId);
+            if (submission == null) {
+                throw new AccessException("Submission tidak ditemukan");
+            }
+            if (!submission.getUserId().equals(userId)) {
+                throw new AccessException("Unauthorized");
+            }
+            // Completed by a concurrent submit or closed by the timeout sweeper
+            activeExams.remove(submissionId);
+            return false;
         } catch (SQLException e) {
             throw new ServiceException("Gagal submit quiz: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Grade and close every in-progress submission of a quiz at once
+     * (e.g. when its deadline has passed). Answers are re-checked against the
+     * quiz's answer key and scores computed with set-based statements instead
+     * of running submitQuiz per participant. Open submissions are marked
+     * 'timeout'. Returns "closed" (submissions closed) and "durationMillis".
+     */
+    public Map<String, Object> finalizeQuiz(Integer quizId) throws ServiceException {
+        if (quizId == null || quizId <= 0) {
+            throw new ServiceException("Quiz ID tidak valid");
+        }
+
+        long start = System.nanoTime();
+        // Stop accepting answers on this node before the flush (as submitQuiz does)
+        List<ActiveExam> closing = activeExams.closeByQuiz(quizId);
+        try {
+            // Acknowledged answers must be in the table before grading, and
+            // heartbeats before time spent is computed
+            answerBuffer.flush();
+            activity.flush();
+
+            int closed;
+            try (Transaction tx = Transaction.begin()) {
+                if (quizDAO.findById(quizId) == null) {
+                    throw new ServiceException("Quiz tidak ditemukan");
+                }
+                submissionDAO.regradeOpenAnswers(quizId);
+                closed = submissionDAO.finalizeQuizSubmissions(quizId, "timeout", LocalDateTime.now());
+                tx.commit();
+            }
+
+            activeExams.removeByQuiz(quizId);
+            timeoutSweeper.cancelQuiz(quizId);
+            activity.forgetQuiz(quizId);
+            channels.finishedQuiz(quizId, "timeout");
+            counters.submissionsFinished("timeout", closed);
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("closed", closed);
+            result.put("durationMillis", (System.nanoTime() - start) / 1_000_000);
+            return result;
+        } catch (SQLException | IOException e) {
+            reopen(closing);
+            throw new ServiceException("Gagal menutup quiz: " + e.getMessage(), e);
+        } catch (ServiceException | RuntimeException e) {
+            reopen(closing);
+            throw e;
+        }
+    }
+
+    /**
+     * Stored result document of a submission, or null; never builds one
+     */
+    public SubmissionResult getStoredResult(Integer submissionId) throws ServiceException {
+        try {
+            return resultDAO.findBySubmissionId(submissionId);
+        } catch (SQLException e) {
+            throw new ServiceException("Gagal mengambil hasil: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Frozen result document of a finished submission, or null while it is in
+     * progress (or does not exist). submitQuiz writes it; submissions closed
+     * by the timeout sweeper or finalizeQuiz, and documents dropped by a
+     * regrade, get theirs built and stored on first read.
+     */
+    public SubmissionResult getFinishedResult(Integer submissionId) throws ServiceException {
+        try {
+            return findOrBuildResult(submissionId);
+        } catch (SQLException e) {
+            throw new ServiceException("Gagal mengambil hasil: " + e.getMessage(), e);
+        }
+    }
+
+    private SubmissionResult findOrBuildResult(Integer submissionId) throws SQLException {
+        SubmissionResult result = resultDAO.findBySubmissionId(submissionId);
+        if (result != null) {
+            return result;
+        }
+        return buildResult(submissionId);
+    }
+
+    /**
+     * Build and store the result document of a finished submission (null while in progress)
+     */
+    private SubmissionResult buildResult(Integer submissionId) throws SQLException {
+        try (Transaction tx = Transaction.begin()) {
+            Map<String, Object> detail = submissionDAO.getSubmissionDetailWithAnswers(submissionId);
+            if (detail == null || !((Submission) detail.get("submission")).isFinished()) {
+                tx.commit();
+                return null;
+            }
+            SubmissionResult result = SubmissionResult.fromDetail(detail);
+            resultDAO.create(result);
+            tx.commit();
+            return result;
+        }
+    }
+
     /**
      * Get submission result
      */
@@ -207,14 +645,27 @@ public class SubmissionService {
 
             // Get answers
             List<Answer> answers = submissionDAO.getAnswers(submissionId);
+            if (submission.isInProgress()) {
+                answers = mergePendingAnswers(submissionId, answers);
+            }
             submission.setAnswers(answers);
-
             return submission;
         } catch (SQLException e) {
             throw new ServiceException("Gagal mengambil hasil: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Get a submission without its answers, or null
+     */
+    public Submission getSubmission(Integer submissionId) throws ServiceException {
+        try {
+            return submissionDAO.findById(submissionId);
+        } catch (SQLException e) {
+            throw new ServiceException("Gagal mengambil data submission: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Get user's submission for a quiz
      */
@@ -226,6 +677,21 @@ public class SubmissionService {
         }
     }
 
+    /**
+     * Get user's submissions for several quizzes, keyed by quiz id
+     */
+    public Map<Integer, Submission> getUserSubmissions(Integer userId, List<Quiz> quizzes) throws ServiceException {
+        List<Integer> quizIds = new ArrayList<>(quizzes.size());
+        for (Quiz quiz : quizzes) {
+            quizIds.add(quiz.getId());
+        }
+        try {
+            return submissionDAO.findByUserAndQuizIds(userId, quizIds);
+        } catch (SQLException e) {
+            throw new ServiceException("Gagal mengambil data submission: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Get all submissions for a quiz (admin)
      */
@@ -259,6 +725,17 @@ public class SubmissionService {
         }
     }
 
+    /**
+     * Get the most recently started submissions (admin dashboard)
+     */
+    public List<Submission> getRecentSubmissions(int limit) throws ServiceException {
+        try {
+            return submissionDAO.findRecent(limit);
+        } catch (SQLException e) {
+            throw new ServiceException("Gagal mengambil data submissions: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Get quiz statistics
      */
@@ -279,7 +756,6 @@ public class SubmissionService {
             if (quiz == null || !quiz.getIsActive()) {
                 return false;
             }
-
             return !submissionDAO.hasSubmitted(userId, quizId);
         } catch (SQLException e) {
             throw new ServiceException("Gagal mengecek status quiz: " + e.getMessage(), e);
@@ -291,23 +767,8 @@ public class SubmissionService {
      */
     public List<Map<String, Object>> getDetailedQuizResults(Integer quizId) throws ServiceException {
         try {
-            List<Map<String, Object>> submissions = submissionDAO.getDetailedSubmissionsByQuiz(quizId);
-
-            // Update unanswered count for each submission
-            for (Map<String, Object> sub : submissions) {
-                Integer submissionId = (Integer) sub.get("id");
-                int answeredCount = submissionDAO.getAnsweredCount(submissionId);
-                int totalQuestions = (Integer) sub.get("totalQuestions");
-                int correctAnswers = (Integer) sub.get("correctAnswers");
-                int wrongCount = answeredCount - correctAnswers;
-                int unanswered = totalQuestions - answeredCount;
-
-                sub.put("answeredCount", answeredCount);
-                sub.put("wrongCount", wrongCount);
-                sub.put("unanswered", unanswered);
-            }
-
-            return submissions;
+            // Answered, wrong and unanswered counts come from the same query
+            return submissionDAO.getDetailedSubmissionsByQuiz(quizId);
         } catch (SQLException e) {
             throw new ServiceException("Gagal mengambil hasil quiz: " + e.getMessage(), e);
         }
@@ -318,12 +779,36 @@ public class SubmissionService {
      */
     public Map<String, Object> getSubmissionDetail(Integer submissionId) throws ServiceException {
         try {
+            SubmissionResult result = findOrBuildResult(submissionId);
+            if (result != null) {
+                return result.toDetailMap();
+            }
+
+            // Still in progress: show the live answers
             return submissionDAO.getSubmissionDetailWithAnswers(submissionId);
         } catch (SQLException e) {
             throw new ServiceException("Gagal mengambil detail submission: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Overlay answers still waiting in the write buffer on top of stored ones
+     */
+    private List<Answer> mergePendingAnswers(Integer submissionId, List<Answer> stored) {
+        Map<Integer, Answer> pendingAnswers = answerBuffer.getPending(submissionId);
+        if (pendingAnswers.isEmpty()) {
+            return stored;
+        }
+
+        List<Answer> merged = new ArrayList<>(stored.size() + pendingAnswers.size());
+        for (Answer answer : stored) {
+            Answer newer = pendingAnswers.remove(answer.getQuestionId());
+            merged.add(newer != null ? newer : answer);
+        }
+        merged.addAll(pendingAnswers.values());
+        return merged;
+    }
+
     /**
      * Service Exception
      */
@@ -336,4 +821,13 @@ public class SubmissionService {
             super(message, cause);
         }
     }
+
+    /**
+     * The submission does not exist or belongs to another user
+     */
+    public static class AccessException extends ServiceException {
+        public AccessException(String message) {
+            super(message);
+        }
+    }
 }
@@ -3,6 +3,7 @@ package com.examora.service;
 import com.examora.dao.UserDAO;
 import com.examora.model.User;
 import com.examora.util.PasswordUtil;
+import com.examora.util.Transaction;
 import com.examora.util.ValidationUtil;
 import com.examora.util.FileUploadUtil;
 
@@ -15,9 +16,11 @@ import java.util.List;
  */
 public class UserService {
     private UserDAO userDAO;
+    private DashboardCounters counters;
 
     public UserService() {
         this.userDAO = new UserDAO();
+        this.counters = DashboardCounters.getInstance();
     }
 
     /**
@@ -42,7 +45,7 @@ public class UserService {
             throw new ServiceException("Password minimal 6 karakter");
         }
 
-        try {
+        try (Transaction tx = Transaction.begin()) {
             // Check if email already exists
             if (userDAO.emailExists(email)) {
                 throw new ServiceException("Email sudah terdaftar");
@@ -53,7 +56,10 @@ public class UserService {
 
             // Create user
             User user = new User(name, email, hashedPassword, role != null ? role : "peserta", tag);
-            return userDAO.create(user);
+            User created = userDAO.create(user);
+            tx.commit();
+            counters.userCreated(created.getRole());
+            return created;
 
         } catch (SQLException e) {
             throw new ServiceException("Gagal mendaftarkan user: " + e.getMessage(), e);
@@ -134,7 +140,7 @@ public class UserService {
             throw new ServiceException("Format email tidak valid");
         }
 
-        try {
+        try (Transaction tx = Transaction.begin()) {
             User user = userDAO.findById(id);
             if (user == null) {
                 throw new ServiceException("User tidak ditemukan");
@@ -149,6 +155,7 @@ public class UserService {
             user.setName(name);
             user.setEmail(email);
             userDAO.update(user);
+            tx.commit();
 
             return user;
         } catch (SQLException e) {
@@ -164,7 +171,7 @@ public class UserService {
             throw new ServiceException("Password baru minimal 6 karakter");
         }
 
-        try {
+        try (Transaction tx = Transaction.begin()) {
             User user = userDAO.findById(id);
             if (user == null) {
                 throw new ServiceException("User tidak ditemukan");
@@ -176,6 +183,7 @@ public class UserService {
 
             String hashedPassword = PasswordUtil.hashPassword(newPassword);
             userDAO.updatePassword(id, hashedPassword);
+            tx.commit();
 
         } catch (SQLException e) {
             throw new ServiceException("Gagal mengubah password: " + e.getMessage(), e);
@@ -190,7 +198,7 @@ public class UserService {
             throw new ServiceException("Password baru minimal 6 karakter");
         }
 
-        try {
+        try (Transaction tx = Transaction.begin()) {
             User user = userDAO.findById(id);
             if (user == null) {
                 throw new ServiceException("User tidak ditemukan");
@@ -198,6 +206,7 @@ public class UserService {
 
             String hashedPassword = PasswordUtil.hashPassword(newPassword);
             userDAO.updatePassword(id, hashedPassword);
+            tx.commit();
 
         } catch (SQLException e) {
             throw new ServiceException("Gagal mereset password: " + e.getMessage(), e);
@@ -208,7 +217,7 @@ public class UserService {
      * Update user role (admin only)
      */
     public void updateUserRole(Integer id, String role) throws ServiceException {
-        try {
+        try (Transaction tx = Transaction.begin()) {
             User user = userDAO.findById(id);
             if (user == null) {
                 throw new ServiceException("User tidak ditemukan");
@@ -218,8 +227,11 @@ public class UserService {
                 throw new ServiceException("Role tidak valid");
             }
 
+            String oldRole = user.getRole();
             user.setRole(role);
             userDAO.update(user);
+            tx.commit();
+            counters.userRoleChanged(oldRole, role);
 
         } catch (SQLException e) {
             throw new ServiceException("Gagal mengupdate role: " + e.getMessage(), e);
@@ -237,7 +249,7 @@ public class UserService {
             throw new ServiceException("Format email tidak valid");
         }
 
-        try {
+        try (Transaction tx = Transaction.begin()) {
             User user = userDAO.findById(id);
             if (user == null) {
                 throw new ServiceException("User tidak ditemukan");
@@ -249,6 +261,7 @@ public class UserService {
                 throw new ServiceException("Email sudah digunakan oleh user lain");
             }
 
+            String oldRole = user.getRole();
             user.setName(name);
             user.setEmail(email);
             if (role != null && !role.isEmpty()) {
@@ -256,6 +269,8 @@ public class UserService {
             }
             user.setTag(tag);
             userDAO.update(user);
+            tx.commit();
+            counters.userRoleChanged(oldRole, user.getRole());
 
         } catch (SQLException e) {
             throw new ServiceException("Gagal mengupdate profil: " + e.getMessage(), e);
@@ -292,6 +307,8 @@ public class UserService {
             if (!userDAO.delete(id)) {
                 throw new ServiceException("Gagal menghapus user");
             }
+            // Deleting a user cascades to their submissions
+            counters.markStale();
         } catch (SQLException e) {
             throw new ServiceException("Gagal menghapus user: " + e.getMessage(), e);
         }
@@ -324,7 +341,7 @@ public class UserService {
      */
     public User updateProfileWithPhoto(Integer id, String name, String email, String uploadDir, Part photoPart)
             throws ServiceException {
-        try {
+        try (Transaction tx = Transaction.begin()) {
             User user = userDAO.findById(id);
             if (user == null) {
                 throw new ServiceException("User tidak ditemukan");
@@ -362,6 +379,7 @@ public class UserService {
             }
 
             userDAO.update(user);
+            tx.commit();
             return user;
 
         } catch (SQLException e) {
@@ -375,7 +393,7 @@ public class UserService {
      * Update photo only
      */
     public User updatePhoto(Integer id, String uploadDir, Part photoPart) throws ServiceException {
-        try {
+        try (Transaction tx = Transaction.begin()) {
             User user = userDAO.findById(id);
             if (user == null) {
                 throw new ServiceException("User tidak ditemukan");
@@ -395,6 +413,7 @@ public class UserService {
             user.setPhoto(photoPath);
 
             userDAO.updatePhoto(id, photoPath);
+            tx.commit();
             return user;
 
         } catch (SQLException e) {
@@ -415,7 +434,7 @@ public class UserService {
             throw new ServiceException("Format email tidak valid");
         }
 
-        try {
+        try (Transaction tx = Transaction.begin()) {
             User user = userDAO.findById(id);
             if (user == null) {
                 throw new ServiceException("User tidak ditemukan");
@@ -430,6 +449,7 @@ public class UserService {
             user.setName(name);
             user.setEmail(email);
             userDAO.update(user);
+            tx.commit();
 
             return user;
         } catch (SQLException e) {
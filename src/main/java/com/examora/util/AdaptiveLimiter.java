@@ -0,0 +1,181 @@
+package com.examora.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Adaptive Limiter - Concurrency limit that follows observed latency
+ * A gradient limit: latency is averaged per window (shortRtt) and compared
+ * with a slow moving average (longRtt). While requests get slower than the
+ * long-term baseline the limit shrinks in proportion; while latency holds it
+ * grows by about sqrt(limit) per window. Requests over the limit wait in a
+ * bounded queue for a slot or are rejected.
+ */
+public class AdaptiveLimiter {
+    private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+    private static final int MIN_WINDOW_SAMPLES = 10;
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFree = lock.newCondition();
+
+    // Guarded by lock; volatile for getStats
+    private volatile double limit;
+    private volatile int inFlight;
+    private volatile int waiting;
+    private volatile double shortRttNanos;
+    private volatile double longRttNanos;
+    private long windowStart = System.nanoTime();
+    private long windowSum;
+    private int windowCount;
+    private int windowMaxInFlight;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public AdaptiveLimiter(String name, int initialLimit, int minLimit, int maxLimit) {
+        this.name = name;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Take a slot, waiting up to timeoutMillis behind at most maxQueue other
+     * waiters. Returns false when rejected; a true return must be paired with
+     * release().
+     */
+    public boolean acquire(long timeoutMillis, int maxQueue) {
+        lock.lock();
+        try {
+            if (inFlight < (int) limit) {
+                take();
+                return true;
+            }
+            if (waiting >= maxQueue || timeoutMillis <= 0) {
+                rejected.increment();
+                return false;
+            }
+
+            queued.increment();
+            waiting++;
+            try {
+                long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+                while (inFlight >= (int) limit) {
+                    if (remaining <= 0) {
+                        rejected.increment();
+                        return false;
+                    }
+                    remaining = slotFree.awaitNanos(remaining);
+                }
+                take();
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                rejected.increment();
+                return false;
+            } finally {
+                waiting--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Give the slot back and record how long the request took
+     */
+    public void release(long elapsedNanos) {
+        lock.lock();
+        try {
+            inFlight--;
+            windowSum += elapsedNanos;
+            windowCount++;
+
+            long now = System.nanoTime();
+            if (windowCount >= MIN_WINDOW_SAMPLES && now - windowStart >= WINDOW_NANOS) {
+                adjust();
+                windowStart = now;
+                windowSum = 0;
+                windowCount = 0;
+                windowMaxInFlight = inFlight;
+            }
+            slotFree.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Count a request turned away without trying for a slot
+     */
+    public void shed() {
+        rejected.increment();
+    }
+
+    /**
+     * True while requests are waiting or every slot is taken
+     */
+    public boolean isSaturated() {
+        return waiting > 0 || inFlight >= (int) limit;
+    }
+
+    private void take() {
+        inFlight++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlight);
+        admitted.increment();
+    }
+
+    private void adjust() {
+        double shortRtt = (double) windowSum / windowCount;
+        shortRttNanos = shortRtt;
+        if (longRttNanos == 0) {
+            longRttNanos = shortRtt;
+        } else {
+            longRttNanos = longRttNanos * 0.95 + shortRtt * 0.05;
+            // Recover quickly once a slow period is over
+            if (longRttNanos > shortRtt * 2) {
+                longRttNanos = longRttNanos * 0.95;
+            }
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRttNanos / shortRtt));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        // Do not grow a limit the traffic never reached
+        if (newLimit > limit && windowMaxInFlight < limit / 2) {
+            return;
+        }
+        newLimit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    /**
+     * Limiter state for the metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("limit", (int) limit);
+        stats.put("inFlight", inFlight);
+        stats.put("queueDepth", waiting);
+        stats.put("admitted", admitted.sum());
+        stats.put("queued", queued.sum());
+        stats.put("shed", rejected.sum());
+        stats.put("shortRttMillis", Math.round(shortRttNanos / 1_000_000.0 * 10) / 10.0);
+        stats.put("longRttMillis", Math.round(longRttNanos / 1_000_000.0 * 10) / 10.0);
+        return stats;
+    }
+}
@@ -0,0 +1,197 @@
+package com.examora.util;
+
+import com.examora.model.Answer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Answer Journal - Append-only write-ahead log for buffered answers
+ * Records are written as text lines "submissionId,questionId,answer,correct"
+ * (plus ",clientSeq" when the save carried one) into numbered segment files (answers-000001.log, ...). A segment is sealed
+ * by rotate() and deleted once its answers are safely in the database.
+ * A torn last line (crash mid-write) is ignored on replay.
+ */
+public class AnswerJournal {
+    private static final String PREFIX = "answers-";
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final boolean fsync;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private FileChannel channel;
+    private long currentSegment;
+
+    public AnswerJournal(Path directory, boolean fsync) throws IOException {
+        this.directory = directory;
+        this.fsync = fsync;
+        Files.createDirectories(directory);
+        List<Long> existing = listSegments();
+        currentSegment = existing.isEmpty() ? 1 : existing.get(existing.size() - 1) + 1;
+        channel = open(currentSegment);
+    }
+
+    /**
+     * Append one answer; returns once the line is handed to the OS (or synced)
+     */
+    public void append(Answer answer) throws IOException {
+        appendAll(Collections.singletonList(answer));
+    }
+
+    /**
+     * Append several answers with one write (and at most one sync)
+     */
+    public void appendAll(List<Answer> answers) throws IOException {
+        StringBuilder lines = new StringBuilder(answers.size() * 24);
+        for (Answer answer : answers) {
+            lines.append(answer.getSubmissionId()).append(',').append(answer.getQuestionId()).append(',')
+                 .append(answer.getSelectedAnswer()).append(',')
+                 .append(Boolean.TRUE.equals(answer.getIsCorrect()) ? "1" : "0");
+            if (answer.getClientSeq() != null) {
+                lines.append(',').append(answer.getClientSeq());
+            }
+            lines.append('\n');
+        }
+        byte[] line = lines.toString().getBytes(StandardCharsets.US_ASCII);
+
+        lock.lock();
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(line);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        } finally {
+            lock.unlock();
+        }
+        bytesWritten.addAndGet(line.length);
+    }
+
+    /**
+     * Seal the current segment and start a new one.
+     * Returns the number of the sealed segment.
+     */
+    public long rotate() throws IOException {
+        lock.lock();
+        try {
+            channel.force(false);
+            channel.close();
+            long sealed = currentSegment;
+            currentSegment++;
+            channel = open(currentSegment);
+            return sealed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Delete sealed segments up to and including the given number
+     */
+    public void deleteUpTo(long segment) throws IOException {
+        for (Long number : listSegments()) {
+            if (number <= segment && number != currentSegment) {
+                Files.deleteIfExists(segmentPath(number));
+            }
+        }
+    }
+
+    /**
+     * Read every complete record from existing segments, oldest first
+     */
+    public List<Answer> readAll() throws IOException {
+        List<Answer> answers = new ArrayList<>();
+        for (Long number : listSegments()) {
+            try (BufferedReader reader = Files.newBufferedReader(segmentPath(number), StandardCharsets.US_ASCII)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Answer answer = parse(line);
+                    if (answer != null) {
+                        answers.add(answer);
+                    }
+                }
+            }
+        }
+        return answers;
+    }
+
+    /**
+     * Close the active segment
+     */
+    public void close() {
+        lock.lock();
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("AnswerJournal close failed: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    private Answer parse(String line) {
+        String[] parts = line.split(",");
+        if (parts.length < 4 || parts.length > 5 || !parts[2].matches("[ABCD]")) {
+            return null;
+        }
+        try {
+            Answer answer = new Answer(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), parts[2]);
+            answer.setIsCorrect("1".equals(parts[3]));
+            if (parts.length == 5) {
+                answer.setClientSeq(Long.parseLong(parts[4]));
+            }
+            return answer;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private FileChannel open(long segment) throws IOException {
+        return FileChannel.open(segmentPath(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("%s%06d%s", PREFIX, segment, SUFFIX));
+    }
+
+    private List<Long> listSegments() throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                try {
+                    numbers.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not a journal segment
+                }
+            }
+        }
+        numbers.sort(Long::compare);
+        return numbers;
+    }
+}
@@ -0,0 +1,69 @@
+package com.examora.util;
+
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Application Configuration - Reads examora.properties
+ * Every key can be overridden by a system property of the same name or by an
+ * environment variable (EXAMORA_ + key upper-cased with dots as underscores,
+ * e.g. answer.ingest.mode -> EXAMORA_ANSWER_INGEST_MODE).
+ */
+public class AppConfig {
+    private static final Properties PROPS = new Properties();
+
+    static {
+        try (InputStream is = AppConfig.class.getClassLoader().getResourceAsStream("examora.properties")) {
+            if (is != null) {
+                PROPS.load(is);
+            }
+        } catch (Exception e) {
+            System.err.println("AppConfig: failed to load examora.properties: " + e.getMessage());
+        }
+    }
+
+    private AppConfig() {}
+
+    /**
+     * Get a string setting
+     */
+    public static String get(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null || value.isEmpty()) {
+            value = System.getenv("EXAMORA_" + key.toUpperCase().replace('.', '_'));
+        }
+        if (value == null || value.isEmpty()) {
+            value = PROPS.getProperty(key);
+        }
+        return value != null && !value.trim().isEmpty() ? value.trim() : defaultValue;
+    }
+
+    /**
+     * Get an integer setting
+     */
+    public static int getInt(String key, int defaultValue) {
+        try {
+            return Integer.parseInt(get(key, String.valueOf(defaultValue)));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Get a long setting
+     */
+    public static long getLong(String key, long defaultValue) {
+        try {
+            return Long.parseLong(get(key, String.valueOf(defaultValue)));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Get a boolean setting
+     */
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        return Boolean.parseBoolean(get(key, String.valueOf(defaultValue)));
+    }
+}
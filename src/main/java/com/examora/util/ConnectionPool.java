@@ -0,0 +1,339 @@
+package com.examora.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Connection Pool - Bounded in-process JDBC connection pool
+ * Used by DBUtil when no container DataSource (JNDI) is available.
+ * Capacity is guarded by a semaphore and idle connections are kept in a
+ * LIFO deque, so no monitor is held while a physical connection is opened.
+ */
+public class ConnectionPool {
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int minIdle;
+    private final int maxTotal;
+    private final int maxIdle;
+    private final long maxWaitMillis;
+    private final long idleTimeoutMillis;
+    private final long validationIntervalMillis;
+
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<PooledEntry> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final AtomicInteger waitingCount = new AtomicInteger();
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder acquireWaitNanos = new LongAdder();
+    private final AtomicLong maxAcquireWaitNanos = new AtomicLong();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder destroyedCount = new LongAdder();
+    private volatile boolean closed = false;
+    // Isolation level the driver opens connections with, restored on release
+    private volatile int defaultIsolation = -1;
+
+    public ConnectionPool(String url, String username, String password,
+                          int minIdle, int maxTotal, int maxIdle,
+                          long maxWaitMillis, long idleTimeoutMillis) {
+        if (maxTotal <= 0) {
+            throw new IllegalArgumentException("maxTotal must be greater than 0");
+        }
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.maxTotal = maxTotal;
+        this.maxIdle = Math.max(0, Math.min(maxIdle, maxTotal));
+        this.minIdle = Math.max(0, Math.min(minIdle, this.maxIdle));
+        this.maxWaitMillis = Math.max(0, maxWaitMillis);
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validationIntervalMillis = 30_000L;
+        this.permits = new Semaphore(maxTotal, true);
+    }
+
+    /**
+     * Open minIdle connections up front (best effort, failures are logged)
+     */
+    public void warmUp() {
+        for (int i = idleCount.get(); i < minIdle; i++) {
+            try {
+                Connection physical = openPhysical();
+                idle.offerLast(new PooledEntry(physical));
+                idleCount.incrementAndGet();
+            } catch (SQLException e) {
+                System.err.println("ConnectionPool warm-up failed: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Borrow a connection, waiting up to maxWaitMillis for a free slot.
+     * Closing the returned connection hands it back to the pool.
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        waitingCount.incrementAndGet();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        } finally {
+            waitingCount.decrementAndGet();
+            long waited = System.nanoTime() - start;
+            acquireCount.increment();
+            acquireWaitNanos.add(waited);
+            maxAcquireWaitNanos.accumulateAndGet(waited, Math::max);
+        }
+
+        if (!acquired) {
+            timeoutCount.increment();
+            throw new SQLTransientConnectionException("Connection pool exhausted: no connection available within "
+                    + maxWaitMillis + " ms (maxTotal=" + maxTotal + ")");
+        }
+
+        try {
+            Connection physical = takeIdle();
+            if (physical == null) {
+                physical = openPhysical();
+            }
+            activeCount.incrementAndGet();
+            return wrap(physical);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Close all idle connections and refuse new borrows
+     */
+    public void close() {
+        closed = true;
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            destroy(entry.connection);
+        }
+    }
+
+    /**
+     * Snapshot of pool counters
+     */
+    public Map<String, Object> getStats() {
+        long acquires = acquireCount.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("source", "in-process");
+        stats.put("active", activeCount.get());
+        stats.put("idle", idleCount.get());
+        stats.put("waiting", waitingCount.get());
+        stats.put("minIdle", minIdle);
+        stats.put("maxIdle", maxIdle);
+        stats.put("maxTotal", maxTotal);
+        stats.put("maxWaitMillis", maxWaitMillis);
+        stats.put("acquireCount", acquires);
+        stats.put("acquireTimeouts", timeoutCount.sum());
+        stats.put("avgAcquireWaitMillis", acquires > 0 ? acquireWaitNanos.sum() / 1_000_000.0 / acquires : 0.0);
+        stats.put("maxAcquireWaitMillis", maxAcquireWaitNanos.get() / 1_000_000.0);
+        stats.put("created", createdCount.sum());
+        stats.put("destroyed", destroyedCount.sum());
+        return stats;
+    }
+
+    private Connection takeIdle() {
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            if (isUsable(entry)) {
+                return entry.connection;
+            }
+            destroy(entry.connection);
+        }
+        return null;
+    }
+
+    private boolean isUsable(PooledEntry entry) {
+        long idleFor = System.currentTimeMillis() - entry.lastUsed;
+        if (idleTimeoutMillis > 0 && idleFor > idleTimeoutMillis) {
+            return false;
+        }
+        try {
+            if (entry.connection.isClosed()) {
+                return false;
+            }
+            return idleFor < validationIntervalMillis || entry.connection.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection openPhysical() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, username, password);
+        createdCount.increment();
+        if (defaultIsolation < 0) {
+            try {
+                defaultIsolation = physical.getTransactionIsolation();
+            } catch (SQLException e) {
+                destroy(physical);
+                throw e;
+            }
+        }
+        return physical;
+    }
+
+    private void release(Connection physical, boolean broken, boolean isolationChanged) {
+        activeCount.decrementAndGet();
+        try {
+            if (closed || broken || physical.isClosed()) {
+                destroy(physical);
+                return;
+            }
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            if (physical.isReadOnly()) {
+                physical.setReadOnly(false);
+            }
+            if (isolationChanged && defaultIsolation >= 0) {
+                physical.setTransactionIsolation(defaultIsolation);
+            }
+            if (idleCount.incrementAndGet() > maxIdle) {
+                idleCount.decrementAndGet();
+                destroy(physical);
+            } else {
+                idle.offerFirst(new PooledEntry(physical));
+                evictExpired();
+            }
+        } catch (SQLException e) {
+            destroy(physical);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Drop connections idle longer than idleTimeoutMillis, keeping minIdle
+     */
+    private void evictExpired() {
+        if (idleTimeoutMillis <= 0) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        PooledEntry oldest;
+        while (idleCount.get() > minIdle && (oldest = idle.peekLast()) != null && oldest.lastUsed < cutoff) {
+            if (idle.removeLastOccurrence(oldest)) {
+                idleCount.decrementAndGet();
+                destroy(oldest.connection);
+            }
+        }
+    }
+
+    private void destroy(Connection physical) {
+        destroyedCount.increment();
+        try {
+            physical.close();
+        } catch (SQLException e) {
+            // Connection already unusable
+        }
+    }
+
+    private Connection wrap(Connection physical) {
+        return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new PooledConnectionHandler(physical));
+    }
+
+    /**
+     * Idle connection with the time it was returned
+     */
+    private static final class PooledEntry {
+        final Connection connection;
+        final long lastUsed;
+
+        PooledEntry(Connection connection) {
+            this.connection = connection;
+            this.lastUsed = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Intercepts close() so the physical connection goes back to the pool
+     */
+    private final class PooledConnectionHandler implements InvocationHandler {
+        private final Connection physical;
+        private final AtomicInteger state = new AtomicInteger(); // 0 = open, 1 = returned
+        private volatile boolean broken = false;
+        private volatile boolean isolationChanged = false;
+
+        PooledConnectionHandler(Connection physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (state.compareAndSet(0, 1)) {
+                        release(physical, broken, isolationChanged);
+                    }
+                    return null;
+                case "isClosed":
+                    return state.get() != 0 || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + physical + "]";
+                default:
+                    break;
+            }
+
+            if (state.get() != 0) {
+                throw new SQLException("Connection has been returned to the pool");
+            }
+            if ("setTransactionIsolation".equals(name)) {
+                isolationChanged = true;
+            }
+
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException) {
+                    String sqlState = ((SQLException) cause).getSQLState();
+                    // Class 08 = connection exception; never hand this connection out again
+                    if (sqlState != null && sqlState.startsWith("08")) {
+                        broken = true;
+                    }
+                }
+                throw cause;
+            }
+        }
+    }
+}
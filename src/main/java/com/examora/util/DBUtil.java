@@ -1,34 +1,78 @@
 package com.examora.util;
 
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
 import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Database Utility Class - Manages database connections
+ * Connections come from the container pool (JNDI jdbc/examoraDB) when it exists,
+ * otherwise from an in-process ConnectionPool.
  * Supports environment variables for Docker deployment
  */
 public class DBUtil {
     private static String url;
     private static String username;
     private static String password;
-    private static boolean initialized = false;
+    private static volatile boolean initialized = false;
+
+    // Active connection source: either a container DataSource or the in-process pool
+    private static volatile DataSource jndiDataSource;
+    private static volatile ConnectionPool pool;
+    private static String jndiName;
+
+    // Pool settings
+    private static int minIdle;
+    private static int maxTotal;
+    private static int maxIdle;
+    private static long maxWaitMillis;
+    private static long idleTimeoutMillis;
+
+    // Counters for the JNDI path (the in-process pool keeps its own)
+    private static final AtomicInteger jndiWaiting = new AtomicInteger();
+    private static final LongAdder jndiAcquireCount = new LongAdder();
+    private static final LongAdder jndiAcquireWaitNanos = new LongAdder();
+    private static final AtomicLong jndiMaxAcquireWaitNanos = new AtomicLong();
 
     // Database configuration defaults
-    private static final String DEFAULT_URL = "jdbc:mysql://localhost:3306/examora_db?useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true";
+    private static final String DEFAULT_URL = "jdbc:mysql://localhost:3306/examora_db?useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true&rewriteBatchedStatements=true";
     private static final String DEFAULT_USERNAME = "root";
     private static final String DEFAULT_PASSWORD = "";
+    private static final String DEFAULT_JNDI_NAME = "java:comp/env/jdbc/examoraDB";
+    private static final int DEFAULT_MIN_IDLE = 5;
+    private static final int DEFAULT_MAX_TOTAL = 100;
+    private static final int DEFAULT_MAX_IDLE = 30;
+    private static final long DEFAULT_MAX_WAIT_MILLIS = 10000;
+    private static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 600000;
 
     static {
         initialize();
+        MetricsRegistry.register("dbPool", DBUtil::getPoolStats);
     }
 
     private static void initialize() {
         if (initialized) return;
 
+        boolean fromEnvironment = false;
+        Properties props = new Properties();
+
         try {
+            InputStream is = DBUtil.class.getClassLoader().getResourceAsStream("db.properties");
+            if (is != null) {
+                props.load(is);
+                is.close();
+            }
+
             // Priority 1: Environment variables (for Docker)
             String envUrl = System.getenv("DB_URL");
             String envUsername = System.getenv("DB_USERNAME");
@@ -38,33 +82,24 @@ public class DBUtil {
                 url = envUrl;
                 username = envUsername != null ? envUsername : DEFAULT_USERNAME;
                 password = envPassword != null ? envPassword : DEFAULT_PASSWORD;
+                fromEnvironment = true;
                 System.out.println("DBUtil: Using environment variables for DB configuration");
-            } else {
+            } else if (!props.isEmpty()) {
                 // Priority 2: Properties file
-                Properties props = new Properties();
-                InputStream is = DBUtil.class.getClassLoader().getResourceAsStream("db.properties");
-
-                if (is != null) {
-                    props.load(is);
-                    url = props.getProperty("db.url", DEFAULT_URL);
-                    username = props.getProperty("db.username", DEFAULT_USERNAME);
-                    password = props.getProperty("db.password", DEFAULT_PASSWORD);
-                    is.close();
-                    System.out.println("DBUtil: Using db.properties for DB configuration");
-                } else {
-                    // Priority 3: Default configuration
-                    url = DEFAULT_URL;
-                    username = DEFAULT_USERNAME;
-                    password = DEFAULT_PASSWORD;
-                    System.out.println("DBUtil: Using default DB configuration");
-                }
+                url = props.getProperty("db.url", DEFAULT_URL);
+                username = props.getProperty("db.username", DEFAULT_USERNAME);
+                password = props.getProperty("db.password", DEFAULT_PASSWORD);
+                System.out.println("DBUtil: Using db.properties for DB configuration");
+            } else {
+                // Priority 3: Default configuration
+                url = DEFAULT_URL;
+                username = DEFAULT_USERNAME;
+                password = DEFAULT_PASSWORD;
+                System.out.println("DBUtil: Using default DB configuration");
             }
 
             // Load MySQL driver
             Class.forName("com.mysql.cj.jdbc.Driver");
-            initialized = true;
-
-            System.out.println("DBUtil initialized successfully. URL: " + url);
 
         } catch (Exception e) {
             System.err.println("DBUtil initialization error: " + e.getMessage());
@@ -74,24 +109,75 @@ public class DBUtil {
             username = DEFAULT_USERNAME;
             password = DEFAULT_PASSWORD;
         }
+
+        minIdle = intSetting("DB_POOL_MIN_IDLE", props, "db.minIdle", DEFAULT_MIN_IDLE);
+        maxTotal = intSetting("DB_POOL_MAX_TOTAL", props, "db.maxTotal", DEFAULT_MAX_TOTAL);
+        maxIdle = intSetting("DB_POOL_MAX_IDLE", props, "db.maxIdle", DEFAULT_MAX_IDLE);
+        maxWaitMillis = longSetting("DB_POOL_MAX_WAIT_MS", props, "db.maxWaitMillis", DEFAULT_MAX_WAIT_MILLIS);
+        idleTimeoutMillis = longSetting("DB_POOL_IDLE_TIMEOUT_MS", props, "db.idleTimeoutMillis", DEFAULT_IDLE_TIMEOUT_MILLIS);
+        jndiName = stringSetting("DB_JNDI_NAME", props, "db.jndiName", DEFAULT_JNDI_NAME);
+
+        // Explicit environment configuration wins over the container resource,
+        // whose URL in context.xml points at localhost
+        if (!fromEnvironment) {
+            jndiDataSource = lookupDataSource(jndiName);
+        }
+
+        if (jndiDataSource != null) {
+            System.out.println("DBUtil: Using container DataSource " + jndiName);
+        } else {
+            createPool();
+        }
+
+        initialized = true;
+        System.out.println("DBUtil initialized successfully. URL: " + url);
     }
 
     /**
-     * Set database configuration programmatically
+     * Set database configuration programmatically (always uses the in-process pool)
      */
     public static void configure(String dbUrl, String dbUsername, String dbPassword) {
         url = dbUrl;
         username = dbUsername;
         password = dbPassword;
+        jndiDataSource = null;
+        ConnectionPool previous = pool;
+        createPool();
+        if (previous != null) {
+            previous.close();
+        }
         initialized = true;
     }
 
     /**
-     * Get a database connection
+     * Get a database connection from the pool.
+     * Closing the connection returns it to the pool. Inside a Transaction the
+     * thread-bound connection is returned instead.
      */
     public static Connection getConnection() throws SQLException {
         initialize();
-        return DriverManager.getConnection(url, username, password);
+
+        Connection bound = Transaction.currentConnection();
+        if (bound != null) {
+            return bound;
+        }
+
+        DataSource dataSource = jndiDataSource;
+        if (dataSource == null) {
+            return pool.getConnection();
+        }
+
+        long start = System.nanoTime();
+        jndiWaiting.incrementAndGet();
+        try {
+            return dataSource.getConnection();
+        } finally {
+            jndiWaiting.decrementAndGet();
+            long waited = System.nanoTime() - start;
+            jndiAcquireCount.increment();
+            jndiAcquireWaitNanos.add(waited);
+            jndiMaxAcquireWaitNanos.accumulateAndGet(waited, Math::max);
+        }
     }
 
     /**
@@ -118,4 +204,102 @@ public class DBUtil {
             return false;
         }
     }
+
+    /**
+     * Describe where connections come from (for startup logging)
+     */
+    public static String describe() {
+        return jndiDataSource != null ? "jndi:" + jndiName : "in-process pool (maxTotal=" + maxTotal + ")";
+    }
+
+    /**
+     * Pool counters: active, idle and waiting connections plus acquire-wait time
+     */
+    public static Map<String, Object> getPoolStats() {
+        DataSource dataSource = jndiDataSource;
+        if (dataSource == null) {
+            ConnectionPool current = pool;
+            return current != null ? current.getStats() : new LinkedHashMap<>();
+        }
+
+        long acquires = jndiAcquireCount.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("source", "jndi");
+        // Tomcat's pool exposes these as bean getters; report -1 when unavailable
+        stats.put("active", readDataSourceInt(dataSource, "getNumActive"));
+        stats.put("idle", readDataSourceInt(dataSource, "getNumIdle"));
+        stats.put("waiting", jndiWaiting.get());
+        stats.put("minIdle", readDataSourceInt(dataSource, "getMinIdle"));
+        stats.put("maxIdle", readDataSourceInt(dataSource, "getMaxIdle"));
+        stats.put("maxTotal", readDataSourceInt(dataSource, "getMaxTotal"));
+        stats.put("acquireCount", acquires);
+        stats.put("avgAcquireWaitMillis", acquires > 0 ? jndiAcquireWaitNanos.sum() / 1_000_000.0 / acquires : 0.0);
+        stats.put("maxAcquireWaitMillis", jndiMaxAcquireWaitNanos.get() / 1_000_000.0);
+        return stats;
+    }
+
+    /**
+     * Release pooled connections (called on application shutdown)
+     */
+    public static void shutdown() {
+        ConnectionPool current = pool;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    private static void createPool() {
+        pool = new ConnectionPool(url, username, password, minIdle, maxTotal, maxIdle,
+                maxWaitMillis, idleTimeoutMillis);
+        pool.warmUp();
+        System.out.println("DBUtil: Using in-process connection pool (minIdle=" + minIdle +
+                ", maxIdle=" + maxIdle + ", maxTotal=" + maxTotal + ")");
+    }
+
+    private static DataSource lookupDataSource(String name) {
+        if (name == null || name.isEmpty()) {
+            return null;
+        }
+        try {
+            Object found = new InitialContext().lookup(name);
+            return found instanceof DataSource ? (DataSource) found : null;
+        } catch (NamingException | RuntimeException e) {
+            // No container resource (e.g. running outside Tomcat)
+            return null;
+        }
+    }
+
+    private static int readDataSourceInt(DataSource dataSource, String getter) {
+        try {
+            Method method = dataSource.getClass().getMethod(getter);
+            Object value = method.invoke(dataSource);
+            return value instanceof Number ? ((Number) value).intValue() : -1;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private static String stringSetting(String envName, Properties props, String key, String defaultValue) {
+        String value = System.getenv(envName);
+        if (value == null || value.isEmpty()) {
+            value = props.getProperty(key);
+        }
+        return value != null && !value.isEmpty() ? value.trim() : defaultValue;
+    }
+
+    private static int intSetting(String envName, Properties props, String key, int defaultValue) {
+        try {
+            return Integer.parseInt(stringSetting(envName, props, key, String.valueOf(defaultValue)));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static long longSetting(String envName, Properties props, String key, long defaultValue) {
+        try {
+            return Long.parseLong(stringSetting(envName, props, key, String.valueOf(defaultValue)));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
 }
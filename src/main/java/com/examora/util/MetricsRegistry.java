@@ -0,0 +1,46 @@
+package com.examora.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+/**
+ * Metrics Registry - Central place where components export their counters
+ * Each component registers a supplier that returns a snapshot map;
+ * AdminServlet?action=metrics renders all snapshots as JSON.
+ */
+public class MetricsRegistry {
+    private static final Map<String, Supplier<Map<String, Object>>> SOURCES = new ConcurrentSkipListMap<>();
+
+    private MetricsRegistry() {}
+
+    /**
+     * Register (or replace) a named metrics source
+     */
+    public static void register(String name, Supplier<Map<String, Object>> source) {
+        SOURCES.put(name, source);
+    }
+
+    /**
+     * Remove a metrics source
+     */
+    public static void unregister(String name) {
+        SOURCES.remove(name);
+    }
+
+    /**
+     * Take a snapshot of all registered sources
+     */
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Supplier<Map<String, Object>>> entry : SOURCES.entrySet()) {
+            try {
+                result.put(entry.getKey(), entry.getValue().get());
+            } catch (RuntimeException e) {
+                result.put(entry.getKey(), "error: " + e.getMessage());
+            }
+        }
+        return result;
+    }
+}
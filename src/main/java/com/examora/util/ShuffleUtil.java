@@ -0,0 +1,105 @@
+package com.examora.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToLongFunction;
+
+/**
+ * Shuffle Utility - Deterministic shuffling from a stored seed
+ * The same seed always yields the same order, so a participant sees a
+ * stable question and option order across page reloads.
+ */
+public class ShuffleUtil {
+
+    // Mixes the question id into the seed so each question gets its own option order
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    // Separates the question order keys from the option seeds derived from the same ids
+    private static final long ORDER_SALT = 0x632BE59BD9B4E019L;
+
+    /**
+     * Generate a new shuffle seed
+     */
+    public static long newSeed() {
+        return ThreadLocalRandom.current().nextLong();
+    }
+
+    /**
+     * Permutation of 0..size-1 for the given seed (Fisher-Yates)
+     */
+    public static int[] permutation(int size, long seed) {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        return order;
+    }
+
+    /**
+     * Shuffle a copy of the list with the given seed
+     */
+    public static <T> List<T> shuffle(List<T> items, long seed) {
+        int[] order = permutation(items.size(), seed);
+        List<T> shuffled = new ArrayList<>(items.size());
+        for (int index : order) {
+            shuffled.add(items.get(index));
+        }
+        return shuffled;
+    }
+
+    /**
+     * Positions of items with the given ids, in the order fixed by the seed
+     * Every id gets its own key derived from the seed and the items are
+     * sorted by it, so adding or removing an item (a question edited during
+     * an exam) never changes the relative order of the others.
+     */
+    public static int[] orderByIds(long[] ids, long seed) {
+        long[] keys = new long[ids.length];
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            keys[i] = derive(seed ^ ORDER_SALT, ids[i]);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> keys[a] != keys[b] ? Long.compare(keys[a], keys[b]) : Long.compare(ids[a], ids[b]));
+
+        int[] positions = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            positions[i] = order[i];
+        }
+        return positions;
+    }
+
+    /**
+     * Copy of the list in the order fixed by the seed for the items' ids (see orderByIds)
+     */
+    public static <T> List<T> shuffleByIds(List<T> items, ToLongFunction<T> idOf, long seed) {
+        long[] ids = new long[items.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = idOf.applyAsLong(items.get(i));
+        }
+        List<T> shuffled = new ArrayList<>(items.size());
+        for (int index : orderByIds(ids, seed)) {
+            shuffled.add(items.get(index));
+        }
+        return shuffled;
+    }
+
+    /**
+     * Seed for a sub-sequence (e.g. the options of one question) derived from a parent seed
+     */
+    public static long derive(long seed, long key) {
+        long z = seed + (key + 1) * GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,82 @@
+package com.examora.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads - Creates the application's own threads
+ * threads.mode=virtual runs background workers and the exam request pool on
+ * virtual threads when the JDK has them (21+); otherwise, and by default,
+ * daemon platform threads are used. The virtual-thread API is reached by
+ * reflection so the code still compiles for Java 11.
+ */
+public final class Threads {
+    private static final boolean VIRTUAL = resolveVirtual();
+
+    private Threads() {}
+
+    /**
+     * True when threads.mode=virtual is in effect
+     */
+    public static boolean isVirtual() {
+        return VIRTUAL;
+    }
+
+    /**
+     * Factory for one named thread (or name-1, name-2, ... when numbered)
+     */
+    public static ThreadFactory factory(String name, boolean numbered) {
+        if (VIRTUAL) {
+            try {
+                Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                builder = numbered
+                        ? builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 1L)
+                        : builderClass.getMethod("name", String.class).invoke(builder, name);
+                return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            } catch (ReflectiveOperationException e) {
+                System.err.println("Threads: virtual thread factory unavailable, using platform threads: " + e);
+            }
+        }
+
+        AtomicInteger ids = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, numbered ? name + "-" + ids.incrementAndGet() : name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Executor starting one virtual thread per task, or null when virtual
+     * threads are not in effect
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (!VIRTUAL) {
+            return null;
+        }
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("Threads: virtual thread executor unavailable: " + e);
+            return null;
+        }
+    }
+
+    private static boolean resolveVirtual() {
+        if (!"virtual".equalsIgnoreCase(AppConfig.get("threads.mode", "platform"))) {
+            return false;
+        }
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            System.err.println("Threads: threads.mode=virtual needs Java 21 or newer, using platform threads");
+            return false;
+        }
+    }
+}
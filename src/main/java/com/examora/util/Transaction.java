@@ -0,0 +1,159 @@
+package com.examora.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Transaction - Thread-bound unit of work
+ * While a transaction is open on the current thread, DBUtil.getConnection()
+ * hands every DAO the same connection (whose close() is a no-op), so a whole
+ * service operation uses one connection and commits once.
+ *
+ * Usage:
+ * <pre>
+ * try (Transaction tx = Transaction.begin()) {
+ *     ...DAO calls...
+ *     tx.commit();
+ * }
+ * </pre>
+ * Nested begin() calls join the outer transaction; only the outermost one
+ * commits. If a nested participant closes without committing, the whole
+ * transaction is rolled back.
+ */
+public class Transaction implements AutoCloseable {
+    private static final ThreadLocal<Context> CURRENT = new ThreadLocal<>();
+
+    private final Context context;
+    private final boolean owner;
+    private boolean completed = false;
+
+    private Transaction(Context context, boolean owner) {
+        this.context = context;
+        this.owner = owner;
+    }
+
+    /**
+     * Start a transaction, or join the one already open on this thread
+     */
+    public static Transaction begin() throws SQLException {
+        Context current = CURRENT.get();
+        if (current != null) {
+            return new Transaction(current, false);
+        }
+
+        Connection connection = DBUtil.getConnection();
+        try {
+            connection.setAutoCommit(false);
+        } catch (SQLException e) {
+            DBUtil.closeConnection(connection);
+            throw e;
+        }
+
+        Context context = new Context(connection);
+        CURRENT.set(context);
+        return new Transaction(context, true);
+    }
+
+    /**
+     * Whether a transaction is open on the current thread
+     */
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Connection bound to the current thread, or null outside a transaction
+     */
+    static Connection currentConnection() {
+        Context context = CURRENT.get();
+        return context != null ? context.shared : null;
+    }
+
+    /**
+     * Commit the unit of work (no-op for nested participants)
+     */
+    public void commit() throws SQLException {
+        completed = true;
+        if (!owner) {
+            return;
+        }
+        if (context.rollbackOnly) {
+            context.connection.rollback();
+            throw new SQLException("Transaction rolled back: a nested operation did not complete");
+        }
+        context.connection.commit();
+    }
+
+    /**
+     * Roll back the whole unit of work
+     */
+    public void rollback() throws SQLException {
+        completed = true;
+        if (!owner) {
+            context.rollbackOnly = true;
+            return;
+        }
+        context.connection.rollback();
+    }
+
+    /**
+     * Roll back if not committed, then release the connection
+     */
+    @Override
+    public void close() {
+        if (!owner) {
+            if (!completed) {
+                context.rollbackOnly = true;
+            }
+            return;
+        }
+
+        CURRENT.remove();
+        Connection connection = context.connection;
+        try {
+            if (!completed) {
+                connection.rollback();
+            }
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            System.err.println("Error ending transaction: " + e.getMessage());
+        } finally {
+            DBUtil.closeConnection(connection);
+        }
+    }
+
+    /**
+     * State shared by the owner and nested participants
+     */
+    private static final class Context {
+        final Connection connection;
+        final Connection shared;
+        boolean rollbackOnly = false;
+
+        Context(Connection connection) {
+            this.connection = connection;
+            this.shared = (Connection) Proxy.newProxyInstance(
+                    Transaction.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "close":
+                                // DAOs close in try-with-resources; the owner releases it
+                                return null;
+                            case "commit":
+                            case "rollback":
+                            case "setAutoCommit":
+                                throw new SQLException("Transaction boundaries are managed by Transaction");
+                            default:
+                                try {
+                                    return method.invoke(connection, args);
+                                } catch (InvocationTargetException e) {
+                                    throw e.getCause();
+                                }
+                        }
+                    });
+        }
+    }
+}
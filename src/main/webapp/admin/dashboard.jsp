@@ -13,7 +13,9 @@
     Integer totalUsers = (Integer) request.getAttribute("totalUsers");
     Integer totalAdmins = (Integer) request.getAttribute("totalAdmins");
     Integer totalQuizzes = (Integer) request.getAttribute("totalQuizzes");
+    Integer activeQuizzes = (Integer) request.getAttribute("activeQuizzes");
     Integer totalSubmissions = (Integer) request.getAttribute("totalSubmissions");
+    Integer inProgressSubmissions = (Integer) request.getAttribute("inProgressSubmissions");
     List<?> quizzes = (List<?>) request.getAttribute("quizzes");
     List<?> submissions = (List<?>) request.getAttribute("submissions");
 
@@ -123,6 +125,7 @@
                             <div>
                                 <p class="mb-1 opacity-75">Total Quiz</p>
                                 <h2 class="stat-value mb-0"><%= totalQuizzes != null ? totalQuizzes : 0 %></h2>
+                                <small class="opacity-75"><%= activeQuizzes != null ? activeQuizzes : 0 %> published</small>
                             </div>
                             <i class="bi bi-journal-text stat-icon"></i>
                         </div>
@@ -136,6 +139,7 @@
                             <div>
                                 <p class="mb-1 opacity-75">Total Submissions</p>
                                 <h2 class="stat-value mb-0"><%= totalSubmissions != null ? totalSubmissions : 0 %></h2>
+                                <small class="opacity-75"><%= inProgressSubmissions != null ? inProgressSubmissions : 0 %> sedang berlangsung</small>
                             </div>
                             <i class="bi bi-file-earmark-check stat-icon"></i>
                         </div>
@@ -216,6 +220,57 @@
                         <% } %>
                     </div>
                 </div>
+
+                <!-- Recent Submissions -->
+                <div class="card mt-4">
+                    <div class="card-header d-flex justify-content-between align-items-center">
+                        <h5 class="mb-0"><i class="bi bi-file-earmark-check me-2"></i>Submission Terbaru</h5>
+                        <a href="../AdminServlet?action=statistics" class="btn btn-sm btn-outline-primary">Lihat Statistik</a>
+                    </div>
+                    <div class="card-body">
+                        <% if (submissions != null && !submissions.isEmpty()) { %>
+                        <div class="table-responsive">
+                            <table class="table table-hover">
+                                <thead>
+                                    <tr>
+                                        <th>Peserta</th>
+                                        <th>Quiz</th>
+                                        <th>Skor</th>
+                                        <th>Status</th>
+                                    </tr>
+                                </thead>
+                                <tbody>
+                                    <% for (Object s : submissions) {
+                                        com.examora.model.Submission sub = (com.examora.model.Submission) s;
+                                    %>
+                                    <tr>
+                                        <td><%= sub.getUserName() %></td>
+                                        <td><%= sub.getQuizTitle() %></td>
+                                        <td><%= sub.isFinished() ? String.format("%.2f", sub.getScore()) : "-" %></td>
+                                        <td>
+                                            <% if (sub.isCompleted()) { %>
+                                            <span class="badge bg-success">Selesai</span>
+                                            <% } else if (sub.isTimedOut()) { %>
+                                            <span class="badge bg-warning">Waktu Habis</span>
+                                            <% } else if (sub.isInProgress()) { %>
+                                            <span class="badge bg-info text-dark">Berlangsung</span>
+                                            <% } else { %>
+                                            <span class="badge bg-secondary"><%= sub.getStatus() %></span>
+                                            <% } %>
+                                        </td>
+                                    </tr>
+                                    <% } %>
+                                </tbody>
+                            </table>
+                        </div>
+                        <% } else { %>
+                        <div class="text-center py-4 text-muted">
+                            <i class="bi bi-inbox display-4 d-block mb-2"></i>
+                            Belum ada submission.
+                        </div>
+                        <% } %>
+                    </div>
+                </div>
             </div>
 
             <!-- Quick Actions -->
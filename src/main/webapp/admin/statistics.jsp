@@ -16,6 +16,7 @@
     List<Map<String, Object>> submissions = (List<Map<String, Object>>) request.getAttribute("submissions");
     Integer selectedQuizId = (Integer) request.getAttribute("selectedQuizId");
     String error = (String) request.getAttribute("error");
+    String success = (String) request.getAttribute("success");
     DateTimeFormatter dtf = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
 %>
 <!DOCTYPE html>
@@ -109,6 +110,13 @@
             </div>
         </div>
 
+        <% if (success != null) { %>
+        <div class="alert alert-success alert-dismissible fade show">
+            <i class="bi bi-check-circle me-2"></i><%= success %>
+            <button type="button" class="btn-close" data-bs-dismiss="alert"></button>
+        </div>
+        <% } %>
+
         <% if (error != null) { %>
         <div class="alert alert-danger alert-dismissible fade show">
             <i class="bi bi-exclamation-triangle me-2"></i><%= error %>
@@ -138,6 +146,16 @@
                         </select>
                     </div>
                 </form>
+                <% if (selectedQuizId != null) { %>
+                <form method="post" action="../AdminServlet" class="mt-3"
+                      onsubmit="return confirm('Tutup dan nilai semua peserta yang masih mengerjakan quiz ini?')">
+                    <input type="hidden" name="action" value="finalizeQuiz">
+                    <input type="hidden" name="quizId" value="<%= selectedQuizId %>">
+                    <button type="submit" class="btn btn-sm btn-outline-danger">
+                        <i class="bi bi-stopwatch me-1"></i>Tutup &amp; Nilai Semua Peserta
+                    </button>
+                </form>
+                <% } %>
             </div>
         </div>
 
@@ -110,7 +110,7 @@
         <div class="row g-4 mb-4">
             <% for (Quiz quiz : quizzes) {
                 Submission sub = userSubmissions != null ? userSubmissions.get(quiz.getId()) : null;
-                boolean hasSubmitted = sub != null && sub.isCompleted();
+                boolean hasSubmitted = sub != null && sub.isFinished();
             %>
             <div class="col-md-6 col-lg-4">
                 <div class="card h-100 quiz-card">
@@ -0,0 +1,51 @@
+<%@ page contentType="text/html;charset=UTF-8" language="java" %>
+<%
+    Integer queuePosition = (Integer) request.getAttribute("queuePosition");
+    Integer retryAfter = (Integer) request.getAttribute("retryAfter");
+    String retryUrl = (String) request.getAttribute("retryUrl");
+    if (queuePosition == null || retryAfter == null || retryUrl == null) {
+        response.sendRedirect("../ExamServlet?action=list");
+        return;
+    }
+%>
+<!DOCTYPE html>
+<html lang="id">
+<head>
+    <meta charset="UTF-8">
+    <meta name="viewport" content="width=device-width, initial-scale=1.0">
+    <meta http-equiv="refresh" content="<%= retryAfter %>;url=<%= retryUrl %>">
+    <title>Antrean Ujian - Examora</title>
+    <link href="https://cdn.jsdelivr.net/npm/bootstrap@5.3.0/dist/css/bootstrap.min.css" rel="stylesheet">
+    <link href="https://cdn.jsdelivr.net/npm/bootstrap-icons@1.10.0/font/bootstrap-icons.css" rel="stylesheet">
+    <link rel="icon" type="image/svg+xml" href="../assets/img/favicon.svg">
+    <style>
+        body { background-color: #f8f9fa; min-height: 100vh; display: flex; align-items: center; justify-content: center; }
+        .queue-card { max-width: 460px; text-align: center; padding: 2.5rem; border-radius: 1rem; }
+    </style>
+</head>
+<body>
+    <div class="card queue-card shadow">
+        <i class="bi bi-hourglass-split text-primary" style="font-size: 4rem;"></i>
+        <h4 class="mt-3">Anda sedang dalam antrean</h4>
+        <p class="display-5 fw-bold mb-1"><%= queuePosition %></p>
+        <p class="text-muted">Posisi Anda dalam antrean ujian</p>
+        <p class="mb-0">
+            Banyak peserta memulai ujian bersamaan. Halaman akan dicoba lagi otomatis dalam
+            <strong id="countdown"><%= retryAfter %></strong> detik. Jangan tutup halaman ini.
+        </p>
+        <a href="<%= retryUrl %>" class="btn btn-outline-primary mt-4">
+            <i class="bi bi-arrow-clockwise me-2"></i>Coba Sekarang
+        </a>
+    </div>
+    <script>
+        let remaining = <%= retryAfter %>;
+        const countdown = document.getElementById('countdown');
+        setInterval(function() {
+            if (remaining > 0) {
+                remaining--;
+                countdown.textContent = remaining;
+            }
+        }, 1000);
+    </script>
+</body>
+</html>
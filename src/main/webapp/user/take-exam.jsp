@@ -1,7 +1,7 @@
 <%@ page contentType="text/html;charset=UTF-8" language="java" %>
 <%@ page import="com.examora.model.User" %>
 <%@ page import="com.examora.model.Quiz" %>
-<%@ page import="com.examora.model.Question" %>
+<%@ page import="com.examora.model.ExamQuestion" %>
 <%@ page import="com.examora.model.Submission" %>
 <%@ page import="java.util.List" %>
 <%@ page import="java.util.Map" %>
@@ -12,11 +12,15 @@
         return;
     }
     Quiz quiz = (Quiz) request.getAttribute("quiz");
-    List<Question> questions = (List<Question>) request.getAttribute("questions");
+    List<ExamQuestion> questions = (List<ExamQuestion>) request.getAttribute("questions");
     Submission submission = (Submission) request.getAttribute("submission");
     Map<Integer, String> savedAnswers = (Map<Integer, String>) request.getAttribute("savedAnswers");
+    // Set when the page renders the shared exam payload itself (exam.payload.enabled)
+    String examOrder = (String) request.getAttribute("examOrder");
+    int questionCount = questions != null ? questions.size()
+            : request.getAttribute("questionCount") != null ? (Integer) request.getAttribute("questionCount") : 0;
 
-    if (quiz == null || questions == null || questions.isEmpty()) {
+    if (quiz == null || (questions == null && examOrder == null) || questionCount == 0) {
         response.sendRedirect("../ExamServlet?action=list");
         return;
     }
@@ -57,7 +61,7 @@
                 </div>
                 <div class="col-md-4 text-end">
                     <span class="badge bg-info me-2">
-                        <%= questions.size() %> Soal
+                        <%= questionCount %> Soal
                     </span>
                     <button class="btn btn-success" id="submitBtn" data-bs-toggle="modal" data-bs-target="#submitModal">
                         <i class="bi bi-send me-1"></i>Submit
@@ -70,7 +74,7 @@
                     <div class="progress" style="height: 8px;">
                         <div class="progress-bar" id="progressBar" role="progressbar" style="width: 0%"></div>
                     </div>
-                    <small class="text-muted"><span id="answeredCount">0</span> dari <%= questions.size() %> soal dijawab</small>
+                    <small class="text-muted"><span id="answeredCount">0</span> dari <%= questionCount %> soal dijawab</small>
                 </div>
             </div>
         </div>
@@ -80,10 +84,16 @@
     <div class="container exam-content">
         <form id="examForm">
             <input type="hidden" name="submissionId" value="<%= submission.getId() %>">
-            <input type="hidden" name="timeSpent" id="timeSpent" value="0">
 
-            <% for (int i = 0; i < questions.size(); i++) {
-                Question q = questions.get(i);
+            <div id="questionList">
+            <% if (examOrder != null) { %>
+            <div class="text-center text-muted py-5" id="questionLoading">
+                <div class="spinner-border mb-3" role="status"></div>
+                <p class="mb-0">Memuat soal...</p>
+            </div>
+            <% } else {
+               for (int i = 0; i < questions.size(); i++) {
+                ExamQuestion q = questions.get(i);
                 String savedAnswer = savedAnswers != null ? savedAnswers.get(q.getId()) : null;
             %>
             <div class="card mb-4 question-card" id="question-<%= i + 1 %>">
@@ -99,25 +109,29 @@
                     <p class="fs-5 mb-4"><%= q.getQuestionText() %></p>
                     <div class="options">
                         <% String[] opts = {"A", "B", "C", "D"};
-                           String[] values = {q.getOptionA(), q.getOptionB(), q.getOptionC(), q.getOptionD()};
+                           // Options may be shuffled; the submitted value is always the original letter
+                           List<String> order = q.getOptionOrder();
                            for (int j = 0; j < opts.length; j++) {
-                               boolean isSelected = opts[j].equals(savedAnswer);
+                               String letter = order.get(j);
+                               boolean isSelected = letter.equals(savedAnswer);
                         %>
                         <div class="option-item p-3 mb-2 border rounded <%= isSelected ? "selected" : "" %>"
-                             data-question="<%= q.getId() %>" data-option="<%= opts[j] %>"
+                             data-question="<%= q.getId() %>" data-option="<%= letter %>"
                              style="cursor: pointer; transition: all 0.2s;"
-                             onclick="selectOption(<%= q.getId() %>, '<%= opts[j] %>', <%= i + 1 %>, this)">
-                            <input type="radio" name="question_<%= q.getId() %>" value="<%= opts[j] %>"
-                                   id="q<%= q.getId() %>_<%= opts[j] %>" <%= isSelected ? "checked" : "" %> style="display: none;">
-                            <label for="q<%= q.getId() %>_<%= opts[j] %>" class="d-block mb-0" style="cursor: pointer;">
-                                <strong><%= opts[j] %>.</strong> <%= values[j] %>
+                             onclick="selectOption(<%= q.getId() %>, '<%= letter %>', <%= i + 1 %>, this)">
+                            <input type="radio" name="question_<%= q.getId() %>" value="<%= letter %>"
+                                   id="q<%= q.getId() %>_<%= letter %>" <%= isSelected ? "checked" : "" %> style="display: none;">
+                            <label for="q<%= q.getId() %>_<%= letter %>" class="d-block mb-0" style="cursor: pointer;">
+                                <strong><%= opts[j] %>.</strong> <%= q.getOptionByLetter(letter) %>
                             </label>
                         </div>
                         <% } %>
                     </div>
                 </div>
             </div>
-            <% } %>
+            <% }
+            } %>
+            </div>
         </form>
     </div>
 
@@ -127,9 +141,10 @@
             <div class="d-flex justify-content-between align-items-center">
                 <div>
                     <small class="text-muted me-2">Navigasi:</small>
-                    <% for (int i = 0; i < questions.size(); i++) {
-                        Question q = questions.get(i);
-                        String savedAnswer = savedAnswers != null ? savedAnswers.get(q.getId()) : null;
+                    <% for (int i = 0; i < questionCount; i++) {
+                        // Without the question list here, answered ones are marked by the script
+                        ExamQuestion q = questions != null ? questions.get(i) : null;
+                        String savedAnswer = q != null && savedAnswers != null ? savedAnswers.get(q.getId()) : null;
                     %>
                     <button type="button" class="btn btn-outline-secondary question-btn <%= i == 0 ? "current" : "" %> <%= savedAnswer != null ? "answered" : "" %>"
                             id="nav-<%= i + 1 %>" onclick="scrollToQuestion(<%= i + 1 %>)">
@@ -157,7 +172,7 @@
                     <p>Apakah Anda yakin ingin menyelesaikan ujian ini?</p>
                     <p class="mb-0 text-muted">
                         Anda telah menjawab <strong id="modalAnsweredCount">0</strong> dari
-                        <strong><%= questions.size() %></strong> soal.
+                        <strong><%= questionCount %></strong> soal.
                     </p>
                     <div id="unansweredWarning" class="alert alert-warning mt-3" style="display: none;">
                         <i class="bi bi-exclamation-triangle me-2"></i>
@@ -178,12 +193,13 @@
 
     <script src="https://cdn.jsdelivr.net/npm/bootstrap@5.3.0/dist/js/bootstrap.bundle.min.js"></script>
     <script>
-        const totalQuestions = <%= questions.size() %>;
+        const totalQuestions = <%= questionCount %>;
         const duration = <%= quiz.getDuration() %>; // in minutes
         let timeRemaining = duration * 60; // in seconds
         let answeredQuestions = {};
-        let startTime = Date.now();
         const submissionId = <%= submission.getId() %>;
+        const examSocket = <%= Boolean.TRUE.equals(request.getAttribute("examSocket")) %>;
+        const examOrder = <%= examOrder != null ? examOrder : "null" %>;
 
         // Initialize saved answers
         <% if (savedAnswers != null) {
@@ -206,8 +222,10 @@
 
             // Auto submit when time's up
             if (timeRemaining <= 0) {
-                alert('Waktu habis! Jawaban Anda akan disubmit otomatis.');
-                submitExam();
+                if (!isSubmitting) {
+                    alert('Waktu habis! Jawaban Anda akan disubmit otomatis.');
+                    submitExam();
+                }
                 return;
             }
 
@@ -246,26 +264,168 @@
             saveAnswerToServer(questionId, option);
         }
 
-        // Save answer to server
+        // Save answers to server: clicks are buffered for a short window and
+        // sent together; a newer click on the same question replaces the older one
+        const SAVE_DELAY_MS = 400;
+        let clientSeq = Date.now();
+        let pendingAnswers = {};
+        let saveTimer = null;
+        let inFlight = null;
+
         function saveAnswerToServer(questionId, selectedAnswer) {
-            fetch('../ExamServlet?action=saveAnswer', {
+            const item = { q: parseInt(questionId), a: selectedAnswer, s: ++clientSeq };
+            if (socket && socket.readyState === WebSocket.OPEN) {
+                unacked[item.q] = item;
+                socket.send(JSON.stringify(item));
+                return;
+            }
+            pendingAnswers[questionId] = item;
+            if (!saveTimer) {
+                saveTimer = setTimeout(flushAnswers, SAVE_DELAY_MS);
+            }
+        }
+
+        // Send everything pending; resolves once the server has answered
+        function flushAnswers() {
+            clearTimeout(saveTimer);
+            saveTimer = null;
+            if (inFlight) {
+                // One request at a time; send the rest when it is done
+                return inFlight.then(flushAnswers);
+            }
+            const batch = Object.values(pendingAnswers);
+            if (batch.length === 0) {
+                return Promise.resolve();
+            }
+            pendingAnswers = {};
+
+            inFlight = fetch('../ExamServlet?action=saveAnswers', {
                 method: 'POST',
-                headers: { 'Content-Type': 'application/x-www-form-urlencoded' },
-                body: 'submissionId=' + submissionId + '&questionId=' + questionId + '&selectedAnswer=' + selectedAnswer
+                headers: { 'Content-Type': 'application/json' },
+                body: JSON.stringify({ submissionId: submissionId, answers: batch })
             })
             .then(response => response.json())
             .then(data => {
-                if (data.success) {
-                    console.log('Answer saved for question ' + questionId);
-                } else {
-                    console.error('Failed to save answer:', data.message);
+                if (!data.success) {
+                    console.error('Failed to save answers:', data.message);
+                    requeue(batch);
+                    return;
                 }
+                data.results.forEach(result => {
+                    if (result.status === 'invalid') {
+                        console.error('Answer rejected for question ' + result.q + ':', result.message);
+                    }
+                });
             })
             .catch(error => {
-                console.error('Error saving answer:', error);
+                console.error('Error saving answers:', error);
+                requeue(batch);
+            })
+            .finally(() => {
+                inFlight = null;
             });
+            return inFlight;
         }
 
+        // Put failed answers back unless the question was answered again meanwhile
+        function requeue(batch) {
+            batch.forEach(item => {
+                if (!pendingAnswers[item.q]) {
+                    pendingAnswers[item.q] = item;
+                }
+            });
+            if (!saveTimer) {
+                saveTimer = setTimeout(flushAnswers, SAVE_DELAY_MS * 5);
+            }
+        }
+
+        // Exam channel: while the WebSocket is open, clicks are sent right away as
+        // small frames and the server keeps the countdown right; HTTP is the fallback
+        let socket = null;
+        let socketRetries = 0;
+        let unacked = {};
+
+        function openSocket() {
+            if (!examSocket || !window.WebSocket || isSubmitting) {
+                return;
+            }
+            const ws = new WebSocket((location.protocol === 'https:' ? 'wss://' : 'ws://') + location.host +
+                '<%= request.getContextPath() %>/ExamSocket/' + submissionId);
+            ws.onopen = () => {
+                socket = ws;
+                socketRetries = 0;
+            };
+            ws.onmessage = event => handleSocketMessage(JSON.parse(event.data));
+            ws.onclose = event => {
+                socket = null;
+                // Unconfirmed saves go over HTTP
+                requeue(Object.values(unacked));
+                unacked = {};
+                // 1000: exam closed, 1008: not allowed; anything else is retried a few times
+                if (event.code !== 1000 && event.code !== 1008 && ++socketRetries <= 5) {
+                    setTimeout(openSocket, 2000 * socketRetries);
+                }
+            };
+        }
+
+        function handleSocketMessage(message) {
+            switch (message.type) {
+                case 'time':
+                    timeRemaining = message.remaining;
+                    break;
+                case 'saved':
+                case 'error': {
+                    if (message.type === 'error') {
+                        console.error('Failed to save answer:', message.message);
+                    }
+                    const item = unacked[message.q];
+                    if (item && item.s <= message.s) {
+                        delete unacked[message.q];
+                        if (message.retry) {
+                            requeue([item]);
+                        }
+                    }
+                    break;
+                }
+                case 'forceSubmit':
+                    if (!isSubmitting) {
+                        alert('Waktu habis! Jawaban Anda akan disubmit otomatis.');
+                        submitExam();
+                    }
+                    break;
+                case 'closed':
+                    // Submitted in another tab or closed by the server
+                    if (!isSubmitting) {
+                        isSubmitting = true;
+                        location.href = '../ExamServlet?action=result&submissionId=' + submissionId;
+                    }
+                    break;
+            }
+        }
+
+        // Heartbeat while no socket is open (an open socket counts by itself);
+        // time spent is measured on the server up to the last sign of life
+        const HEARTBEAT_MS = 30000;
+        setInterval(function() {
+            if (isSubmitting || (socket && socket.readyState === WebSocket.OPEN)) {
+                return;
+            }
+            fetch('../ExamServlet?action=heartbeat', {
+                method: 'POST',
+                headers: { 'Content-Type': 'application/x-www-form-urlencoded' },
+                body: 'submissionId=' + submissionId
+            }).catch(() => {});
+        }, HEARTBEAT_MS);
+
+        // Last chance for unsent answers when the page goes away
+        window.addEventListener('pagehide', function() {
+            const batch = Object.values(pendingAnswers).concat(Object.values(unacked));
+            if (batch.length > 0 && navigator.sendBeacon) {
+                navigator.sendBeacon('../ExamServlet?action=saveAnswers',
+                    JSON.stringify({ submissionId: submissionId, answers: batch }));
+            }
+        });
+
         // Update progress
         function updateProgress() {
             const answered = Object.keys(answeredQuestions).length;
@@ -311,13 +471,13 @@
             // Disable beforeunload warning before submitting
             isSubmitting = true;
 
-            const timeSpent = Math.floor((Date.now() - startTime) / 1000);
-            document.getElementById('timeSpent').value = timeSpent;
-
+            // Buffered (and unconfirmed socket) answers go out before the submit
+            requeue(Object.values(unacked));
+            unacked = {};
             const form = document.getElementById('examForm');
             form.action = '../ExamServlet?action=submit';
             form.method = 'POST';
-            form.submit();
+            flushAnswers().finally(() => form.submit());
         }
 
         // Flag to track if we're submitting
@@ -332,11 +492,97 @@
             e.returnValue = '';
         });
 
-        // Initialize on page load
-        document.addEventListener('DOMContentLoaded', function() {
-            updateProgress();
+        // Shared exam payload: the question text is the same cached JSON for every
+        // participant (revalidated with its ETag on reload); this page only knows
+        // its own order, as positions into the payload
+        const OPTION_LETTERS = ['A', 'B', 'C', 'D'];
 
-            // Mark already answered questions in navigation
+        function loadQuestions() {
+            fetch('../ExamServlet?action=payload&submissionId=' + submissionId)
+                .then(response => {
+                    if (!response.ok) {
+                        throw new Error('HTTP ' + response.status);
+                    }
+                    return response.json();
+                })
+                .then(payload => {
+                    if (payload.version !== examOrder.version && !sessionStorage.getItem('examReload-' + submissionId)) {
+                        // Questions were changed after this page was served
+                        sessionStorage.setItem('examReload-' + submissionId, '1');
+                        isSubmitting = true;
+                        location.reload();
+                        return;
+                    }
+                    sessionStorage.removeItem('examReload-' + submissionId);
+                    renderQuestions(payload.questions);
+                    markAnsweredNavigation();
+                })
+                .catch(error => {
+                    console.error('Error loading questions:', error);
+                    document.getElementById('questionLoading').innerHTML =
+                        '<div class="alert alert-danger">Gagal memuat soal. ' +
+                        '<a href="#" onclick="location.reload(); return false;">Muat ulang</a></div>';
+                });
+        }
+
+        function renderQuestions(payloadQuestions) {
+            const list = document.getElementById('questionList');
+            list.innerHTML = '';
+            examOrder.order.forEach((position, i) => {
+                const q = payloadQuestions[position];
+                if (!q) {
+                    return;
+                }
+                const number = i + 1;
+                const optionOrder = examOrder.options ? examOrder.options[i] : [0, 1, 2, 3];
+
+                const card = document.createElement('div');
+                card.className = 'card mb-4 question-card';
+                card.id = 'question-' + number;
+                card.innerHTML =
+                    '<div class="card-header bg-white"><div class="d-flex justify-content-between align-items-center">' +
+                    '<h5 class="mb-0"><span class="badge bg-primary me-2">' + number + '</span>Pertanyaan #' + number + '</h5>' +
+                    '</div></div><div class="card-body"><p class="fs-5 mb-4"></p><div class="options"></div></div>';
+                card.querySelector('p').textContent = q.text;
+
+                const options = card.querySelector('.options');
+                optionOrder.forEach((index, j) => {
+                    // Options may be shuffled; the submitted value is always the original letter
+                    const letter = OPTION_LETTERS[index];
+                    const item = document.createElement('div');
+                    item.className = 'option-item p-3 mb-2 border rounded' +
+                        (answeredQuestions[q.id] === letter ? ' selected' : '');
+                    item.dataset.question = q.id;
+                    item.dataset.option = letter;
+                    item.style.cursor = 'pointer';
+                    item.style.transition = 'all 0.2s';
+                    item.addEventListener('click', () => selectOption(q.id, letter, number, item));
+
+                    const radio = document.createElement('input');
+                    radio.type = 'radio';
+                    radio.name = 'question_' + q.id;
+                    radio.value = letter;
+                    radio.id = 'q' + q.id + '_' + letter;
+                    radio.checked = answeredQuestions[q.id] === letter;
+                    radio.style.display = 'none';
+
+                    const label = document.createElement('label');
+                    label.htmlFor = radio.id;
+                    label.className = 'd-block mb-0';
+                    label.style.cursor = 'pointer';
+                    const prefix = document.createElement('strong');
+                    prefix.textContent = OPTION_LETTERS[j] + '.';
+                    label.append(prefix, ' ' + q.options[index]);
+
+                    item.append(radio, label);
+                    options.appendChild(item);
+                });
+                list.appendChild(card);
+            });
+        }
+
+        // Mark already answered questions in navigation
+        function markAnsweredNavigation() {
             for (const questionId in answeredQuestions) {
                 // Find question number from data attribute
                 const optionEl = document.querySelector('[data-question="' + questionId + '"]');
@@ -348,6 +594,17 @@
                     }
                 }
             }
+        }
+
+        // Initialize on page load
+        document.addEventListener('DOMContentLoaded', function() {
+            updateProgress();
+            openSocket();
+            if (examOrder) {
+                loadQuestions();
+            } else {
+                markAnsweredNavigation();
+            }
         });
 
         // Disable copy-paste